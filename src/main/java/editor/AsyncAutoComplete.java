@@ -0,0 +1,104 @@
+package editor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Completes the word being typed off the UI thread. Each request waits out a debounce window on a background
+ * thread and is dropped if a newer one arrives first, so a burst of keystrokes costs one lookup; a result is
+ * only handed to the UI executor, and from there to its consumer, while no newer request has been made. The
+ * UI executor is Platform::runLater in the editor and can be any executor in tests.
+ */
+public class AsyncAutoComplete {
+
+    /** The default time a request waits for a newer one before it is looked up. */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 40;
+
+    private final EditorModel model;
+    private final Executor uiExecutor;
+    private final long debounceMillis;
+    private final ScheduledExecutorService worker;
+    // a worker passed in belongs to the caller, who shuts it down
+    private final boolean ownsWorker;
+    private final AtomicLong latest = new AtomicLong();
+    private ScheduledFuture<?> pending;
+
+    /**
+     * Creates an AsyncAutoComplete that completes with {@code model} on its own thread, waits
+     * {@code debounceMillis} for newer requests, and delivers results through {@code uiExecutor}
+     */
+    public AsyncAutoComplete(EditorModel model, Executor uiExecutor, long debounceMillis) {
+        this(model, uiExecutor, debounceMillis, Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "autocomplete");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * Creates an AsyncAutoComplete that waits out the debounce window and completes with {@code model} on
+     * {@code worker}, for instance a scheduler whose clock a test advances by hand. The worker is not shut down
+     * by {@link #shutdown()}.
+     */
+    public AsyncAutoComplete(
+            EditorModel model, Executor uiExecutor, long debounceMillis, ScheduledExecutorService worker) {
+        this(model, uiExecutor, debounceMillis, worker, false);
+    }
+
+    private AsyncAutoComplete(
+            EditorModel model,
+            Executor uiExecutor,
+            long debounceMillis,
+            ScheduledExecutorService worker,
+            boolean ownsWorker) {
+        this.model = model;
+        this.uiExecutor = uiExecutor;
+        this.debounceMillis = debounceMillis;
+        this.worker = worker;
+        this.ownsWorker = ownsWorker;
+    }
+
+    /**
+     * Completes the last word of {@code markupText} after the debounce window and passes the completion to
+     * {@code onResult} on the UI executor, unless another request is made before then
+     */
+    public synchronized void request(String markupText, Consumer<String> onResult) {
+        long sequence = latest.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = worker.schedule(() -> {
+            if (sequence != latest.get()) {
+                return;
+            }
+            String completion = model.autocomplete(markupText);
+            // the lookup cannot be interrupted, so a result that was overtaken while it ran is dropped here, and
+            // one overtaken while waiting for the UI thread is dropped there
+            if (sequence == latest.get()) {
+                uiExecutor.execute(() -> {
+                    if (sequence == latest.get()) {
+                        onResult.accept(completion);
+                    }
+                });
+            }
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops any request not yet delivered and stops the background thread, if this AsyncAutoComplete made it
+     */
+    public synchronized void shutdown() {
+        latest.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        if (ownsWorker) {
+            worker.shutdownNow();
+        }
+    }
+}
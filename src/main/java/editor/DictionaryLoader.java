@@ -0,0 +1,147 @@
+package editor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Reads the lines of a dictionary file in parallel. The file is cut into chunks just after line feeds, which in
+ * the platform charsets the editor reads files in never occur inside a character, and each chunk is mapped into
+ * memory, decoded and split into lines by its own task. The lines are the ones BufferedReader.readLine would
+ * give, in order, ended by a line feed, a carriage return, or both.
+ */
+public class DictionaryLoader {
+
+    /** The default number of bytes read by each task. */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final Charset charset;
+
+    /**
+     * Creates a DictionaryLoader that reads files in the default charset on {@code pool}, {@code chunkSize}
+     * bytes or a little more per task
+     */
+    public DictionaryLoader(ForkJoinPool pool, int chunkSize) {
+        this.pool = pool;
+        this.chunkSize = Math.max(chunkSize, 1);
+        charset = Charset.defaultCharset();
+    }
+
+    /**
+     * Returns the lines of {@code file}, passing the fraction of the file read so far to {@code progress} on the
+     * calling thread as the chunks are read
+     * @throws IOException If the file cannot be read
+     * @throws InterruptedException If the calling thread is interrupted, in which case the chunks not yet read
+     * are cancelled
+     */
+    public List<String> read(Path file, DoubleConsumer progress) throws IOException, InterruptedException {
+        return read(file, progress, lines -> {});
+    }
+
+    /**
+     * Returns the lines of {@code file} as {@link #read(Path, DoubleConsumer)} does, also passing the lines of
+     * each chunk to {@code eachChunk} on the task that read them, so that they can be processed in parallel. A
+     * chunk already being read when the calling thread is interrupted may still be passed on after this returns.
+     * @throws IOException If the file cannot be read
+     * @throws InterruptedException If the calling thread is interrupted, in which case the chunks not yet read
+     * are cancelled
+     */
+    public List<String> read(Path file, DoubleConsumer progress, Consumer<List<String>> eachChunk)
+            throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Future<List<String>>> chunks = new ArrayList<>();
+            long[] ends = new long[(int) (size / chunkSize) + 2];
+            int count = 0;
+            for (long start = 0; start < size; ) {
+                long end = nextLineStart(channel, Math.min(start + chunkSize, size), size);
+                final long from = start;
+                chunks.add(
+                        pool.submit(
+                                () -> {
+                                    List<String> lines = readLines(channel, from, end);
+                                    eachChunk.accept(lines);
+                                    return lines;
+                                }));
+                ends[count++] = end;
+                start = end;
+            }
+            List<String> lines = new ArrayList<>();
+            try {
+                for (int c = 0; c < count; c++) {
+                    lines.addAll(chunks.get(c).get());
+                    progress.accept((double) ends[c] / size);
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } finally {
+                for (Future<List<String>> chunk : chunks) {
+                    chunk.cancel(false);
+                }
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Returns the index just past the first line feed in {@code channel} at or after {@code from}, or
+     * {@code size} if there is none
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        for (long position = from; position < size; ) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Decodes the bytes {@code [from, to)} of {@code channel} and splits them into lines
+     */
+    private List<String> readLines(FileChannel channel, long from, long to) throws IOException {
+        CharBuffer text = charset.decode(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from));
+        List<String> lines = new ArrayList<>();
+        int n = text.limit();
+        int start = 0;
+        for (int i = 0; i < n; i++) {
+            char c = text.get(i);
+            if (c == '\n' || c == '\r') {
+                lines.add(text.subSequence(start, i).toString());
+                if (c == '\r' && i + 1 < n && text.get(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        if (start < n) {
+            lines.add(text.subSequence(start, n).toString());
+        }
+        return lines;
+    }
+}
@@ -3,7 +3,9 @@ package editor;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Pos;
@@ -28,6 +30,8 @@ import javafx.stage.Stage;
 public class Editor extends Application {
 
     private EditorModel editorModel;
+    private AsyncAutoComplete asyncAutoComplete;
+    private Future<?> loading;
     private List<Button> controls;
     private Text autocompletion;
     private Text timer;
@@ -43,6 +47,9 @@ public class Editor extends Application {
         stage.setTitle("2112 Editor");
 
         editorModel = new EditorModel();
+        asyncAutoComplete =
+                new AsyncAutoComplete(
+                        editorModel, Platform::runLater, AsyncAutoComplete.DEFAULT_DEBOUNCE_MILLIS);
         controls = new ArrayList<>();
 
         final HTMLEditor htmlEditor = new HTMLEditor();
@@ -74,6 +81,11 @@ public class Editor extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        asyncAutoComplete.shutdown();
+    }
+
     private void setupDictionary(final HTMLEditor htmlEditor, final Stage stage) {
         ToolBar bar = getToolBar(htmlEditor);
         ImageView graphic = new ImageView(new Image("dict.png", 24, 24, true, true));
@@ -85,17 +97,49 @@ public class Editor extends Application {
                 new EventHandler<ActionEvent>() {
                     @Override
                     public void handle(ActionEvent arg0) {
+                        if (loading != null) {
+                            // pressed again while loading, it cancels the load
+                            loading.cancel(true);
+                            return;
+                        }
                         FileChooser fileChooser = new FileChooser();
                         fileChooser.setTitle("Open Dictionary File");
                         File dict = fileChooser.showOpenDialog(stage);
-                        if (editorModel.loadDictionary(dict))
-                            for (Button b : controls) {
-                                b.setDisable(false);
-                            }
+                        if (dict == null) return;
+                        // nothing else may use the modules while the words are added to them
+                        List<Boolean> wereDisabled = new ArrayList<>();
+                        for (Button b : controls) {
+                            wereDisabled.add(b.isDisabled());
+                            b.setDisable(b != loadDict);
+                        }
+                        loading =
+                                editorModel.loadDictionaryInBackground(
+                                        dict,
+                                        fraction -> Platform.runLater(() -> showProgress(fraction)),
+                                        loaded ->
+                                                Platform.runLater(
+                                                        () -> finishLoading(loaded, wereDisabled)));
                     }
                 });
     }
 
+    private void showProgress(double fraction) {
+        if (loading == null || loading.isCancelled()) {
+            // reported before the load was cancelled or finished, but run after
+            return;
+        }
+        timer.setText("Loading dictionary: " + Math.round(100 * fraction) + "%");
+    }
+
+    private void finishLoading(boolean loaded, List<Boolean> wereDisabled) {
+        loading = null;
+        timer.setText(loaded ? "Dictionary loaded." : "Dictionary not loaded.");
+        // the controls are enabled once a dictionary is loaded, and otherwise left as they were
+        for (int i = 0; i < controls.size(); i++) {
+            controls.get(i).setDisable(!loaded && wereDisabled.get(i));
+        }
+    }
+
     private void setupSpellCheck(final HTMLEditor htmlEditor) {
         ToolBar bar = getToolBar(htmlEditor);
         ImageView graphic = new ImageView(new Image("check.png", 24, 24, true, true));
@@ -138,7 +182,8 @@ public class Editor extends Application {
                 new EventHandler<KeyEvent>() {
                     @Override
                     public void handle(KeyEvent e) {
-                        autocompletion.setText(editorModel.autocomplete(htmlEditor.getHtmlText()));
+                        // the markup must be read on the FX thread; only the lookup runs in the background
+                        asyncAutoComplete.request(htmlEditor.getHtmlText(), autocompletion::setText);
                     }
                 });
     }
@@ -1,61 +1,147 @@
 package editor;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 import modules.AutoCompleteModule;
+import modules.AutoCompleteSession;
 import modules.ModuleFactory;
 import modules.SearchModule;
 import modules.SpellCheckModule;
 
 public class EditorModel {
 
+    /** The number of words added to the trie between reports of progress and checks for cancellation. */
+    private static final int PROGRESS_INTERVAL = 1 << 12;
+
     private final AutoCompleteModule autoComplete;
+    private final AutoCompleteSession autoCompleteSession;
     private final SpellCheckModule spellCheck;
     private final SearchModule search;
     private long spellCheckTime;
+    private final MarkupScanner scanner = new MarkupScanner();
+    // autocomplete may run on another thread than the other operations, so it has its own scanner
+    private final MarkupScanner completionScanner = new MarkupScanner();
+    private final IncrementalSpellCheck incrementalSpellCheck;
+    private final DictionaryLoader loader =
+            new DictionaryLoader(ForkJoinPool.commonPool(), DictionaryLoader.DEFAULT_CHUNK_SIZE);
 
     public EditorModel() {
         autoComplete = ModuleFactory.getAutoComplete();
-        spellCheck = ModuleFactory.getSpellCheck();
+        // keystrokes usually change the prefix by one character, so the session resumes from the last one
+        autoCompleteSession = autoComplete.newSession();
+        // the dictionary's words are added from the tasks that read it, in parallel
+        spellCheck = ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.CONCURRENT_BLOOM);
         search = ModuleFactory.getSearchModule();
+        incrementalSpellCheck = new IncrementalSpellCheck(spellCheck);
     }
 
     public boolean loadDictionary(File dict) {
+        return loadDictionary(dict, fraction -> {});
+    }
+
+    /**
+     * Loads {@code dict} on a background thread, passing the fraction loaded so far to {@code progress} and then
+     * whether the whole dictionary was loaded to {@code onDone}, both on that thread. Cancelling the returned
+     * future with interruption stops the loading and its progress reports; the words added before then stay.
+     * {@code onDone} is called once the loading has stopped and the model's operations are free to run again,
+     * even if the future is cancelled before the loading starts.
+     */
+    public Future<?> loadDictionaryInBackground(File dict, DoubleConsumer progress, Consumer<Boolean> onDone) {
+        FutureTask<Boolean> task =
+                new FutureTask<Boolean>(
+                        () ->
+                                loadDictionary(
+                                        dict,
+                                        fraction -> {
+                                            // cancelling interrupts this thread, which stops at its next check
+                                            if (!Thread.currentThread().isInterrupted()) {
+                                                progress.accept(fraction);
+                                            }
+                                        }));
+        Thread thread =
+                new Thread(
+                        () -> {
+                            // run returns once loadDictionary has, so the model's lock is released by now
+                            task.run();
+                            // the interrupt that cancelled the loading is not left for onDone to trip over
+                            Thread.interrupted();
+                            boolean loaded;
+                            try {
+                                loaded = !task.isCancelled() && task.get();
+                            } catch (InterruptedException | ExecutionException e) {
+                                loaded = false;
+                            }
+                            onDone.accept(loaded);
+                        },
+                        "dictionary");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+
+    /**
+     * Reads the words of {@code dict} in parallel chunks, adding each chunk to the filter on the task that read
+     * it, then adds them to the trie, reporting the fraction done to {@code progress}: the first half for reading,
+     * the second for the trie
+     */
+    private boolean loadDictionary(File dict, DoubleConsumer progress) {
         if (dict == null) return false;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(dict))) {
-            for (String line; (line = br.readLine()) != null; ) {
-                autoComplete.addWord(line);
-                spellCheck.addWord(line);
-            }
+        List<String> words;
+        try {
+            words =
+                    loader.read(
+                            dict.toPath(),
+                            fraction -> progress.accept(fraction / 2),
+                            chunk -> chunk.forEach(spellCheck::addWord));
         } catch (IOException ioe) {
             System.err.println("Error reading provided dictionary file.");
             return false;
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                // some of the words may have been added to the filter already
+                incrementalSpellCheck.clear();
+            }
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        synchronized (this) {
+            // words that were misspelled may not be anymore, even if only some of the words are added
+            incrementalSpellCheck.clear();
+            for (int i = 0; i < words.size(); i++) {
+                if (i % PROGRESS_INTERVAL == 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return false;
+                    }
+                    progress.accept(0.5 + 0.5 * i / words.size());
+                }
+                autoComplete.addWord(words.get(i));
+            }
+            progress.accept(1);
         }
         return true;
     }
 
-    public String spellCheck(String markupText) {
-        String plainText = toPlainText(markupText);
-        String preamble = markupText.substring(0, firstIndexOfBody(markupText));
-        String conclusion = markupText.substring(lastIndexOfBody(markupText) + 1);
-        StringBuilder sb = new StringBuilder();
+    public synchronized String spellCheck(String markupText) {
+        int bodyEnd = MarkupScanner.bodyEnd(markupText);
+        String preamble = markupText.substring(0, MarkupScanner.bodyStart(markupText, bodyEnd));
+        String conclusion = markupText.substring(bodyEnd + 1);
+        CharSequence plainText = scanner.toPlainText(markupText);
+        // room for the markup and some underlining, so that the builder is not copied as it grows
+        StringBuilder sb = new StringBuilder(markupText.length() + markupText.length() / 2);
         sb.append(preamble);
         long start = System.nanoTime();
-        for (String word : plainText.split("\\s+")) {
-            if (!spellCheck.isValidWord(word.toLowerCase().replaceAll("[^\\w]", ""))) {
-                sb.append("<u><font color=\"red\">");
-                sb.append(word);
-                sb.append("</font></u> ");
-            } else {
-                sb.append(word);
-                sb.append(" ");
-            }
-        }
+        // only the parts of the text that changed since the last check are checked again, and only their pieces
+        // of the kept, checked text are replaced
+        incrementalSpellCheck.check(plainText, sb);
         spellCheckTime = (System.nanoTime() - start) / 1000;
         sb.append(conclusion);
         return sb.toString();
@@ -65,116 +151,69 @@ public class EditorModel {
         return spellCheckTime;
     }
 
-    public String autocomplete(String markupText) {
+    public synchronized String autocomplete(String markupText) {
+        // only the tags at the start and the markup after the last word are read
+        int bodyEnd = MarkupScanner.bodyEnd(markupText);
         int startIndex =
                 Math.max(
-                        Math.max(markupText.lastIndexOf(' ') + 1, firstIndexOfBody(markupText)),
-                        markupText.lastIndexOf("&nbsp;") + 6);
-        String pref =
-                toPlainText(markupText.substring(startIndex, lastIndexOfBody(markupText) + 1));
-        return autoComplete.getWordForPrefix(pref);
+                        MarkupScanner.lastWordStart(markupText),
+                        MarkupScanner.bodyStart(markupText, bodyEnd));
+        String pref = completionScanner.toPlainText(markupText, startIndex, bodyEnd + 1).toString();
+        return autoCompleteSession.getWordForPrefix(pref);
     }
 
     public String search(String query, String markupText) {
-        // clear formatting before we start
-        markupText = clearFormatting(markupText);
-        if (markupText.length() == 0 || query.length() == 0) {
+        return search(query, markupText, false, false);
+    }
+
+    /**
+     * Highlights every occurrence of {@code query} in the text of {@code markupText}, optionally ignoring case
+     * and only matching whole words. Tags count as word boundaries.
+     */
+    public synchronized String search(String query, String markupText, boolean ignoreCase, boolean wholeWord) {
+        // clear formatting before we start, finding the runs of text between tags as we go
+        markupText = scanner.clearFormatting(markupText);
+        if (markupText.length() == 0
+                || query.length() == 0
+                || query.indexOf('<') >= 0
+                || query.indexOf('>') >= 0) {
+            // text never contains the brackets of tags, so such a query cannot match
             return markupText;
         }
-        List<String> tags = new ArrayList<>();
-        List<String> searchText = new ArrayList<>();
-        StringBuilder curr = new StringBuilder();
-        // we start with text, even though the first element is probably '<'
-        int tagCount = 0;
-        for (int i = 0; i < markupText.length(); i++) {
-            char c = markupText.charAt(i);
-            if (c == '<') {
-                if (tagCount == 0) {
-                    searchText.add(curr.toString());
-                    // clear sb
-                    curr.setLength(0);
-                }
-                curr.append('<');
-                tagCount++;
-            } else if (c == '>') {
-                curr.append('>');
-                tagCount--;
-                if (tagCount == 0) {
-                    tags.add(curr.toString());
-                    curr.setLength(0);
-                }
-            } else {
-                curr.append(c);
+        StringBuilder res = new StringBuilder(markupText.length());
+        // walk forward through the runs of text alongside the matches, so that matches in tags are skipped
+        int run = 0;
+        int runCount = scanner.runCount();
+        // the end of the last highlighted match, so that overlapping matches are skipped
+        int copied = 0;
+        PrimitiveIterator.OfInt matches = search.findAll(query, markupText, ignoreCase, wholeWord).iterator();
+        while (matches.hasNext()) {
+            int searchIdx = matches.nextInt();
+            if (searchIdx < copied) {
+                continue;
             }
-        }
-        if (tagCount == 0) {
-            searchText.add(curr.toString());
-        } else {
-            tags.add(curr.toString());
-        }
-        StringBuilder res = new StringBuilder();
-        // keep track of whether we've added any text, to make sure we put a
-        // space before the very first element of the body (other things rely on
-        // that assumption)
-        boolean addedText = false;
-        // keep track of whether we've found and highlighted the first instance
-        // of the query
-        boolean foundQuery = false;
-        for (int idx = 0; idx < searchText.size(); idx++) {
-            String text = searchText.get(idx);
-            if (!foundQuery) {
-                // only search if we haven't yet found the query
-                int searchIdx = search.find(query, text);
-                if (searchIdx != -1) {
-                    foundQuery = true;
-                    res.append(text.substring(0, searchIdx));
-                    if (searchIdx == 0 && !addedText) {
-                        res.append(' ');
-                    }
-                    res.append("<u><font color=\"blue\">");
-                    res.append(text.substring(searchIdx, searchIdx + query.length()));
-                    res.append("</font></u>");
-                    res.append(text.substring(searchIdx + query.length()));
-                } else {
-                    // if we can't find the query in the text, just append
-                    res.append(text);
-                }
-            } else {
-                // if we've already found the query, just append
-                res.append(text);
+            while (run < runCount && scanner.runEnd(run) <= searchIdx) {
+                run++;
             }
-            if (text.length() > 0) {
-                addedText = true;
+            if (run == runCount || scanner.runStart(run) > searchIdx) {
+                continue;
             }
-            if (idx < tags.size()) {
-                res.append(tags.get(idx));
+            res.append(markupText, copied, searchIdx);
+            // make sure we put a space before the very first element of the body
+            // (other things rely on that assumption)
+            if (run == 0 && searchIdx == scanner.runStart(0) && scanner.runFollowsTag(0)) {
+                res.append(' ');
             }
+            res.append("<u><font color=\"blue\">");
+            res.append(markupText, searchIdx, searchIdx + query.length());
+            res.append("</font></u>");
+            copied = searchIdx + query.length();
         }
+        res.append(markupText, copied, markupText.length());
         return res.toString();
     }
 
-    public String clearFormatting(String markupText) {
-        return markupText
-                .replaceAll("<u><font color=\"(red|blue)\">", "")
-                .replaceAll("</font></u>", "");
-    }
-
-    private String toPlainText(String markupText) {
-        return markupText.replaceAll("<p>", " ").replaceAll("<[^>]+>", "").replace("&nbsp;", "");
-    }
-
-    private int firstIndexOfBody(String markupText) {
-        int index = 0;
-        int max = lastIndexOfBody(markupText);
-        while (index < max - 1 && markupText.charAt(index) == '<') {
-            index++;
-            while (markupText.charAt(index) != '>') index++;
-            index++;
-        }
-        return index;
-    }
-
-    private int lastIndexOfBody(String markupText) {
-        return markupText.lastIndexOf("</body>") - 1;
+    public synchronized String clearFormatting(String markupText) {
+        return scanner.clearFormatting(markupText);
     }
 }
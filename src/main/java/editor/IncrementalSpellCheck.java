@@ -0,0 +1,342 @@
+package editor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import modules.SpellCheckModule;
+import util.WordTokenizer;
+
+/**
+ * Marks up the misspelled words of plain text, re-checking only what changed since the last text. The text is
+ * cut into chunks of whole words at points chosen by a rolling hash of the characters before them, so an edit
+ * only changes the chunks around it, and each chunk's checked text and misspellings are kept by the chunk's
+ * plain text. The checked text of the last text is kept in a {@link PieceTable}, with each misspelling a
+ * highlight span, and only the pieces of the chunks that changed are replaced. Cutting and looking up the chunks
+ * is linear in the text but much cheaper than checking it, so checking again after a small edit costs about as
+ * much as the chunks the edit touched.
+ */
+public class IncrementalSpellCheck {
+
+    /** Chunks are cut before a word when the top CHUNK_BITS bits of the rolling hash are 0. */
+    static final int CHUNK_BITS = 6;
+    private static final String MISSPELLED = "<u><font color=\"red\">";
+    private static final String END_OF_MISSPELLED = "</font></u>";
+    /** The random value each character adds to the rolling hash, by its low byte. */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(2112);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final SpellCheckModule spellCheck;
+    private final WordTokenizer tokenizer = new WordTokenizer();
+    private boolean[] valid = new boolean[0];
+    private boolean incremental = true;
+    private int checkedLength;
+
+    // the last text, and a buffer for the next one
+    private char[] previous = new char[0];
+    private int previousLength;
+    private char[] spare = new char[64];
+    // the chunks of the last text in order, chunk j starting at starts[j], and by their keys
+    private int chunkCount;
+    private int[] starts = {0};
+    private Chunk[] chunkList = new Chunk[0];
+    private Map<Long, Chunk> chunks = new HashMap<>();
+    // the checked text of the last text, chunk j's at outputStarts[j], and the pieces of the chunks that changed
+    private final PieceTable document = new PieceTable(MISSPELLED, END_OF_MISSPELLED);
+    private final PieceTable changed = new PieceTable(MISSPELLED, END_OF_MISSPELLED);
+    private int[] outputStarts = {0};
+
+    /**
+     * Creates an IncrementalSpellCheck that checks words with {@code spellCheck}
+     */
+    public IncrementalSpellCheck(SpellCheckModule spellCheck) {
+        this.spellCheck = spellCheck;
+    }
+
+    /**
+     * Sets whether the results for chunks of the last text are reused, or all text is checked every time
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        clear();
+    }
+
+    /**
+     * Forgets the results of the last text, as must be done whenever the words in the dictionary change
+     */
+    public void clear() {
+        previousLength = 0;
+        chunkCount = 0;
+        chunks.clear();
+        document.clear();
+    }
+
+    /**
+     * Gets the number of characters of the last text that had to be checked, because no chunk of the text
+     * before had the same plain text
+     * @return The number of characters checked
+     */
+    public int getCheckedLength() {
+        return checkedLength;
+    }
+
+    /**
+     * Appends {@code plainText} to {@code out} with each whitespace-separated word followed by a space, and the
+     * misspelled ones underlined in red
+     */
+    public void check(CharSequence plainText, StringBuilder out) {
+        if (!incremental) {
+            checkedLength = plainText.length();
+            markUp(plainText, out);
+            return;
+        }
+        cut(plainText);
+        document.appendMarkup(out);
+    }
+
+    /**
+     * Cuts {@code plainText} into chunks, reusing those of the last text that it still has and checking the rest
+     */
+    private void cut(CharSequence plainText) {
+        int n = plainText.length();
+        checkedLength = 0;
+        char[] text = spare.length >= n ? spare : new char[Math.max(n, 2 * spare.length)];
+        if (plainText instanceof StringBuilder) {
+            ((StringBuilder) plainText).getChars(0, n, text, 0);
+        } else {
+            for (int i = 0; i < n; i++) {
+                text[i] = plainText.charAt(i);
+            }
+        }
+        // a chunk ends just before a word, so that no chunk after the first starts with whitespace, which would
+        // be an empty word, and the first holds a word
+        int firstWord = 0;
+        while (firstWord < n && WordTokenizer.isWhitespace(text[firstWord])) {
+            firstWord++;
+        }
+
+        // whether a chunk ends at a point depends only on the characters there and the 64 before, so the chunks
+        // of the last text that lie, with the 64 characters before them, in the text it shares with this one
+        // are chunks of this one too; the rest of this text is cut into chunks again
+        int shared = Math.min(n, previousLength);
+        int prefix = Arrays.mismatch(text, 0, shared, previous, 0, shared);
+        prefix = prefix < 0 ? shared : prefix;
+        int suffix = commonSuffix(text, n, shared - prefix);
+        int shift = n - previousLength;
+        int reusedBefore = 0;
+        while (reusedBefore < chunkCount && starts[reusedBefore + 1] < prefix) {
+            reusedBefore++;
+        }
+        int reusedAfter = chunkCount;
+        while (reusedAfter > reusedBefore
+                && starts[reusedAfter - 1] - Long.SIZE - 1 >= previousLength - suffix
+                && starts[reusedAfter - 1] + shift > firstWord) {
+            reusedAfter--;
+        }
+        int lo = starts[reusedBefore];
+        int hi = reusedAfter < chunkCount ? starts[reusedAfter] + shift : n;
+
+        int[] nextStarts = new int[chunkCount + 16];
+        Chunk[] nextChunks = new Chunk[chunkCount + 16];
+        Map<Long, Chunk> nextByKey = new HashMap<>(2 * chunkCount + 16);
+        int count = 0;
+        for (int j = 0; j < reusedBefore; j++) {
+            nextStarts[count] = starts[j];
+            nextChunks[count++] = chunkList[j];
+        }
+        long hash = 0;
+        int chunkStart = lo;
+        for (int i = Math.max(lo - Long.SIZE, 0); i < hi; i++) {
+            if (i > lo
+                    && hash >>> (Long.SIZE - CHUNK_BITS) == 0
+                    && i > firstWord
+                    && WordTokenizer.isWhitespace(text[i - 1])
+                    && !WordTokenizer.isWhitespace(text[i])) {
+                if (count + 1 >= nextStarts.length) {
+                    nextStarts = Arrays.copyOf(nextStarts, 2 * count + 2);
+                    nextChunks = Arrays.copyOf(nextChunks, 2 * count + 2);
+                }
+                nextStarts[count] = chunkStart;
+                nextChunks[count++] = find(text, chunkStart, i, hash, nextByKey);
+                chunkStart = i;
+            }
+            hash = (hash << 1) + GEAR[text[i] & 0xFF];
+        }
+        if (count + chunkCount - reusedAfter + 1 >= nextStarts.length) {
+            nextStarts = Arrays.copyOf(nextStarts, count + chunkCount - reusedAfter + 2);
+            nextChunks = Arrays.copyOf(nextChunks, count + chunkCount - reusedAfter + 2);
+        }
+        nextStarts[count] = chunkStart;
+        nextChunks[count++] = find(text, chunkStart, hi, hash, nextByKey);
+        for (int j = reusedAfter; j < chunkCount; j++) {
+            nextStarts[count] = starts[j] + shift;
+            nextChunks[count++] = chunkList[j];
+        }
+        nextStarts[count] = n;
+
+        // the pieces of the chunks between the reused ones are replaced by those of the new chunks, in one move
+        // of the pieces after them
+        int[] nextOutputStarts = new int[nextStarts.length];
+        System.arraycopy(outputStarts, 0, nextOutputStarts, 0, reusedBefore);
+        int newAfter = count - (chunkCount - reusedAfter);
+        changed.clear();
+        int base = outputStarts[reusedBefore];
+        for (int j = reusedBefore; j < newAfter; j++) {
+            nextOutputStarts[j] = base + changed.length();
+            Chunk chunk = nextChunks[j];
+            int offset = changed.length();
+            changed.append(chunk.output);
+            for (int k = 0; k < chunk.misspelled.length; k += 2) {
+                changed.highlight(offset + chunk.misspelled[k], offset + chunk.misspelled[k + 1]);
+            }
+        }
+        document.replace(base, outputStarts[reusedAfter], changed);
+        int outputShift = base + changed.length() - outputStarts[reusedAfter];
+        for (int j = reusedAfter; j <= chunkCount; j++) {
+            nextOutputStarts[newAfter + j - reusedAfter] = outputStarts[j] + outputShift;
+        }
+
+        for (int j = 0; j < count; j++) {
+            nextByKey.put(nextChunks[j].key, nextChunks[j]);
+        }
+        // keep only the chunks of this text, so that the results do not outgrow the document
+        spare = previous;
+        previous = text;
+        previousLength = n;
+        chunkCount = count;
+        starts = nextStarts;
+        chunkList = nextChunks;
+        chunks = nextByKey;
+        outputStarts = nextOutputStarts;
+    }
+
+    /**
+     * Returns the length of the longest common suffix of {@code text[0, n)} and the last text, up to
+     * {@code limit}
+     */
+    private int commonSuffix(char[] text, int n, int limit) {
+        // compare blocks with the vectorized Arrays.mismatch, then the last block that differs a character at
+        // a time
+        int block = 1 << 10;
+        int suffix = 0;
+        while (suffix < limit) {
+            int length = Math.min(block, limit - suffix);
+            if (Arrays.mismatch(text, n - suffix - length, n - suffix,
+                    previous, previousLength - suffix - length, previousLength - suffix) >= 0) {
+                while (text[n - 1 - suffix] == previous[previousLength - 1 - suffix]) {
+                    suffix++;
+                }
+                return suffix;
+            }
+            suffix += length;
+        }
+        return suffix;
+    }
+
+    /**
+     * Returns the chunk {@code text[start, end)}, whose last characters have the rolling hash {@code hash},
+     * checking it unless the last text or this one already had the same chunk
+     */
+    private Chunk find(char[] text, int start, int end, long hash, Map<Long, Chunk> nextByKey) {
+        // chunks with the same length and last characters share a key; they are told apart by comparing them,
+        // and only the latest is kept
+        long key = hash + 0x9E3779B97F4A7C15L * (end - start);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null || !Arrays.equals(chunk.text, 0, chunk.text.length, text, start, end)) {
+            chunk = nextByKey.get(key);
+        }
+        if (chunk == null || !Arrays.equals(chunk.text, 0, chunk.text.length, text, start, end)) {
+            String plain = new String(text, start, end - start);
+            chunk = check(key, plain);
+            checkedLength += plain.length();
+            nextByKey.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Checks every word of {@code plain} and returns it as the chunk with key {@code key}
+     */
+    private Chunk check(long key, String plain) {
+        int count = checkWords(plain);
+        StringBuilder output = new StringBuilder(plain.length() + count);
+        int[] misspelled = new int[16];
+        int numMisspelled = 0;
+        for (int i = 0; i < count; i++) {
+            int tokenStart = tokenizer.tokenStart(i);
+            int tokenEnd = tokenizer.tokenEnd(i);
+            if (valid[i]) {
+                output.append(plain, tokenStart, tokenEnd);
+            } else if (tokenStart == tokenEnd) {
+                // an empty highlight has no pieces to mark, so the tags of a misspelled empty token are text
+                output.append(MISSPELLED).append(END_OF_MISSPELLED);
+            } else {
+                if (numMisspelled == misspelled.length) {
+                    misspelled = Arrays.copyOf(misspelled, 2 * numMisspelled);
+                }
+                misspelled[numMisspelled++] = output.length();
+                output.append(plain, tokenStart, tokenEnd);
+                misspelled[numMisspelled++] = output.length();
+            }
+            output.append(' ');
+        }
+        return new Chunk(key, plain.toCharArray(), output.toString(), Arrays.copyOf(misspelled, numMisspelled));
+    }
+
+    /**
+     * Checks every word of {@code text} and appends the marked-up text to {@code out}
+     */
+    private void markUp(CharSequence text, StringBuilder out) {
+        int count = checkWords(text);
+        for (int i = 0; i < count; i++) {
+            if (!valid[i]) {
+                out.append(MISSPELLED);
+                out.append(text, tokenizer.tokenStart(i), tokenizer.tokenEnd(i));
+                out.append(END_OF_MISSPELLED).append(' ');
+            } else {
+                out.append(text, tokenizer.tokenStart(i), tokenizer.tokenEnd(i));
+                out.append(" ");
+            }
+        }
+    }
+
+    /**
+     * Splits {@code text} into the tokenizer's tokens and sets {@code valid[i]} to whether token i is a known word,
+     * returning the number of tokens
+     */
+    private int checkWords(CharSequence text) {
+        // split on whitespace and normalize each word into the tokenizer's buffers, then check them all in one
+        // batch rather than word by word
+        tokenizer.tokenize(text);
+        int count = tokenizer.count();
+        if (valid.length < count) {
+            valid = new boolean[Math.max(count, 2 * valid.length)];
+        }
+        spellCheck.areValidWords(tokenizer.words(), tokenizer.wordStarts(), count, valid);
+        return count;
+    }
+
+    /**
+     * The key and plain text of a chunk, with its checked text, each word followed by a space, and the bounds
+     * {@code [misspelled[2k], misspelled[2k + 1])} of each misspelled word in the checked text
+     */
+    private static class Chunk {
+        final long key;
+        final char[] text;
+        final String output;
+        final int[] misspelled;
+
+        Chunk(long key, char[] text, String output, int[] misspelled) {
+            this.key = key;
+            this.text = text;
+            this.output = output;
+            this.misspelled = misspelled;
+        }
+    }
+}
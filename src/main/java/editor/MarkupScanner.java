@@ -0,0 +1,369 @@
+package editor;
+
+import java.util.Arrays;
+
+/**
+ * Scans the markup of the editor without regular expressions. Plain text and cleared markup are each produced
+ * in a single forward pass that treats tags exactly as the regular expressions they replace did, and clearing
+ * also records the runs of text between tags so that search does not have to scan for them again. The bounds
+ * of the body and of the last word are found from the ends of the markup, reading only the tags and text near
+ * them. A scanner reuses its buffers, so the text it returns is only valid until its next call.
+ */
+public class MarkupScanner {
+
+    private static final String PARAGRAPH = "<p>";
+    private static final String NBSP = "&nbsp;";
+    private static final String END_OF_BODY = "</body>";
+    private static final String[] HIGHLIGHTS = {"<u><font color=\"red\">", "<u><font color=\"blue\">"};
+    private static final String END_OF_HIGHLIGHT = "</font></u>";
+
+    private final StringBuilder text = new StringBuilder();
+
+    // the string being erased from the output as it is produced, as in String.replace(erased, ""), with the
+    // KMP failure function of each of its prefixes and the length of the prefix held back so far
+    private char[] erased;
+    private int[] fail;
+    private int matched;
+    private final Eraser nbsp = new Eraser(NBSP);
+    private final Eraser endOfHighlight = new Eraser(END_OF_HIGHLIGHT);
+
+    // the runs of text outside tags in the last cleared markup; run r is text[runStarts[r], runEnds[r])
+    private boolean trackRuns;
+    private int depth;
+    private int textStart;
+    private int runCount;
+    private int[] runStarts = new int[16];
+    private int[] runEnds = new int[16];
+    private boolean[] runsFollowTag = new boolean[16];
+
+    /**
+     * Returns the plain text of {@code markup}: paragraphs become spaces, and tags and non-breaking spaces are
+     * removed. The result is overwritten by the next call.
+     */
+    public CharSequence toPlainText(String markup) {
+        return toPlainText(markup, 0, markup.length());
+    }
+
+    /**
+     * Returns the plain text of {@code markup[from, to)}, read as if the rest of the markup were not there. The
+     * result is overwritten by the next call.
+     */
+    public CharSequence toPlainText(String markup, int from, int to) {
+        if (from < 0 || from > to || to > markup.length()) {
+            throw new StringIndexOutOfBoundsException("begin " + from + ", end " + to + ", length " + markup.length());
+        }
+        start(nbsp, false);
+        // the next '<', '>' and '&' at or after i, or to if there are none
+        int lt = indexOf(markup, '<', from, to);
+        int gt = indexOf(markup, '>', from, to);
+        int amp = indexOf(markup, '&', from, to);
+        // a tag is a '<', at least one other character, and the next '>'; tagStart is where the tag being read
+        // began, or -1, and tagLength how many characters it has after the '<' so far
+        int tagStart = -1;
+        int tagLength = 0;
+        int i = from;
+        while (i < to) {
+            if (tagStart < 0) {
+                if (matched == 0) {
+                    // copy the text up to whatever might begin a tag, a paragraph or an &nbsp;
+                    int j = Math.min(lt, amp);
+                    text.append(markup, i, j);
+                    i = j;
+                    if (i == to) {
+                        break;
+                    }
+                }
+                char c = markup.charAt(i);
+                if (c == '<' && startsWith(markup, i, to, PARAGRAPH)) {
+                    erase(' ');
+                    i += PARAGRAPH.length();
+                } else if (c == '<') {
+                    tagStart = i++;
+                    tagLength = 0;
+                } else {
+                    erase(c);
+                    i++;
+                }
+            } else {
+                // skip to the '>' that ends the tag, which cannot be the end of a paragraph inside it
+                int j = Math.min(lt, gt);
+                tagLength += j - i;
+                i = j;
+                if (i == to) {
+                    break;
+                }
+                if (i == lt) {
+                    tagLength++;
+                    i += startsWith(markup, i, to, PARAGRAPH) ? PARAGRAPH.length() : 1;
+                } else if (tagLength > 0) {
+                    tagStart = -1;
+                    i++;
+                } else {
+                    // "<>" is not a tag, and neither is the '>' of it
+                    erase('<');
+                    erase('>');
+                    tagStart = -1;
+                    i++;
+                }
+            }
+            lt = lt < i ? indexOf(markup, '<', i, to) : lt;
+            gt = gt < i ? indexOf(markup, '>', i, to) : gt;
+            amp = amp < i ? indexOf(markup, '&', i, to) : amp;
+        }
+        if (tagStart >= 0) {
+            // no '>' follows, so neither this '<' nor any after it begins a tag
+            for (i = tagStart; i < to; ) {
+                if (startsWith(markup, i, to, PARAGRAPH)) {
+                    erase(' ');
+                    i += PARAGRAPH.length();
+                } else {
+                    erase(markup.charAt(i++));
+                }
+            }
+        }
+        finish();
+        return text;
+    }
+
+    /**
+     * Returns {@code markup} without the underlines that spell check and search add, and records the runs of
+     * text between its tags.
+     */
+    public String clearFormatting(String markup) {
+        int n = markup.length();
+        start(endOfHighlight, true);
+        int lt = indexOf(markup, '<', 0, n);
+        int gt = indexOf(markup, '>', 0, n);
+        int i = 0;
+        while (i < n) {
+            if (matched == 0) {
+                // copy the text up to the next bracket, extending the runs of text if it is outside tags
+                int j = Math.min(lt, gt);
+                if (j > i && depth == 0) {
+                    addRun(text.length(), j - i);
+                }
+                text.append(markup, i, j);
+                i = j;
+                if (i == n) {
+                    break;
+                }
+            }
+            if (startsWith(markup, i, n, HIGHLIGHTS[0])) {
+                i += HIGHLIGHTS[0].length();
+            } else if (startsWith(markup, i, n, HIGHLIGHTS[1])) {
+                i += HIGHLIGHTS[1].length();
+            } else {
+                erase(markup.charAt(i++));
+            }
+            lt = lt < i ? indexOf(markup, '<', i, n) : lt;
+            gt = gt < i ? indexOf(markup, '>', i, n) : gt;
+        }
+        finish();
+        return text.toString();
+    }
+
+    /**
+     * Gets the number of runs of text in the markup last cleared. A run is a longest stretch of characters other
+     * than '<' and '>' that are not inside a tag, where each '<' opens one more level of tag and each '>' closes
+     * one.
+     */
+    public int runCount() {
+        return runCount;
+    }
+
+    /**
+     * Gets the index in the cleared markup of the first character of run {@code r}
+     */
+    public int runStart(int r) {
+        return runStarts[r];
+    }
+
+    /**
+     * Gets the index in the cleared markup just past the last character of run {@code r}
+     */
+    public int runEnd(int r) {
+        return runEnds[r];
+    }
+
+    /**
+     * Determines whether run {@code r} starts the markup or directly follows the '>' that ends a tag
+     */
+    public boolean runFollowsTag(int r) {
+        return runsFollowTag[r];
+    }
+
+    /**
+     * Returns the index of the last character of the body of {@code markup}, the one before the last
+     * {@code </body>}, or -2 if there is none
+     */
+    public static int bodyEnd(CharSequence markup) {
+        int m = END_OF_BODY.length();
+        for (int i = markup.length() - m; i >= 0; i--) {
+            if (markup.charAt(i) == '<' && startsWith(markup, i, markup.length(), END_OF_BODY)) {
+                return i - 1;
+            }
+        }
+        return -2;
+    }
+
+    /**
+     * Returns the index of the first character after the tags that open {@code markup}, not counting tags that
+     * reach {@code bodyEnd}
+     */
+    public static int bodyStart(CharSequence markup, int bodyEnd) {
+        int index = 0;
+        while (index < bodyEnd - 1 && markup.charAt(index) == '<') {
+            index++;
+            while (markup.charAt(index) != '>') index++;
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the larger of the index after the last space and the index after the last {@code &nbsp;} of
+     * {@code markup}, taking a missing space to end at 0 and a missing {@code &nbsp;} to end at 5. Only the
+     * markup after the last of them is read.
+     */
+    public static int lastWordStart(CharSequence markup) {
+        int m = NBSP.length();
+        for (int i = markup.length() - 1; i >= 0; i--) {
+            char c = markup.charAt(i);
+            if (c == ' ') {
+                return Math.max(i + 1, m - 1);
+            }
+            // an &nbsp; holds no space, so whichever of them ends last also starts last
+            if (c == ';' && i >= m - 1 && startsWith(markup, i - m + 1, i + 1, NBSP)) {
+                return i + 1;
+            }
+        }
+        return m - 1;
+    }
+
+    /**
+     * Empties the output and starts erasing {@code eraser}'s string from it
+     */
+    private void start(Eraser eraser, boolean trackRuns) {
+        text.setLength(0);
+        erased = eraser.chars;
+        fail = eraser.fail;
+        matched = 0;
+        this.trackRuns = trackRuns;
+        depth = 0;
+        textStart = 0;
+        runCount = 0;
+    }
+
+    /**
+     * Passes {@code c} on to the output unless it completes the string being erased, holding it back while it
+     * might
+     */
+    private void erase(char c) {
+        while (matched > 0 && erased[matched] != c) {
+            // the held back characters before the longest prefix still matched can never be erased
+            for (int i = 0; i < matched - fail[matched]; i++) {
+                emit(erased[i]);
+            }
+            matched = fail[matched];
+        }
+        if (erased[matched] == c) {
+            if (++matched == erased.length) {
+                matched = 0;
+            }
+        } else {
+            emit(c);
+        }
+    }
+
+    /**
+     * Passes on the characters still held back at the end of the input
+     */
+    private void finish() {
+        for (int i = 0; i < matched; i++) {
+            emit(erased[i]);
+        }
+        matched = 0;
+    }
+
+    /**
+     * Appends {@code c} to the output, extending the runs of text if they are tracked
+     */
+    private void emit(char c) {
+        int index = text.length();
+        text.append(c);
+        if (!trackRuns) {
+            return;
+        }
+        if (c == '<') {
+            depth++;
+        } else if (c == '>') {
+            depth--;
+            if (depth == 0) {
+                textStart = index + 1;
+            }
+        } else if (depth == 0) {
+            addRun(index, 1);
+        }
+    }
+
+    /**
+     * Adds the {@code length} characters of text at {@code index} in the output to the runs
+     */
+    private void addRun(int index, int length) {
+        if (runCount > 0 && runEnds[runCount - 1] == index) {
+            runEnds[runCount - 1] += length;
+            return;
+        }
+        if (runCount == runStarts.length) {
+            runStarts = Arrays.copyOf(runStarts, 2 * runCount);
+            runEnds = Arrays.copyOf(runEnds, 2 * runCount);
+            runsFollowTag = Arrays.copyOf(runsFollowTag, 2 * runCount);
+        }
+        runStarts[runCount] = index;
+        runEnds[runCount] = index + length;
+        runsFollowTag[runCount] = index == textStart;
+        runCount++;
+    }
+
+    /**
+     * Returns the index of the first {@code c} in {@code s[from, to)}, or {@code to} if there is none
+     */
+    private static int indexOf(String s, char c, int from, int to) {
+        int index = s.indexOf(c, from);
+        return index < 0 || index > to ? to : index;
+    }
+
+    /**
+     * Determines whether {@code s[index, end)} starts with {@code prefix}
+     */
+    private static boolean startsWith(CharSequence s, int index, int end, String prefix) {
+        if (index + prefix.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(index + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A string to erase, with the KMP failure function of each of its prefixes: the length of the longest
+     * proper prefix that is also a suffix of it
+     */
+    private static class Eraser {
+        final char[] chars;
+        final int[] fail;
+
+        Eraser(String s) {
+            chars = s.toCharArray();
+            fail = new int[chars.length + 1];
+            for (int i = 2, k = 0; i <= chars.length; i++) {
+                while (k > 0 && chars[i - 1] != chars[k]) k = fail[k];
+                if (chars[i - 1] == chars[k]) k++;
+                fail[i] = k;
+            }
+        }
+    }
+}
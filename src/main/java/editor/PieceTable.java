@@ -0,0 +1,217 @@
+package editor;
+
+import java.util.Arrays;
+
+/**
+ * A text kept as a piece table: a sequence of pieces, each a range of a String held by reference, so that
+ * replacing part of the text only splits the pieces at its ends and moves the pieces after it, whatever the
+ * length of the text. Ranges of the text can be highlighted; each call to {@link #highlight(int, int)} makes one
+ * span, which {@link #appendMarkup(StringBuilder)} wraps in the table's highlight tags. Finding a position is a
+ * binary search over the pieces, and an edit renumbers the pieces after it, so edits cost time in the number of
+ * pieces rather than characters.
+ */
+public class PieceTable {
+
+    private final String openTag;
+    private final String closeTag;
+    // piece i is sources[i][starts[i], starts[i] + lengths[i]), at offsets[i] in the text, in highlight span
+    // spans[i], or in none if spans[i] is 0
+    private String[] sources = new String[16];
+    private int[] starts = new int[16];
+    private int[] lengths = new int[16];
+    private int[] offsets = new int[17];
+    private int[] spans = new int[16];
+    private int count;
+    private int lastSpan;
+
+    /**
+     * Creates an empty PieceTable whose highlights are wrapped in {@code openTag} and {@code closeTag}
+     */
+    public PieceTable(String openTag, String closeTag) {
+        this.openTag = openTag;
+        this.closeTag = closeTag;
+    }
+
+    /**
+     * Gets the length of the text, not counting the tags of highlights
+     */
+    public int length() {
+        return offsets[count];
+    }
+
+    /**
+     * Removes all text and highlights
+     */
+    public void clear() {
+        Arrays.fill(sources, 0, count, null);
+        count = 0;
+        lastSpan = 0;
+    }
+
+    /**
+     * Adds {@code text} to the end of the text, unhighlighted and by reference rather than copied
+     */
+    public void append(String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        ensureCapacity(count + 1);
+        sources[count] = text;
+        starts[count] = 0;
+        lengths[count] = text.length();
+        spans[count] = 0;
+        count++;
+        renumber(count - 1);
+    }
+
+    /**
+     * Replaces the text {@code [start, end)} with the text and highlights of {@code text}, whose pieces are
+     * copied into this table in one move of the pieces after {@code end}
+     */
+    public void replace(int start, int end, PieceTable text) {
+        if (start < 0 || start > end || end > length()) {
+            throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+        int first = split(start);
+        int last = split(end);
+        int inserted = text.count;
+        int newCount = count - (last - first) + inserted;
+        ensureCapacity(newCount);
+        move(last, first + inserted);
+        System.arraycopy(text.sources, 0, sources, first, inserted);
+        System.arraycopy(text.starts, 0, starts, first, inserted);
+        System.arraycopy(text.lengths, 0, lengths, first, inserted);
+        for (int i = 0; i < inserted; i++) {
+            // the spans of text are numbered after this table's, so that they stay apart from its own
+            spans[first + i] = text.spans[i] == 0 ? 0 : lastSpan + text.spans[i];
+        }
+        lastSpan += text.lastSpan;
+        if (newCount < count) {
+            Arrays.fill(sources, newCount, count, null);
+        }
+        count = newCount;
+        renumber(first);
+    }
+
+    /**
+     * Highlights the text {@code [start, end)} as one span, replacing any highlights it overlaps there
+     */
+    public void highlight(int start, int end) {
+        if (start < 0 || start > end || end > length()) {
+            throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+        int first = split(start);
+        int last = split(end);
+        lastSpan++;
+        for (int i = first; i < last; i++) {
+            spans[i] = lastSpan;
+        }
+    }
+
+    /**
+     * Appends the text to {@code out} with each highlight span wrapped in the highlight tags
+     */
+    public void appendMarkup(StringBuilder out) {
+        int span = 0;
+        for (int i = 0; i < count; i++) {
+            if (spans[i] != span) {
+                if (span != 0) {
+                    out.append(closeTag);
+                }
+                if (spans[i] != 0) {
+                    out.append(openTag);
+                }
+                span = spans[i];
+            }
+            if (starts[i] == 0 && lengths[i] == sources[i].length()) {
+                // a whole String is copied at once, where a range of one is copied a character at a time
+                out.append(sources[i]);
+            } else {
+                out.append(sources[i], starts[i], starts[i] + lengths[i]);
+            }
+        }
+        if (span != 0) {
+            out.append(closeTag);
+        }
+    }
+
+    /**
+     * Returns the piece holding the character at {@code index}
+     */
+    private int pieceAt(int index) {
+        // highlights are usually made from the start of the text to the end, splitting off the last piece
+        if (offsets[count - 1] <= index) {
+            return count - 1;
+        }
+        int lo = 0;
+        int hi = count - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Splits the piece holding {@code index} so that a piece starts there, and returns that piece, or the number
+     * of pieces if {@code index} is the end of the text
+     */
+    private int split(int index) {
+        if (index == length()) {
+            return count;
+        }
+        int i = pieceAt(index);
+        int head = index - offsets[i];
+        if (head == 0) {
+            return i;
+        }
+        ensureCapacity(count + 1);
+        move(i + 1, i + 2);
+        count++;
+        sources[i + 1] = sources[i];
+        starts[i + 1] = starts[i] + head;
+        lengths[i + 1] = lengths[i] - head;
+        spans[i + 1] = spans[i];
+        lengths[i] = head;
+        renumber(i);
+        return i + 1;
+    }
+
+    /**
+     * Makes room for {@code capacity} pieces
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > sources.length) {
+            capacity = Math.max(capacity, 2 * sources.length);
+            sources = Arrays.copyOf(sources, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+            spans = Arrays.copyOf(spans, capacity);
+        }
+    }
+
+    /**
+     * Moves pieces {@code [from, count)} to start at {@code to}
+     */
+    private void move(int from, int to) {
+        int moved = count - from;
+        System.arraycopy(sources, from, sources, to, moved);
+        System.arraycopy(starts, from, starts, to, moved);
+        System.arraycopy(lengths, from, lengths, to, moved);
+        System.arraycopy(spans, from, spans, to, moved);
+    }
+
+    /**
+     * Recomputes the offsets of the pieces from {@code first} on
+     */
+    private void renumber(int first) {
+        for (int i = first; i < count; i++) {
+            offsets[i + 1] = offsets[i] + lengths[i];
+        }
+    }
+}
@@ -1,23 +1,55 @@
 package modules;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import util.Trie;
+import util.TrieNode;
 
 /**
- * Simulates an AutoComplete
+ * Simulates an AutoComplete. The completions of the prefixes looked up most recently are kept in a bounded cache
+ * that evicts the least recently used prefix once it holds too many prefixes or characters. A word added can
+ * only change the completions of its own prefixes, so adding it drops just those from the cache.
  * @author Richard Lin
  * @author Allison Zheng
  * @version 2022.10.13
  */
 public class AutoComplete implements AutoCompleteModule
 {
+    /** The number of prefixes whose completions are kept by default. */
+    static final int DEFAULT_CACHE_ENTRIES = 1 << 12;
+    /** The number of characters of prefixes and completions kept by default. */
+    static final long DEFAULT_CACHE_CHARS = 1 << 17;
+
     private Trie dict;
 
+    // the completion of each cached prefix, null if it has none, in order from least to most recently used
+    private final LinkedHashMap<String, String> cache;
+    private final int maxEntries;
+    private final long maxChars;
+    private long chars;
+    private long hits;
+    private long misses;
+    private long evictions;
+
     /**
      * Creates an AutoComplete
      */
     public AutoComplete()
+    {
+        this(DEFAULT_CACHE_ENTRIES, DEFAULT_CACHE_CHARS);
+    }
+
+    /**
+     * Creates an AutoComplete that keeps the completions of at most {@code maxEntries} prefixes, holding at most
+     * {@code maxChars} characters of prefixes and completions together
+     */
+    public AutoComplete(int maxEntries, long maxChars)
     {
         dict = new Trie();
+        cache = new LinkedHashMap<String, String>(16, 0.75f, true);
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
     }
 
     /**
@@ -28,6 +60,14 @@ public class AutoComplete implements AutoCompleteModule
     public void addWord(String word)
     {
         dict.insert(word);
+        for (int i = 0; i <= word.length() && !cache.isEmpty(); i++)
+        {
+            String prefix = word.substring(0, i);
+            if (cache.containsKey(prefix))
+            {
+                chars -= size(prefix, cache.remove(prefix));
+            }
+        }
     }
 
     /**
@@ -36,7 +76,92 @@ public class AutoComplete implements AutoCompleteModule
      */
     public String getWordForPrefix(String prefix)
     {
-        return dict.closestWordToPrefix(prefix);
+        if (prefix == null)
+        {
+            return null;
+        }
+        return complete(prefix, null);
+    }
+
+    /**
+     * Returns a session that keeps its place in the trie between prefixes, see
+     * {@link TrieAutoCompleteSession}
+     */
+    @Override
+    public TrieAutoCompleteSession newSession()
+    {
+        return new TrieAutoCompleteSession(dict, this);
+    }
+
+    /**
+     * Gets the number of completions found in the cache
+     * @return The number of hits
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Gets the number of completions that had to be searched for in the trie
+     * @return The number of misses
+     */
+    public long getMisses()
+    {
+        return misses;
     }
 
+    /**
+     * Gets the fraction of completions found in the cache
+     * @return The hit ratio, or 0 if nothing has been looked up
+     */
+    public double getHitRatio()
+    {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * Gets the number of prefixes dropped from the cache to make room for others, not counting the ones dropped
+     * because a word was added
+     * @return The number of evictions
+     */
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Returns the completion of {@code prefix}, from the cache if it is there, and otherwise by searching the
+     * trie below {@code node}, the node {@code prefix} reaches, or from the root if {@code node} is null
+     */
+    String complete(String prefix, TrieNode node)
+    {
+        String completion = cache.get(prefix);
+        if (completion != null || cache.containsKey(prefix))
+        {
+            hits++;
+            return completion;
+        }
+        misses++;
+        completion = node == null ? dict.closestWordToPrefix(prefix) : dict.closestWordFrom(node, prefix);
+        cache.put(prefix, completion);
+        chars += size(prefix, completion);
+        Iterator<Map.Entry<String, String>> eldest = cache.entrySet().iterator();
+        while (cache.size() > maxEntries || (chars > maxChars && cache.size() > 1))
+        {
+            Map.Entry<String, String> entry = eldest.next();
+            chars -= size(entry.getKey(), entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+        return completion;
+    }
+
+    /**
+     * Returns the number of characters a cache entry holds
+     */
+    private static long size(String prefix, String completion)
+    {
+        return prefix.length() + (completion == null ? 0 : completion.length());
+    }
 }
@@ -13,4 +13,13 @@ public interface AutoCompleteModule {
      * prefix.
      */
     public String getWordForPrefix(String prefix);
+
+    /**
+     * Returns a session for completing a word as it is typed, a character at a time. Modules that
+     * keep no position to resume from return a session that looks up every prefix in full.
+     */
+    public default AutoCompleteSession newSession()
+    {
+        return this::getWordForPrefix;
+    }
 }
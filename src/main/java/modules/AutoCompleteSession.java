@@ -0,0 +1,11 @@
+package modules;
+
+public interface AutoCompleteSession {
+
+    /**
+     * Returns a word of minimal length that has {@code prefix} as a (not necessarily proper)
+     * prefix, as {@link AutoCompleteModule#getWordForPrefix(String)} does. Sessions may reuse the work
+     * done for the prefix of the previous call.
+     */
+    public String getWordForPrefix(String prefix);
+}
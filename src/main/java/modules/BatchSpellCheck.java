@@ -0,0 +1,198 @@
+package modules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import util.WordTokenizer;
+
+/**
+ * Finds the misspelled words of many documents, or of one very large document, in parallel on a fork/join pool.
+ * Documents longer than two chunks are cut into chunks at the starts of words, so no word is split, and each
+ * task checks a run of whole chunks in batches through its own WordTokenizer against the one shared
+ * SpellCheckModule. The module must be safe to read from several threads, as the ones from
+ * {@link ModuleFactory#getSpellCheck(ModuleFactory.SpellCheckBackend)} are while no words are being added; a
+ * CachedSpellCheck is not.
+ */
+public class BatchSpellCheck
+{
+    /** The default number of characters checked per chunk, large enough to amortize scheduling a task. */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    private final SpellCheckModule spellCheck;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Creates a BatchSpellCheck that checks words with {@code spellCheck}, runs on {@code pool} and gives each
+     * task about {@code chunkSize} characters
+     */
+    public BatchSpellCheck(SpellCheckModule spellCheck, ForkJoinPool pool, int chunkSize)
+    {
+        this.spellCheck = spellCheck;
+        this.pool = pool;
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    /**
+     * Returns the offsets in {@code document} of the first character of each misspelled word, in order. Words
+     * are separated by whitespace and checked as the editor checks them.
+     */
+    public int[] check(CharSequence document)
+    {
+        return checkAll(List.of(document))[0];
+    }
+
+    /**
+     * Returns, for each of {@code documents}, the offsets in it of the first character of each misspelled word,
+     * in order, as {@link #check(CharSequence)} would
+     */
+    public int[][] checkAll(List<? extends CharSequence> documents)
+    {
+        // chunk c is {d, start, end}, the text documents[d][start, end), and ends[c + 1] is the total length of
+        // the chunks up to and including it
+        List<int[]> chunks = new ArrayList<int[]>();
+        long[] ends = new long[16];
+        long total = 0;
+        for (int d = 0; d < documents.size(); d++)
+        {
+            CharSequence document = documents.get(d);
+            int n = document.length();
+            int start = 0;
+            do
+            {
+                int end = n < start + 2L * chunkSize ? n : nextWordStart(document, start + chunkSize);
+                chunks.add(new int[] {d, start, end});
+                total += end - start;
+                if (chunks.size() == ends.length)
+                {
+                    ends = Arrays.copyOf(ends, 2 * ends.length);
+                }
+                ends[chunks.size()] = total;
+                start = end;
+            }
+            while (start < n);
+        }
+
+        int[][] misspelled = new int[chunks.size()][];
+        ChunkTask task = new ChunkTask(spellCheck, chunkSize, documents, chunks, ends, 0, chunks.size(), misspelled);
+        if (total <= chunkSize)
+        {
+            task.compute();
+        }
+        else
+        {
+            pool.invoke(task);
+        }
+
+        // concatenate the offsets of each document's chunks, which are in order
+        int[][] offsets = new int[documents.size()][];
+        int c = 0;
+        for (int d = 0; d < documents.size(); d++)
+        {
+            int count = 0;
+            int last = c;
+            for (; last < chunks.size() && chunks.get(last)[0] == d; last++)
+            {
+                count += misspelled[last].length;
+            }
+            offsets[d] = new int[count];
+            count = 0;
+            for (; c < last; c++)
+            {
+                System.arraycopy(misspelled[c], 0, offsets[d], count, misspelled[c].length);
+                count += misspelled[c].length;
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns the index of the first character of {@code document} at or after {@code from} that starts a word,
+     * or the length of the document if no word starts there
+     */
+    private static int nextWordStart(CharSequence document, int from)
+    {
+        int n = document.length();
+        int i = from;
+        while (i < n && !(WordTokenizer.isWhitespace(document.charAt(i - 1))
+                && !WordTokenizer.isWhitespace(document.charAt(i))))
+        {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Checks chunks {@code [firstChunk, lastChunk)}, splitting the range in half until it holds about one
+     * chunk's worth of characters
+     */
+    private static class ChunkTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final SpellCheckModule spellCheck;
+        private final int chunkSize;
+        private final List<? extends CharSequence> documents;
+        private final List<int[]> chunks;
+        private final long[] ends;
+        private final int firstChunk;
+        private final int lastChunk;
+        private final int[][] misspelled;
+
+        ChunkTask(SpellCheckModule spellCheck, int chunkSize, List<? extends CharSequence> documents,
+                List<int[]> chunks, long[] ends, int firstChunk, int lastChunk, int[][] misspelled)
+        {
+            this.spellCheck = spellCheck;
+            this.chunkSize = chunkSize;
+            this.documents = documents;
+            this.chunks = chunks;
+            this.ends = ends;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+            this.misspelled = misspelled;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (lastChunk - firstChunk > 1 && ends[lastChunk] - ends[firstChunk] > chunkSize)
+            {
+                int middle = (firstChunk + lastChunk) >>> 1;
+                invokeAll(new ChunkTask(spellCheck, chunkSize, documents, chunks, ends, firstChunk, middle, misspelled),
+                        new ChunkTask(spellCheck, chunkSize, documents, chunks, ends, middle, lastChunk, misspelled));
+                return;
+            }
+            WordTokenizer tokenizer = new WordTokenizer();
+            boolean[] valid = new boolean[0];
+            int[] found = new int[16];
+            for (int c = firstChunk; c < lastChunk; c++)
+            {
+                int[] chunk = chunks.get(c);
+                int start = chunk[1];
+                tokenizer.tokenize(documents.get(chunk[0]).subSequence(start, chunk[2]));
+                int count = tokenizer.count();
+                if (valid.length < count)
+                {
+                    valid = new boolean[Math.max(count, 2 * valid.length)];
+                }
+                spellCheck.areValidWords(tokenizer.words(), tokenizer.wordStarts(), count, valid);
+                int numFound = 0;
+                for (int i = 0; i < count; i++)
+                {
+                    // the empty token that split gives before leading whitespace is not a word
+                    if (!valid[i] && tokenizer.tokenEnd(i) > tokenizer.tokenStart(i))
+                    {
+                        if (numFound == found.length)
+                        {
+                            found = Arrays.copyOf(found, 2 * numFound);
+                        }
+                        found[numFound++] = start + tokenizer.tokenStart(i);
+                    }
+                }
+                misspelled[c] = Arrays.copyOf(found, numFound);
+            }
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package modules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Remembers the verdicts of another SpellCheckModule for the words checked most recently, since the most common
+ * words of a text make up most of it. Verdicts are kept by a 64-bit fingerprint of the word in a set-associative
+ * table of primitive arrays: a word can only be kept in the one set of WAYS entries its fingerprint selects, and
+ * when the set is full the CLOCK algorithm evicts an entry that has not been used since the set's hand last
+ * passed it. Adding a word can only make invalid words valid, so addWord keeps the valid verdicts and moves to a
+ * new epoch, in which the invalid verdicts and the suggestions of earlier epochs are no longer trusted. All
+ * changes to the words must go through this module, or be followed by a call to {@link #clear()}.
+ */
+public class CachedSpellCheck implements SpellCheckModule
+{
+    /** The number of verdicts kept by default, enough for the common words of any document. */
+    static final int DEFAULT_CAPACITY = 1 << 12;
+    /** The number of entries in each set of the table. */
+    static final int WAYS = 8;
+    /** The number of suggestion lists kept for each verdict. */
+    static final int SUGGESTION_RATIO = 16;
+
+    private static final byte VALID = 1;
+    private static final byte REFERENCED = 2;
+    private static final byte PENDING = 4;
+
+    private final SpellCheckModule spellCheck;
+
+    // entry e holds the verdict for the word with fingerprint keys[e], 0 if the entry is empty, as its VALID
+    // flag, with the REFERENCED flag set when it is used, the PENDING flag set while the batch that missed it
+    // is being checked, and the epoch it was found in
+    private final long[] keys;
+    private final byte[] flags;
+    private final int[] epochs;
+    // the entry of each set the clock hand points at
+    private final byte[] hands;
+    private final int setBits;
+
+    // the suggestions for the word and limit with fingerprint suggestionKeys[s], kept in one entry per slot
+    private final long[] suggestionKeys;
+    private final Object[] suggestionLists;
+    private final int[] suggestionEpochs;
+
+    private int epoch;
+    private long hits;
+    private long misses;
+
+    // scratch space for a batch: the words that missed, to be passed on as one batch, with their fingerprints;
+    // the miss each pending entry waits for; and the words waiting for each miss
+    private int numMisses;
+    private char[] missChars;
+    private int[] missStarts;
+    private long[] missKeys;
+    private boolean[] missValid;
+    private final int[] missOf;
+    private int numWaiting;
+    private int[] waitingWords;
+    private int[] waitingMisses;
+
+    /**
+     * Creates a CachedSpellCheck that keeps up to about {@code capacity} verdicts of {@code spellCheck}
+     */
+    CachedSpellCheck(SpellCheckModule spellCheck, int capacity)
+    {
+        this.spellCheck = spellCheck;
+        int sets = Integer.highestOneBit(Math.max(capacity / WAYS, 1));
+        setBits = Integer.numberOfTrailingZeros(sets);
+        keys = new long[sets * WAYS];
+        flags = new byte[keys.length];
+        epochs = new int[keys.length];
+        hands = new byte[sets];
+        int slots = Math.max(keys.length / SUGGESTION_RATIO, 1);
+        suggestionKeys = new long[slots];
+        suggestionLists = new Object[slots];
+        suggestionEpochs = new int[slots];
+        missChars = new char[64];
+        missStarts = new int[16];
+        missKeys = new long[16];
+        missValid = new boolean[16];
+        missOf = new int[keys.length];
+        waitingWords = new int[16];
+        waitingMisses = new int[16];
+    }
+
+    /**
+     * Adds {@code word} to the set of words that can be returned by {@link #isValidWord(String)}, forgetting
+     * the verdicts it may change
+     */
+    public void addWord(String word)
+    {
+        spellCheck.addWord(word);
+        epoch++;
+    }
+
+    /**
+     * Returns true if {@code word} has been added to the list of known words through a call to
+     * {@link #addWord(String)}.
+     */
+    public boolean isValidWord(String word)
+    {
+        long key = fingerprint(word);
+        int entry = find(key);
+        if (entry >= 0)
+        {
+            hits++;
+            return (flags[entry] & VALID) != 0;
+        }
+        misses++;
+        boolean valid = spellCheck.isValidWord(word);
+        put(key, valid ? VALID : 0);
+        return valid;
+    }
+
+    /**
+     * Sets {@code valid[i]} to whether {@code words[i]} is a known word, for every word in {@code words}. The
+     * words with no verdict kept are passed on to be checked in one batch, each only once.
+     */
+    @Override
+    public void areValidWords(String[] words, boolean[] valid)
+    {
+        List<String> missed = new ArrayList<String>();
+        numMisses = 0;
+        numWaiting = 0;
+        for (int i = 0; i < words.length; i++)
+        {
+            long key = fingerprint(words[i]);
+            if (lookup(key, i, valid))
+            {
+                missed.add(words[i]);
+            }
+        }
+        if (numMisses > 0)
+        {
+            boolean[] found = new boolean[numMisses];
+            spellCheck.areValidWords(missed.toArray(new String[0]), found);
+            resolve(found, valid);
+        }
+    }
+
+    /**
+     * Sets {@code valid[i]} to whether the word {@code chars[starts[i], starts[i + 1])} is a known word, for
+     * every {@code i < count}. The words with no verdict kept are copied back to back and passed on to be
+     * checked in one batch, each only once.
+     */
+    @Override
+    public void areValidWords(char[] chars, int[] starts, int count, boolean[] valid)
+    {
+        numMisses = 0;
+        numWaiting = 0;
+        int missLength = 0;
+        for (int i = 0; i < count; i++)
+        {
+            int start = starts[i];
+            int length = starts[i + 1] - start;
+            if (lookup(fingerprint(chars, start, length), i, valid))
+            {
+                if (missLength + length > missChars.length)
+                {
+                    missChars = Arrays.copyOf(missChars, Math.max(missLength + length, 2 * missChars.length));
+                }
+                if (numMisses >= missStarts.length)
+                {
+                    missStarts = Arrays.copyOf(missStarts, 2 * missStarts.length);
+                }
+                System.arraycopy(chars, start, missChars, missLength, length);
+                missLength += length;
+                missStarts[numMisses] = missLength;
+            }
+        }
+        if (numMisses > 0)
+        {
+            // lookup counted the miss already, so its end was written where the next miss starts
+            missStarts[0] = 0;
+            if (missValid.length < numMisses)
+            {
+                missValid = new boolean[Math.max(numMisses, 2 * missValid.length)];
+            }
+            spellCheck.areValidWords(missChars, missStarts, numMisses, missValid);
+            resolve(missValid, valid);
+        }
+    }
+
+    /**
+     * Sets {@code valid[i]} from the verdict kept for the word with fingerprint {@code key}, or, if it must be
+     * checked, arranges for it to be set by {@link #resolve(boolean[], boolean[])}. A word that is not kept is
+     * kept as pending, so that later copies of it in the batch wait for the same check.
+     * @return True if the word is new to the batch and must be passed on as the next miss
+     */
+    private boolean lookup(long key, int i, boolean[] valid)
+    {
+        int entry = find(key);
+        if (entry >= 0 && (flags[entry] & PENDING) == 0)
+        {
+            hits++;
+            valid[i] = (flags[entry] & VALID) != 0;
+            return false;
+        }
+        boolean isNew = entry < 0;
+        if (isNew)
+        {
+            misses++;
+            if (numMisses == missKeys.length)
+            {
+                missKeys = Arrays.copyOf(missKeys, 2 * numMisses);
+            }
+            missKeys[numMisses] = key;
+            entry = put(key, PENDING);
+            missOf[entry] = numMisses++;
+        }
+        else
+        {
+            hits++;
+        }
+        if (numWaiting == waitingWords.length)
+        {
+            waitingWords = Arrays.copyOf(waitingWords, 2 * numWaiting);
+            waitingMisses = Arrays.copyOf(waitingMisses, 2 * numWaiting);
+        }
+        waitingWords[numWaiting] = i;
+        waitingMisses[numWaiting++] = missOf[entry];
+        return isNew;
+    }
+
+    /**
+     * Keeps the verdicts {@code found} of the words that missed, and copies them to the words waiting for them
+     */
+    private void resolve(boolean[] found, boolean[] valid)
+    {
+        for (int m = 0; m < numMisses; m++)
+        {
+            // the pending entry may have been evicted since, in which case the verdict is not kept
+            int entry = find(missKeys[m]);
+            if (entry >= 0 && (flags[entry] & PENDING) != 0)
+            {
+                flags[entry] = (byte) ((flags[entry] & REFERENCED) | (found[m] ? VALID : 0));
+            }
+        }
+        for (int w = 0; w < numWaiting; w++)
+        {
+            valid[waitingWords[w]] = found[waitingMisses[w]];
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} known words that {@code word} may be a misspelling of, as the module this
+     * caches does. The suggestions are kept until the next word is added.
+     */
+    @Override
+    public List<String> getSuggestions(String word, int limit)
+    {
+        long key = fingerprint(word) * 31 + limit;
+        key = key == 0 ? 1 : key;
+        int slot = (int) ((mix(key) >>> 1) % suggestionKeys.length);
+        if (suggestionKeys[slot] == key && suggestionEpochs[slot] == epoch)
+        {
+            hits++;
+            @SuppressWarnings("unchecked")
+            List<String> suggestions = (List<String>) suggestionLists[slot];
+            return new ArrayList<String>(suggestions);
+        }
+        misses++;
+        List<String> suggestions = spellCheck.getSuggestions(word, limit);
+        suggestionKeys[slot] = key;
+        suggestionLists[slot] = new ArrayList<String>(suggestions);
+        suggestionEpochs[slot] = epoch;
+        return suggestions;
+    }
+
+    /**
+     * Forgets every verdict and suggestion, as must be done after the words of the module this caches are
+     * changed other than through {@link #addWord(String)}
+     */
+    public void clear()
+    {
+        Arrays.fill(keys, 0);
+        Arrays.fill(flags, (byte) 0);
+        Arrays.fill(suggestionKeys, 0);
+        Arrays.fill(suggestionLists, null);
+        epoch++;
+    }
+
+    /**
+     * Gets the number of lookups, of verdicts and of suggestions, answered from this cache
+     * @return The number of hits
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups, of verdicts and of suggestions, passed on to the module this caches
+     * @return The number of misses
+     */
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Returns the entry holding a verdict for the word with fingerprint {@code key} that can still be trusted,
+     * marking it used, or -1 if there is none
+     */
+    private int find(long key)
+    {
+        int set = set(key) * WAYS;
+        for (int e = set; e < set + WAYS; e++)
+        {
+            if (keys[e] == key)
+            {
+                if ((flags[e] & VALID) == 0 && epochs[e] != epoch)
+                {
+                    // invalid before a word was added, so it may be valid now
+                    return -1;
+                }
+                flags[e] |= REFERENCED;
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Keeps {@code flags} for the word with fingerprint {@code key}, in place of an older entry for it, an empty
+     * entry, or else the entry the set's clock hand finds unused
+     * @return The entry used
+     */
+    private int put(long key, byte flags)
+    {
+        int setIndex = set(key);
+        int set = setIndex * WAYS;
+        int entry = -1;
+        for (int e = set; e < set + WAYS && entry < 0; e++)
+        {
+            if (keys[e] == key || keys[e] == 0)
+            {
+                entry = e;
+            }
+        }
+        while (entry < 0)
+        {
+            // the hand clears the REFERENCED flag of each entry it passes, and stops at one that was not set
+            int e = set + hands[setIndex];
+            hands[setIndex] = (byte) ((hands[setIndex] + 1) % WAYS);
+            if ((this.flags[e] & REFERENCED) != 0)
+            {
+                this.flags[e] &= ~REFERENCED;
+            }
+            else
+            {
+                entry = e;
+            }
+        }
+        keys[entry] = key;
+        this.flags[entry] = flags;
+        epochs[entry] = epoch;
+        return entry;
+    }
+
+    /**
+     * Returns the set that the word with fingerprint {@code key} is kept in, chosen by the top bits of the key
+     */
+    private int set(long key)
+    {
+        return setBits == 0 ? 0 : (int) (key >>> (Long.SIZE - setBits));
+    }
+
+    /**
+     * Returns a 64-bit fingerprint of {@code word}, never 0, equal to that of the same characters in an array
+     */
+    private static long fingerprint(String word)
+    {
+        long h = word.length();
+        for (int i = 0; i < word.length(); i++)
+        {
+            h = (h ^ word.charAt(i)) * 0x9E3779B97F4A7C15L;
+        }
+        h = mix(h);
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Returns the fingerprint of the word {@code chars[start, start + length)}, as
+     * {@link #fingerprint(String)} does
+     */
+    private static long fingerprint(char[] chars, int start, int length)
+    {
+        long h = length;
+        for (int i = start; i < start + length; i++)
+        {
+            h = (h ^ chars[i]) * 0x9E3779B97F4A7C15L;
+        }
+        h = mix(h);
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Spreads the bits of {@code h} so that the top ones, which choose the set, depend on all of them
+     */
+    private static long mix(long h)
+    {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
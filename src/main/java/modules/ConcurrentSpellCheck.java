@@ -0,0 +1,44 @@
+package modules;
+
+import util.ConcurrentBloomFilter;
+
+/**
+ * Simulates a SpellCheck backed by a Bloom filter that words can be added to from several threads at once, while
+ * others check words, without taking a lock. The filter is sized for a capacity given when the module is created
+ * and does not grow, so false positives become more common once more words than that have been added.
+ */
+public class ConcurrentSpellCheck implements SpellCheckModule
+{
+    /** The number of bits of filter per word of capacity. */
+    private static final int BITS_PER_WORD = 16;
+    /** The number of bits each word sets. */
+    private static final int HASH_FUNCTIONS = 4;
+
+    private final ConcurrentBloomFilter<String> dict;
+
+    /**
+     * Creates a ConcurrentSpellCheck with room for {@code capacity} words
+     */
+    ConcurrentSpellCheck(int capacity)
+    {
+        dict = new ConcurrentBloomFilter<String>(null, Math.max(capacity, 1) * (BITS_PER_WORD / 8), HASH_FUNCTIONS);
+    }
+
+    /**
+     * Adds {@code word} to the set of words that can be returned by {@link #isValidWord(String)}. Safe to call
+     * from any number of threads at once.
+     */
+    public void addWord(String word)
+    {
+        dict.insert(word);
+    }
+
+    /**
+     * Returns true if {@code word} has been added to the list of known words through a call to
+     * {@link #addWord(String)} that completed before this one started.
+     */
+    public boolean isValidWord(String word)
+    {
+        return dict.mightContain(word);
+    }
+}
@@ -0,0 +1,81 @@
+package modules;
+
+import java.util.ArrayList;
+import java.util.List;
+import util.CuckooFilter;
+
+/**
+ * Simulates a SpellCheck backed by a cuckoo filter, which unlike a Bloom filter also allows words to be removed. Words
+ * already known are not added again, so a word sharing its fingerprint with one already added is only known until that
+ * one is removed. When the filter is full, a new one of twice its capacity is added beside it rather than rebuilding,
+ * since a filter keeps only fingerprints of its words; each extra filter adds its own false positives, so a capacity
+ * close to the number of words keeps the spell check most accurate.
+ */
+public class CuckooSpellCheck implements SpellCheckModule
+{
+    /** The number of words a CuckooSpellCheck has room for, enough for the US dictionary with some to spare. */
+    static final int DEFAULT_CAPACITY = 1 << 17;
+
+    // the newest filter, the only one with room left, is last
+    private List<CuckooFilter<String>> filters = new ArrayList<>();
+    private int capacity;
+
+    /**
+     * Creates a CuckooSpellCheck with room for {@code capacity} words before it has to grow
+     */
+    CuckooSpellCheck(int capacity)
+    {
+        this.capacity = Math.max(capacity, 1);
+        filters.add(new CuckooFilter<String>(this.capacity));
+    }
+
+    /**
+     * Adds {@code word} to the set of words that can be returned by {@link #isValidWord(String)}, unless it is
+     * already one of them.
+     */
+    public void addWord(String word)
+    {
+        if (isValidWord(word))
+        {
+            return;
+        }
+        if (!filters.get(filters.size() - 1).insert(word))
+        {
+            capacity *= 2;
+            CuckooFilter<String> grown = new CuckooFilter<String>(capacity);
+            grown.insert(word);
+            filters.add(grown);
+        }
+    }
+
+    /**
+     * Removes {@code word}, which must have been added through a call to {@link #addWord(String)}, from the set
+     * of known words.
+     */
+    public void removeWord(String word)
+    {
+        for (int i = filters.size() - 1; i >= 0; i--)
+        {
+            if (filters.get(i).delete(word))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns true if {@code word} has been added to the list of known words through a call to
+     * {@link #addWord(String)}.
+     */
+    public boolean isValidWord(String word)
+    {
+        for (int i = 0; i < filters.size(); i++)
+        {
+            if (filters.get(i).mightContain(word))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,194 @@
+package modules;
+
+/**
+ * Simulates a Search using the Boyer-Moore-Horspool algorithm, which compares the last character of the query
+ * first and skips ahead by up to the length of the query on a mismatch. It is fastest for long queries over text
+ * where most characters of the text do not appear in the query. The skip table for the most recent query is kept
+ * between calls, so searching for the same query again does not rebuild it. Case-insensitive searches use a
+ * second table indexed by case-folded characters, so neither the query nor the text is ever copied.
+ */
+public class HorspoolSearch implements SearchModule
+{
+    /** Skip tables are indexed by the low byte of a character; characters sharing it share the smallest skip. */
+    static final int TABLE_SIZE = 256;
+
+    /** The case folding of each ASCII character, to avoid the general lookup for the common case. */
+    private static final char[] ASCII_FOLD = new char[128];
+
+    static
+    {
+        for (char c = 0; c < ASCII_FOLD.length; c++)
+        {
+            ASCII_FOLD[c] = Character.toLowerCase(Character.toUpperCase(c));
+        }
+    }
+
+    private String query;
+    private int[] skip;
+    private String foldedQuery;
+    private int[] foldedSkip;
+
+    /**
+     * Creates a HorspoolSearch
+     */
+    HorspoolSearch()
+    {
+        skip = new int[TABLE_SIZE];
+        foldedSkip = new int[TABLE_SIZE];
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} or -1
+     * if the query does not appear in the target text.
+     */
+    public int find(String query, String text)
+    {
+        return find(query, text, 0, text.length());
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex)
+    {
+        return find(query, text, fromIndex, text.length());
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, optionally ignoring case and only counting whole words, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex, boolean ignoreCase, boolean wholeWord)
+    {
+        return find(query, text, fromIndex, text.length(), ignoreCase, wholeWord);
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} lying entirely within
+     * {@code text[fromIndex, toIndex)}, optionally ignoring case and only counting whole words, or -1 if there is
+     * none. Word boundaries are judged against the whole text, not the range.
+     */
+    public int find(String query, String text, int fromIndex, int toIndex, boolean ignoreCase, boolean wholeWord)
+    {
+        if (!ignoreCase || query.isEmpty())
+        {
+            for (int pos = find(query, text, fromIndex, toIndex); pos >= 0;
+                    pos = find(query, text, pos + 1, toIndex))
+            {
+                if (!wholeWord || SearchModule.isWholeWord(text, pos, query.length()))
+                {
+                    return pos;
+                }
+            }
+            return -1;
+        }
+        int m = query.length();
+        fromIndex = Math.max(fromIndex, 0);
+        toIndex = Math.min(toIndex, text.length());
+        compileFolded(query);
+        int last = m - 1;
+        char lastChar = fold(query.charAt(last));
+        int[] skip = this.foldedSkip;
+        for (int pos = fromIndex; pos <= toIndex - m; )
+        {
+            char c = fold(text.charAt(pos + last));
+            if (c == lastChar && text.regionMatches(true, pos, query, 0, last)
+                    && (!wholeWord || SearchModule.isWholeWord(text, pos, m)))
+            {
+                return pos;
+            }
+            pos += skip[c & (TABLE_SIZE - 1)];
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} lying entirely within
+     * {@code text[fromIndex, toIndex)}, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex, int toIndex)
+    {
+        int m = query.length();
+        fromIndex = Math.max(fromIndex, 0);
+        toIndex = Math.min(toIndex, text.length());
+        if (m == 0)
+        {
+            return fromIndex <= toIndex ? fromIndex : -1;
+        }
+        compile(query);
+        int last = m - 1;
+        char lastChar = query.charAt(last);
+        int[] skip = this.skip;
+        for (int pos = fromIndex; pos <= toIndex - m; )
+        {
+            char c = text.charAt(pos + last);
+            if (c == lastChar && text.regionMatches(pos, query, 0, last))
+            {
+                return pos;
+            }
+            pos += skip[c & (TABLE_SIZE - 1)];
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the skip table for {@code query}, unless it is the query the current table was built for
+     */
+    private void compile(String query)
+    {
+        if (query.equals(this.query))
+        {
+            return;
+        }
+        int m = query.length();
+        java.util.Arrays.fill(skip, m);
+        // later positions overwrite earlier ones, so each entry ends up with the smallest safe skip
+        for (int i = 0; i < m - 1; i++)
+        {
+            skip[query.charAt(i) & (TABLE_SIZE - 1)] = m - 1 - i;
+        }
+        this.query = query;
+    }
+
+    /**
+     * Builds the case-folded skip table for {@code query}, unless it is the query the current one was built for
+     */
+    private void compileFolded(String query)
+    {
+        if (query.equals(foldedQuery))
+        {
+            return;
+        }
+        int m = query.length();
+        java.util.Arrays.fill(foldedSkip, m);
+        for (int i = 0; i < m - 1; i++)
+        {
+            foldedSkip[fold(query.charAt(i)) & (TABLE_SIZE - 1)] = m - 1 - i;
+        }
+        foldedQuery = query;
+    }
+
+    /**
+     * Returns the case folding of {@code c}: two characters are equal ignoring case exactly when their foldings
+     * are equal, as in String.regionMatches
+     */
+    static char fold(char c)
+    {
+        return c < ASCII_FOLD.length ? ASCII_FOLD[c] : Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Returns the case folding of each character of {@code text}, so that the occurrences of a folded query in
+     * the result are its occurrences in the text ignoring case
+     */
+    static String fold(CharSequence text)
+    {
+        char[] folded = new char[text.length()];
+        for (int i = 0; i < folded.length; i++)
+        {
+            folded[i] = fold(text.charAt(i));
+        }
+        return new String(folded);
+    }
+}
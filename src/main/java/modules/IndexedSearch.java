@@ -0,0 +1,148 @@
+package modules;
+
+import java.util.stream.IntStream;
+import util.SuffixArray;
+
+/**
+ * Simulates a Search that indexes each text it is given with a suffix array, for when the same document is
+ * searched many times. The index of the most recent String is kept, so only the first search of a String pays
+ * for building it; later searches take O(m log n) time to find the first match, or that plus time proportional
+ * to the number of matches to find them all. The index is kept by the identity of the String rather than its
+ * contents, since comparing them would take as long as scanning the text: pass the same String to search a
+ * document again. Case-insensitive searches use a second suffix array of the case folding of the text, built on
+ * the first of them.
+ */
+public class IndexedSearch implements SearchModule
+{
+    private String text;
+    private SuffixArray index;
+    private SuffixArray foldedIndex;
+
+    /**
+     * Creates an IndexedSearch
+     */
+    IndexedSearch()
+    {
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} or -1
+     * if the query does not appear in the target text.
+     */
+    public int find(String query, String text)
+    {
+        return find(query, text, 0);
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex)
+    {
+        fromIndex = Math.max(fromIndex, 0);
+        if (fromIndex > text.length())
+        {
+            return -1;
+        }
+        if (query.isEmpty())
+        {
+            return fromIndex;
+        }
+        return indexOf(text, false).first(query, fromIndex);
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, optionally ignoring case and only counting whole words, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex, boolean ignoreCase, boolean wholeWord)
+    {
+        fromIndex = Math.max(fromIndex, 0);
+        if (query.isEmpty())
+        {
+            for (int pos = fromIndex; pos <= text.length(); pos++)
+            {
+                if (!wholeWord || SearchModule.isWholeWord(text, pos, 0))
+                {
+                    return pos;
+                }
+            }
+            return -1;
+        }
+        if (fromIndex > text.length())
+        {
+            return -1;
+        }
+        SuffixArray index = indexOf(text, ignoreCase);
+        String key = ignoreCase ? HorspoolSearch.fold(query) : query;
+        for (int pos = index.first(key, fromIndex); pos >= 0; pos = index.first(key, pos + 1))
+        {
+            if (!wholeWord || SearchModule.isWholeWord(text, pos, query.length()))
+            {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the starting locations of every occurrence of {@code query} in {@code text}, in increasing order.
+     */
+    @Override
+    public IntStream findAll(String query, String text)
+    {
+        if (query.isEmpty())
+        {
+            return IntStream.rangeClosed(0, text.length());
+        }
+        return IntStream.of(indexOf(text, false).findAll(query));
+    }
+
+    /**
+     * Returns the starting locations of every occurrence of {@code query} in {@code text}, matched as in
+     * {@link #find(String, String, int, boolean, boolean)}, in increasing order.
+     */
+    @Override
+    public IntStream findAll(String query, String text, boolean ignoreCase, boolean wholeWord)
+    {
+        IntStream matches;
+        if (query.isEmpty())
+        {
+            matches = IntStream.rangeClosed(0, text.length());
+        }
+        else
+        {
+            String key = ignoreCase ? HorspoolSearch.fold(query) : query;
+            matches = IntStream.of(indexOf(text, ignoreCase).findAll(key));
+        }
+        return wholeWord ? matches.filter(pos -> SearchModule.isWholeWord(text, pos, query.length())) : matches;
+    }
+
+    /**
+     * Gets the index of {@code text}, or of its case folding if {@code ignoreCase} is true, building it unless it
+     * was built for the String that was indexed last
+     */
+    private SuffixArray indexOf(String text, boolean ignoreCase)
+    {
+        if (text != this.text)
+        {
+            index = null;
+            foldedIndex = null;
+            this.text = text;
+        }
+        if (ignoreCase)
+        {
+            if (foldedIndex == null)
+            {
+                foldedIndex = new SuffixArray(HorspoolSearch.fold(text));
+            }
+            return foldedIndex;
+        }
+        if (index == null)
+        {
+            index = new SuffixArray(text);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,133 @@
+package modules;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Searches files for a query without reading them onto the heap. The file is memory-mapped and its raw bytes are
+ * searched with Boyer-Moore-Horspool for the UTF-8 encoding of the query, so ASCII and UTF-8 files are searched
+ * without being decoded and matches are reported as byte offsets. Files larger than one mapping are searched
+ * through a sequence of mappings that overlap by one byte less than the query.
+ */
+public class MappedFileSearch
+{
+    /** The default number of starting positions covered by each mapping. */
+    static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private final int windowSize;
+
+    /**
+     * Creates a MappedFileSearch that maps files {@code windowSize} bytes at a time
+     */
+    public MappedFileSearch(int windowSize)
+    {
+        this.windowSize = Math.max(windowSize, 1);
+    }
+
+    /**
+     * Creates a MappedFileSearch that maps files a gigabyte at a time
+     */
+    public MappedFileSearch()
+    {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Returns the byte offset of the first occurrence of {@code query} in {@code file}, or -1 if the query does
+     * not appear in the file.
+     *
+     * @throws IOException If the file cannot be read
+     */
+    public long find(String query, Path file) throws IOException
+    {
+        long[] first = {-1};
+        search(query, file, offset -> first[0] = offset, true);
+        return first[0];
+    }
+
+    /**
+     * Reports the byte offset of every occurrence of {@code query} in {@code file} to {@code handler}, including
+     * overlapping ones, in increasing order.
+     *
+     * @throws IOException If the file cannot be read
+     */
+    public void findAll(String query, Path file, LongConsumer handler) throws IOException
+    {
+        search(query, file, handler, false);
+    }
+
+    /**
+     * Maps {@code file} one window at a time and reports matches in each, stopping after the first if
+     * {@code firstOnly} is true
+     */
+    private void search(String query, Path file, LongConsumer handler, boolean firstOnly) throws IOException
+    {
+        byte[] pattern = query.getBytes(StandardCharsets.UTF_8);
+        int m = pattern.length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (m == 0)
+            {
+                for (long offset = 0; offset <= size; offset++)
+                {
+                    handler.accept(offset);
+                    if (firstOnly)
+                    {
+                        return;
+                    }
+                }
+                return;
+            }
+            int[] skip = new int[256];
+            Arrays.fill(skip, m);
+            for (int i = 0; i < m - 1; i++)
+            {
+                skip[pattern[i] & 0xFF] = m - 1 - i;
+            }
+            int last = m - 1;
+            byte lastByte = pattern[last];
+            // each window covers matches starting in [base, base + windowSize) and maps m - 1 bytes beyond that
+            for (long base = 0; base + m <= size; base += windowSize)
+            {
+                int length = (int) Math.min((long) windowSize + m - 1, size - base);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, base, length);
+                for (int pos = 0; pos <= length - m; )
+                {
+                    byte b = window.get(pos + last);
+                    if (b == lastByte && matches(window, pos, pattern))
+                    {
+                        handler.accept(base + pos);
+                        if (firstOnly)
+                        {
+                            return;
+                        }
+                    }
+                    pos += skip[b & 0xFF];
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether the bytes of {@code window} at {@code pos} begin with all but the last byte of
+     * {@code pattern}
+     */
+    private static boolean matches(MappedByteBuffer window, int pos, byte[] pattern)
+    {
+        for (int i = 0; i < pattern.length - 1; i++)
+        {
+            if (window.get(pos + i) != pattern[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,8 +1,58 @@
 package modules;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import util.BloomFilter;
+import util.PhoneticIndex;
+
 /** A factory class for creating instances of various module implementations. */
 public class ModuleFactory {
 
+    /** The data structures a spell check module can keep its known words in. */
+    public enum SpellCheckBackend {
+        /** A Bloom filter, which supports adding words at any time. */
+        BLOOM,
+        /**
+         * A Bloom filter that quickly rejects most misspellings, with an exact packed copy of the dictionary
+         * behind it to confirm the words it lets through.
+         */
+        BLOOM_EXACT,
+        /**
+         * A Bloom filter, with the words also indexed by spelling and by sound so that the module suggests
+         * corrections. For the 120,000-word US dictionary the indexes take about 38MB.
+         */
+        BLOOM_SUGGEST,
+        /** An xor filter, the most compact choice for a dictionary that is loaded once. */
+        XOR,
+        /** A cuckoo filter, for dictionaries that also need words removed. */
+        CUCKOO,
+        /**
+         * A Bloom filter that words can be added to from several threads at once, so that a dictionary is added
+         * as fast as it is read; it does not grow past its capacity.
+         */
+        CONCURRENT_BLOOM
+    }
+
+    /** The algorithms a text search module can use. */
+    public enum SearchAlgorithm {
+        /** The library's String.indexOf. */
+        INDEX_OF,
+        /** Boyer-Moore-Horspool, which skips ahead on mismatches and is fastest for long queries. */
+        HORSPOOL,
+        /** Two-Way, which is linear time with constant extra space even on repetitive text. */
+        TWO_WAY,
+        /** A suffix array built once per document, for searching the same document many times. */
+        SUFFIX_ARRAY,
+        /** Horspool on chunks of very large texts in parallel, on the common fork/join pool. */
+        PARALLEL,
+        /**
+         * A trigram index of the last document searched, for searching the same document many times; a changed
+         * document is compared with the last one in full and reindexed around the differences.
+         */
+        TRIGRAM
+    }
+
     /** Return an instance of an implementation of autocompletion module. */
     public static AutoCompleteModule getAutoComplete()
     {
@@ -15,9 +65,110 @@ public class ModuleFactory {
         return new SpellCheck();
     }
 
+    /** Return an instance of the spell check module that keeps its words in {@code backend}. */
+    public static SpellCheckModule getSpellCheck(SpellCheckBackend backend)
+    {
+        return getSpellCheck(backend, CuckooSpellCheck.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Return an instance of the spell check module that keeps its words in {@code backend}, with room for about
+     * {@code capacity} words. The cuckoo and xor backends grow past their capacity, the cuckoo one at some cost
+     * in accuracy, and the concurrent Bloom backend loses accuracy past it; the other Bloom backends size
+     * themselves and ignore it.
+     */
+    public static SpellCheckModule getSpellCheck(SpellCheckBackend backend, int capacity)
+    {
+        switch (backend)
+        {
+            case BLOOM_EXACT:
+                return new SpellCheck(true);
+            case BLOOM_SUGGEST:
+                return new SpellCheck(false, true);
+            case XOR:
+                return new XorSpellCheck(capacity);
+            case CUCKOO:
+                return new CuckooSpellCheck(capacity);
+            case CONCURRENT_BLOOM:
+                return new ConcurrentSpellCheck(capacity);
+            default:
+                return new SpellCheck();
+        }
+    }
+
+    /**
+     * Return an instance of the spell check module that knows the words saved to {@code dictionary} by
+     * {@link SpellCheck#saveDictionary(Path)}. The saved filter is memory-mapped rather than rebuilt.
+     */
+    public static SpellCheckModule getSpellCheck(Path dictionary) throws IOException
+    {
+        return new SpellCheck(BloomFilter.<String>open(dictionary));
+    }
+
+    /**
+     * Return an instance of the spell check module that knows the words saved to {@code dictionary} by
+     * {@link SpellCheck#saveDictionary(Path)} and suggests the words saved to {@code phoneticIndex} by
+     * {@link SpellCheck#savePhoneticIndex(Path)}.
+     */
+    public static SpellCheckModule getSpellCheck(Path dictionary, Path phoneticIndex) throws IOException
+    {
+        return new SpellCheck(BloomFilter.<String>open(dictionary), PhoneticIndex.read(phoneticIndex));
+    }
+
+    /**
+     * Return a spell check module that answers from a bounded cache of the verdicts and suggestions of
+     * {@code spellCheck} when it can, with room for about {@code capacity} verdicts. Words must only be added to
+     * {@code spellCheck} through the returned module.
+     */
+    public static CachedSpellCheck getCachedSpellCheck(SpellCheckModule spellCheck, int capacity)
+    {
+        return new CachedSpellCheck(spellCheck, capacity);
+    }
+
+    /** Return a spell check module that caches the verdicts and suggestions of {@code spellCheck}. */
+    public static CachedSpellCheck getCachedSpellCheck(SpellCheckModule spellCheck)
+    {
+        return new CachedSpellCheck(spellCheck, CachedSpellCheck.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Return a module that checks many documents, or very large ones, with {@code spellCheck} in parallel on the
+     * common fork/join pool
+     */
+    public static BatchSpellCheck getBatchSpellCheck(SpellCheckModule spellCheck)
+    {
+        return new BatchSpellCheck(spellCheck, ForkJoinPool.commonPool(), BatchSpellCheck.DEFAULT_CHUNK_SIZE);
+    }
+
     /** Return an instance of an implementation of text search module. */
     public static SearchModule getSearchModule()
     {
         return new Search();
     }
+
+    /** Return an instance of the text search module that uses {@code algorithm}. */
+    public static SearchModule getSearchModule(SearchAlgorithm algorithm)
+    {
+        switch (algorithm)
+        {
+            case HORSPOOL:
+                return new HorspoolSearch();
+            case TWO_WAY:
+                return new TwoWaySearch();
+            case SUFFIX_ARRAY:
+                return new IndexedSearch();
+            case PARALLEL:
+                return new ParallelSearch(ForkJoinPool.commonPool(), ParallelSearch.DEFAULT_CHUNK_SIZE);
+            case TRIGRAM:
+                return new TrigramSearch();
+            default:
+                return new Search();
+        }
+    }
+
+    /** Return an instance of the module that searches files in place through memory mappings. */
+    public static MappedFileSearch getFileSearch()
+    {
+        return new MappedFileSearch();
+    }
 }
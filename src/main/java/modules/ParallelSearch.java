@@ -0,0 +1,141 @@
+package modules;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates a Search that splits very large texts into chunks and searches them in parallel on a fork/join pool.
+ * Neighbouring chunks overlap by one character less than the query, so every occurrence lies entirely within
+ * some chunk. The leftmost occurrence is still the one returned: once a match is found, chunks that start to the
+ * right of it stop searching. Texts shorter than two chunks are searched on the calling thread.
+ */
+public class ParallelSearch implements SearchModule
+{
+    /** The default number of characters searched per chunk, large enough to amortize scheduling a task. */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    /** The number of characters a chunk searches between checks for a match further left. */
+    static final int CANCEL_CHECK_INTERVAL = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    /** Searches texts too short to split, keeping its skip tables between calls. */
+    private final HorspoolSearch search = new HorspoolSearch();
+
+    /**
+     * Creates a ParallelSearch that runs on {@code pool} and gives each task {@code chunkSize} starting positions
+     */
+    public ParallelSearch(ForkJoinPool pool, int chunkSize)
+    {
+        this.pool = pool;
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} or -1
+     * if the query does not appear in the target text.
+     */
+    public int find(String query, String text)
+    {
+        return find(query, text, 0);
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex)
+    {
+        return find(query, text, fromIndex, false, false);
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, optionally ignoring case and only counting whole words, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex, boolean ignoreCase, boolean wholeWord)
+    {
+        fromIndex = Math.max(fromIndex, 0);
+        int positions = text.length() - query.length() + 1 - fromIndex;
+        if (positions <= 0)
+        {
+            return query.isEmpty() && fromIndex <= text.length() ? fromIndex : -1;
+        }
+        if (positions < 2L * chunkSize || query.isEmpty())
+        {
+            return search.find(query, text, fromIndex, text.length(), ignoreCase, wholeWord);
+        }
+        int numChunks = (int) ((positions + (long) chunkSize - 1) / chunkSize);
+        AtomicInteger best = new AtomicInteger(Integer.MAX_VALUE);
+        pool.invoke(new ChunkTask(query, text, fromIndex, ignoreCase, wholeWord, 0, numChunks, chunkSize, best));
+        return best.get() == Integer.MAX_VALUE ? -1 : best.get();
+    }
+
+    /**
+     * Searches chunks {@code [firstChunk, lastChunk)}, splitting the range in half until one chunk is left
+     */
+    private static class ChunkTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String query;
+        private final String text;
+        private final int fromIndex;
+        private final boolean ignoreCase;
+        private final boolean wholeWord;
+        private final int firstChunk;
+        private final int lastChunk;
+        private final int chunkSize;
+    /** Searches texts too short to split, keeping its skip tables between calls. */
+    private final HorspoolSearch search = new HorspoolSearch();
+        private final AtomicInteger best;
+
+        ChunkTask(String query, String text, int fromIndex, boolean ignoreCase, boolean wholeWord, int firstChunk,
+                int lastChunk, int chunkSize, AtomicInteger best)
+        {
+            this.query = query;
+            this.text = text;
+            this.fromIndex = fromIndex;
+            this.ignoreCase = ignoreCase;
+            this.wholeWord = wholeWord;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+            this.chunkSize = chunkSize;
+            this.best = best;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (lastChunk - firstChunk > 1)
+            {
+                int middle = (firstChunk + lastChunk) >>> 1;
+                invokeAll(new ChunkTask(query, text, fromIndex, ignoreCase, wholeWord, firstChunk, middle, chunkSize,
+                                best),
+                        new ChunkTask(query, text, fromIndex, ignoreCase, wholeWord, middle, lastChunk, chunkSize,
+                                best));
+                return;
+            }
+            // matches starting in [start, end) lie within [start, end + m - 1)
+            int m = query.length();
+            long start = fromIndex + (long) firstChunk * chunkSize;
+            long end = Math.min(start + chunkSize, text.length() - m + 1L);
+            HorspoolSearch search = new HorspoolSearch();
+            for (long from = start; from < end; from += CANCEL_CHECK_INTERVAL)
+            {
+                if (from >= best.get())
+                {
+                    // a match to the left has been found, so nothing here can be the first
+                    return;
+                }
+                int to = (int) Math.min(from + CANCEL_CHECK_INTERVAL, end);
+                int index = search.find(query, text, (int) from, to + m - 1, ignoreCase, wholeWord);
+                if (index >= 0)
+                {
+                    best.accumulateAndGet(index, Math::min);
+                    return;
+                }
+            }
+        }
+    }
+}
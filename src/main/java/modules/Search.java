@@ -8,6 +8,8 @@ package modules;
  */
 public class Search implements SearchModule
 {
+    private HorspoolSearch caseFolded;
+
     /**
      * Returns the starting location of the first occurrence of {@code query} in {@code text} or -1
      * if the query does not appear in the target text.
@@ -16,4 +18,38 @@ public class Search implements SearchModule
     {
         return text.indexOf((query));
     }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex)
+    {
+        return fromIndex <= text.length() ? text.indexOf(query, fromIndex) : -1;
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, optionally ignoring case and only counting whole words, or -1 if there is none.
+     * Case-insensitive searches are handed to a HorspoolSearch with a case-folded skip table.
+     */
+    public int find(String query, String text, int fromIndex, boolean ignoreCase, boolean wholeWord)
+    {
+        if (ignoreCase)
+        {
+            if (caseFolded == null)
+            {
+                caseFolded = new HorspoolSearch();
+            }
+            return caseFolded.find(query, text, fromIndex, true, wholeWord);
+        }
+        for (int pos = find(query, text, fromIndex); pos >= 0; pos = find(query, text, pos + 1))
+        {
+            if (!wholeWord || SearchModule.isWholeWord(text, pos, query.length()))
+            {
+                return pos;
+            }
+        }
+        return -1;
+    }
 }
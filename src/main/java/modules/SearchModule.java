@@ -1,5 +1,13 @@
 package modules;
 
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+import util.AhoCorasick;
+
 public interface SearchModule {
 
     /**
@@ -7,4 +15,107 @@ public interface SearchModule {
      * if the query does not appear in the target text.
      */
     public int find(String query, String text);
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, or -1 if there is none. Implementations should override this; the default copies the
+     * rest of the text.
+     */
+    public default int find(String query, String text, int fromIndex) {
+        fromIndex = Math.max(fromIndex, 0);
+        if (fromIndex > text.length()) {
+            return -1;
+        }
+        int index = find(query, text.substring(fromIndex));
+        return index < 0 ? -1 : index + fromIndex;
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, or -1 if there is none. If {@code ignoreCase} is true, characters match regardless of
+     * case as in {@link String#regionMatches(boolean, int, String, int, int)}; if {@code wholeWord} is true, only
+     * occurrences neither preceded nor followed by a letter, digit or underscore count. Implementations should
+     * override this to search with their own structures; by default whole-word searches skip through this
+     * module's own matches, and case-insensitive searches are handed to a new {@link HorspoolSearch} with a
+     * case-folded skip table on every call.
+     */
+    public default int find(String query, String text, int fromIndex, boolean ignoreCase, boolean wholeWord) {
+        if (ignoreCase) {
+            return new HorspoolSearch().find(query, text, fromIndex, true, wholeWord);
+        }
+        for (int pos = find(query, text, fromIndex); pos >= 0; pos = find(query, text, pos + 1)) {
+            if (!wholeWord || isWholeWord(text, pos, query.length())) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if the {@code length} characters of {@code text} at {@code index} are neither preceded nor
+     * followed by a word character, that is a letter, digit or underscore.
+     */
+    public static boolean isWholeWord(String text, int index, int length) {
+        return (index == 0 || !isWordCharacter(text.charAt(index - 1)))
+                && (index + length == text.length() || !isWordCharacter(text.charAt(index + length)));
+    }
+
+    /** Returns true if {@code c} is a letter, digit or underscore. */
+    private static boolean isWordCharacter(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Returns the starting locations of every occurrence of {@code query} in {@code text}, including
+     * overlapping ones, in increasing order. Occurrences are found lazily as the stream is consumed, so a
+     * caller that stops early does not pay for searching the rest of the text.
+     */
+    public default IntStream findAll(String query, String text) {
+        return matches(query, text, false, false);
+    }
+
+    /**
+     * Returns the starting locations of every occurrence of {@code query} in {@code text}, matched as in
+     * {@link #find(String, String, int, boolean, boolean)}, lazily and in increasing order.
+     */
+    public default IntStream findAll(String query, String text, boolean ignoreCase, boolean wholeWord) {
+        return ignoreCase || wholeWord ? matches(query, text, ignoreCase, wholeWord) : findAll(query, text);
+    }
+
+    /** Streams the matches of {@code query} in {@code text} by calling find from just past each one. */
+    private IntStream matches(String query, String text, boolean ignoreCase, boolean wholeWord) {
+        Spliterator.OfInt matches =
+                new Spliterators.AbstractIntSpliterator(
+                        Long.MAX_VALUE,
+                        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL) {
+                    private int next = 0;
+
+                    @Override
+                    public boolean tryAdvance(IntConsumer action) {
+                        int index = next <= text.length() ? find(query, text, next, ignoreCase, wholeWord) : -1;
+                        if (index < 0) {
+                            next = text.length() + 1;
+                            return false;
+                        }
+                        next = index + 1;
+                        action.accept(index);
+                        return true;
+                    }
+
+                    @Override
+                    public Comparator<? super Integer> getComparator() {
+                        return null;
+                    }
+                };
+        return StreamSupport.intStream(matches, false);
+    }
+
+    /**
+     * Reports every occurrence of every query in {@code queries} within {@code text} to {@code handler}, as the
+     * index of the query and the starting location of the occurrence, in one pass over the text. To search many
+     * texts for the same queries, build an {@link AhoCorasick} once and reuse it instead.
+     */
+    public default void findAll(String[] queries, String text, AhoCorasick.MatchHandler handler) {
+        new AhoCorasick(queries).findAll(text, handler);
+    }
 }
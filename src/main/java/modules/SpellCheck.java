@@ -1,8 +1,15 @@
 package modules;
 
 import util.BloomFilter;
+import util.PackedWordSet;
+import util.PhoneticIndex;
+import util.SymmetricDeleteIndex;
 
-import java.util.Collection;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Simulates a SpellCheck
@@ -12,7 +19,21 @@ import java.util.Collection;
  */
 public class SpellCheck implements SpellCheckModule
 {
-    private BloomFilter<String> dict;
+    /** The fewest bits per word the Bloom filter of an exact SpellCheck is let down to before it is rebuilt. */
+    private static final int BITS_PER_WORD = 16;
+    /**
+     * The number of hash functions of a rebuilt Bloom filter. Every hash function of a BloomFilter offsets the
+     * same hashCode, so words whose hashCodes agree modulo the bit count collide on all of them, and more hash
+     * functions do not bring the false positive rate much below the number of words per bit.
+     */
+    private static final int HASH_FUNCTIONS = 1;
+
+    private volatile BloomFilter<String> dict;
+    private PackedWordSet exactDict;
+    private List<String> pending;
+    // null unless the SpellCheck suggests corrections
+    private SymmetricDeleteIndex suggestions;
+    private PhoneticIndex phonetic;
 
     /**
      * Creates a SpellCheck
@@ -22,12 +43,76 @@ public class SpellCheck implements SpellCheckModule
         dict = new BloomFilter<String>(null, 8888, 8);
     }
 
+    /**
+     * Creates a SpellCheck. If {@code exact} is true, every word the Bloom filter lets through is confirmed
+     * against an exact copy of the dictionary, so misspellings are never reported valid. The filter is then
+     * rebuilt whenever the dictionary outgrows it, so that it keeps rejecting most misspellings on its own.
+     */
+    SpellCheck(boolean exact)
+    {
+        this(exact, false);
+    }
+
+    /**
+     * Creates a SpellCheck, confirming words against an exact copy of the dictionary if {@code exact} is true as
+     * in {@link #SpellCheck(boolean)}. If {@code suggest} is true, every word added is also indexed by spelling
+     * and by sound for {@link #getSuggestions(String, int)}, which for a large dictionary takes several times the
+     * memory of the filter.
+     */
+    SpellCheck(boolean exact, boolean suggest)
+    {
+        this();
+        if (exact)
+        {
+            exactDict = new PackedWordSet();
+            pending = new ArrayList<String>();
+        }
+        if (suggest)
+        {
+            suggestions = new SymmetricDeleteIndex();
+            phonetic = new PhoneticIndex();
+        }
+    }
+
+    /**
+     * Creates a SpellCheck whose known words are the ones in {@code dict}. The words themselves are not in the
+     * filter, so it makes no suggestions.
+     */
+    SpellCheck(BloomFilter<String> dict)
+    {
+        this.dict = dict;
+    }
+
+    /**
+     * Creates a SpellCheck whose known words are the ones in {@code dict} and whose words for suggestions are
+     * the ones in {@code phonetic}
+     */
+    SpellCheck(BloomFilter<String> dict, PhoneticIndex phonetic)
+    {
+        this.dict = dict;
+        this.phonetic = phonetic;
+        suggestions = new SymmetricDeleteIndex();
+        for (int i = 0; i < phonetic.size(); i++)
+        {
+            suggestions.add(phonetic.word(i));
+        }
+    }
+
     /**
      * Adds {@code word} to the set of words that can be returned by {@link #isValidWord(String)}.
      */
     public void addWord(String word)
     {
         dict.insert(word);
+        if (suggestions != null)
+        {
+            suggestions.add(word);
+            phonetic.add(word);
+        }
+        if (exactDict != null)
+        {
+            pending.add(word);
+        }
     }
 
     /**
@@ -36,6 +121,149 @@ public class SpellCheck implements SpellCheckModule
      */
     public boolean isValidWord(String word)
     {
-        return dict.mightContain(word);
+        if (exactDict == null)
+        {
+            return dict.mightContain(word);
+        }
+        packPending();
+        return dict.mightContain(word) && exactDict.contains(word);
+    }
+
+    /**
+     * Sets {@code valid[i]} to whether {@code words[i]} is a known word, for every word in {@code words}. The
+     * whole batch goes through the Bloom filter at once, see {@link BloomFilter#mightContainAll(Object[],
+     * boolean[])}.
+     */
+    @Override
+    public void areValidWords(String[] words, boolean[] valid)
+    {
+        if (exactDict != null)
+        {
+            packPending();
+        }
+        dict.mightContainAll(words, valid);
+        if (exactDict != null)
+        {
+            for (int i = 0; i < words.length; i++)
+            {
+                valid[i] = valid[i] && exactDict.contains(words[i]);
+            }
+        }
+    }
+
+    /**
+     * Sets {@code valid[i]} to whether the word {@code chars[starts[i], starts[i + 1])} is a known word, for
+     * every {@code i < count}. Each word is hashed in place exactly as String.hashCode() would hash it, and the
+     * hashes go through the Bloom filter in one batch, so no word is copied into a String.
+     */
+    @Override
+    public void areValidWords(char[] chars, int[] starts, int count, boolean[] valid)
+    {
+        int[] hashCodes = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            int h = 0;
+            for (int j = starts[i]; j < starts[i + 1]; j++)
+            {
+                h = 31 * h + chars[j];
+            }
+            hashCodes[i] = h;
+        }
+        if (exactDict != null)
+        {
+            packPending();
+        }
+        dict.mightContainAll(hashCodes, count, valid);
+        if (exactDict != null)
+        {
+            CharBuffer view = CharBuffer.wrap(chars);
+            for (int i = 0; i < count; i++)
+            {
+                valid[i] = valid[i] && exactDict.contains(view, starts[i], starts[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} known words that {@code word} may be a misspelling of: first the words within
+     * two edits, closest first, then words that sound like it. The first call builds a symmetric delete index of
+     * the known words, see {@link SymmetricDeleteIndex}; the phonetic index is kept up to date as words are added.
+     * Like checks, suggestions may be asked for on several threads at once while no words are being added,
+     * though the lookups in the symmetric delete index take turns. A SpellCheck created without suggestions
+     * returns none.
+     */
+    @Override
+    public List<String> getSuggestions(String word, int limit)
+    {
+        if (suggestions == null)
+        {
+            return new ArrayList<String>();
+        }
+        List<String> found = suggestions.suggest(word, limit);
+        for (String soundAlike : phonetic.soundsLike(word, limit))
+        {
+            if (found.size() >= limit)
+            {
+                break;
+            }
+            if (!found.contains(soundAlike))
+            {
+                found.add(soundAlike);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Packs the words added since the last check into the exact dictionary, in one batch, and rebuilds the Bloom
+     * filter at twice {@link #BITS_PER_WORD} bits per word if it has fallen below that. Checks may run on
+     * several threads at once, so only one of them packs the words.
+     */
+    private synchronized void packPending()
+    {
+        if (pending.isEmpty())
+        {
+            return;
+        }
+        exactDict.addAll(pending);
+        pending.clear();
+        int size = exactDict.size();
+        if ((long) size * BITS_PER_WORD > dict.bitCount())
+        {
+            // the exact dictionary holds every word, so a filter of the right size can be filled from it
+            BloomFilter<String> resized = new BloomFilter<String>(null, size * BITS_PER_WORD / 4, HASH_FUNCTIONS);
+            for (int i = 0; i < size; i++)
+            {
+                resized.insert(exactDict.get(i));
+            }
+            dict = resized;
+        }
+    }
+
+    /**
+     * Saves the known words to {@code path} so that a later {@link ModuleFactory#getSpellCheck(Path)} can start
+     * from them without re-adding every word.
+     * @param path The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void saveDictionary(Path path) throws IOException
+    {
+        dict.writeTo(path);
+    }
+
+    /**
+     * Saves the phonetic index of the known words to {@code path} so that a later
+     * {@link ModuleFactory#getSpellCheck(Path, Path)} can suggest words without re-adding them.
+     * @param path The file to write
+     * @throws IOException If the file cannot be written
+     * @throws IllegalStateException If this SpellCheck was created without suggestions
+     */
+    public void savePhoneticIndex(Path path) throws IOException
+    {
+        if (phonetic == null)
+        {
+            throw new IllegalStateException("This spell check keeps no phonetic index.");
+        }
+        phonetic.writeTo(path);
     }
 }
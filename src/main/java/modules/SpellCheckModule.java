@@ -1,5 +1,8 @@
 package modules;
 
+import java.util.Collections;
+import java.util.List;
+
 public interface SpellCheckModule
 {
     /**
@@ -12,4 +15,38 @@ public interface SpellCheckModule
      * {@link #addWord(String)}.
      */
     public boolean isValidWord(String word);
+
+    /**
+     * Sets {@code valid[i]} to whether {@code words[i]} is a known word, for every word in {@code words}, as if
+     * by calling {@link #isValidWord(String)} on each.
+     */
+    public default void areValidWords(String[] words, boolean[] valid)
+    {
+        for (int i = 0; i < words.length; i++)
+        {
+            valid[i] = isValidWord(words[i]);
+        }
+    }
+
+    /**
+     * Sets {@code valid[i]} to whether the word {@code chars[starts[i], starts[i + 1])} is a known word, for
+     * every {@code i < count}, as if by calling {@link #isValidWord(String)} on each. Implementations should
+     * override this to check the characters in place; the default creates a String per word.
+     */
+    public default void areValidWords(char[] chars, int[] starts, int count, boolean[] valid)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            valid[i] = isValidWord(new String(chars, starts[i], starts[i + 1] - starts[i]));
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} known words that {@code word} may be a misspelling of, within two edits and
+     * closest first. Modules that do not keep the words they are given return no suggestions.
+     */
+    public default List<String> getSuggestions(String word, int limit)
+    {
+        return Collections.emptyList();
+    }
 }
@@ -0,0 +1,122 @@
+package modules;
+
+import java.util.Arrays;
+import util.HashTable;
+import util.Trie;
+import util.TrieNode;
+
+/**
+ * Completes a word as it is typed, keeping the trie nodes that each prefix of the last prefix reached and their
+ * completions. A new prefix only backs up to the longest prefix it shares with the last one and walks down from
+ * there, so typing or deleting a character costs one trie step, and only a prefix that was replaced, as when the
+ * cursor jumps to another word, is walked from the root. Deleting a character finds its completion kept, and
+ * typing one whose node the last completion goes through keeps that completion, so the words below a node are
+ * only searched when the completion changes. Everything is dropped whenever the trie changes.
+ */
+public class TrieAutoCompleteSession implements AutoCompleteSession
+{
+    private final Trie dict;
+    private final AutoComplete autoComplete;
+    private int modCount;
+
+    // the last prefix, and the nodes its first 0 to depth characters reach, with the completion of each when it
+    // is known; if depth is less than the length of the prefix, the rest of it is not in the trie
+    private final StringBuilder prefix;
+    private TrieNode[] path;
+    private String[] completions;
+    private boolean[] known;
+    private int depth;
+    private long steps;
+
+    /**
+     * Creates a TrieAutoCompleteSession that completes words from {@code dict}, the trie of {@code autoComplete},
+     * searching it through the cache of {@code autoComplete}
+     */
+    TrieAutoCompleteSession(Trie dict, AutoComplete autoComplete)
+    {
+        this.dict = dict;
+        this.autoComplete = autoComplete;
+        modCount = dict.modCount();
+        prefix = new StringBuilder();
+        path = new TrieNode[16];
+        completions = new String[path.length];
+        known = new boolean[path.length];
+        path[0] = dict.getRoot();
+    }
+
+    /**
+     * Returns a word of minimal length that has {@code prefix} as a (not necessarily proper)
+     * prefix.
+     */
+    @Override
+    public String getWordForPrefix(String prefix)
+    {
+        if (prefix == null)
+        {
+            return null;
+        }
+        if (modCount != dict.modCount())
+        {
+            // nodes may have been added or removed, so start again from the root
+            modCount = dict.modCount();
+            this.prefix.setLength(0);
+            path[0] = dict.getRoot();
+            known[0] = false;
+            depth = 0;
+        }
+        int common = 0;
+        int shared = Math.min(prefix.length(), this.prefix.length());
+        while (common < shared && prefix.charAt(common) == this.prefix.charAt(common))
+        {
+            common++;
+        }
+        this.prefix.setLength(common);
+        depth = Math.min(depth, common);
+        for (int i = common; i < prefix.length(); i++)
+        {
+            char c = prefix.charAt(i);
+            this.prefix.append(c);
+            if (depth == i)
+            {
+                HashTable<String, TrieNode> children = path[i].getChildren();
+                TrieNode child = children.get(String.valueOf(c));
+                steps++;
+                if (child != null)
+                {
+                    if (i + 1 == path.length)
+                    {
+                        path = Arrays.copyOf(path, 2 * path.length);
+                        completions = Arrays.copyOf(completions, path.length);
+                        known = Arrays.copyOf(known, path.length);
+                    }
+                    path[++depth] = child;
+                    known[depth] = false;
+                }
+            }
+        }
+        if (depth < prefix.length())
+        {
+            return null;
+        }
+        if (!known[depth])
+        {
+            // the shortest word through the last node is also the shortest, and the first found, through this
+            // one if it goes through it; otherwise the words below this node are searched, unless the cache has them
+            String last = depth > 0 && known[depth - 1] ? completions[depth - 1] : null;
+            completions[depth] = last != null && last.startsWith(prefix) ? last
+                    : autoComplete.complete(prefix, path[depth]);
+            known[depth] = true;
+        }
+        return completions[depth];
+    }
+
+    /**
+     * Gets the number of trie nodes this session has stepped to, so that it can be checked that typing a
+     * character costs one step
+     * @return The number of steps taken
+     */
+    public long getSteps()
+    {
+        return steps;
+    }
+}
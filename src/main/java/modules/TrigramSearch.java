@@ -0,0 +1,148 @@
+package modules;
+
+import java.util.stream.IntStream;
+import util.TrigramIndex;
+
+/**
+ * Simulates a Search that keeps a trigram index of the last text it searched. Searching that same text again
+ * takes time depending on the number of candidate matches rather than the length of the text. Given any other
+ * text, it compares the two from each end to find what changed and reindexes only the blocks of the index around
+ * it, which is cheaper than a rebuild but still a pass over the whole text: after an edit, a search costs about
+ * as much as a Horspool scan. Callers that know their edits can keep a {@link TrigramIndex} up to date directly.
+ * Case-insensitive searches use a second index of the case folding of the text, built on the first of them and
+ * then kept up to date in the same way.
+ */
+public class TrigramSearch implements SearchModule
+{
+    private String text;
+    private TrigramIndex index;
+    private TrigramIndex foldedIndex;
+
+    /**
+     * Creates a TrigramSearch
+     */
+    TrigramSearch()
+    {
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} or -1
+     * if the query does not appear in the target text.
+     */
+    public int find(String query, String text)
+    {
+        return find(query, text, 0);
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex)
+    {
+        if (fromIndex > text.length())
+        {
+            return -1;
+        }
+        return indexOf(text, false).find(query, fromIndex);
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, optionally ignoring case and only counting whole words, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex, boolean ignoreCase, boolean wholeWord)
+    {
+        if (fromIndex > text.length())
+        {
+            return -1;
+        }
+        TrigramIndex index = indexOf(text, ignoreCase);
+        String key = ignoreCase ? HorspoolSearch.fold(query) : query;
+        for (int pos = index.find(key, fromIndex); pos >= 0; pos = index.find(key, pos + 1))
+        {
+            if (!wholeWord || SearchModule.isWholeWord(text, pos, query.length()))
+            {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the starting locations of every occurrence of {@code query} in {@code text}, in increasing order.
+     */
+    @Override
+    public IntStream findAll(String query, String text)
+    {
+        if (query.length() < 3)
+        {
+            return SearchModule.super.findAll(query, text);
+        }
+        return IntStream.of(indexOf(text, false).findAll(query));
+    }
+
+    /**
+     * Returns the starting locations of every occurrence of {@code query} in {@code text}, matched as in
+     * {@link #find(String, String, int, boolean, boolean)}, in increasing order.
+     */
+    @Override
+    public IntStream findAll(String query, String text, boolean ignoreCase, boolean wholeWord)
+    {
+        if (query.length() < 3)
+        {
+            return SearchModule.super.findAll(query, text, ignoreCase, wholeWord);
+        }
+        String key = ignoreCase ? HorspoolSearch.fold(query) : query;
+        IntStream matches = IntStream.of(indexOf(text, ignoreCase).findAll(key));
+        return wholeWord ? matches.filter(pos -> SearchModule.isWholeWord(text, pos, query.length())) : matches;
+    }
+
+    /**
+     * Gets the index of {@code text}, or of its case folding if {@code ignoreCase} is true, updating the indexes
+     * of the previous text to match it
+     */
+    private TrigramIndex indexOf(String text, boolean ignoreCase)
+    {
+        if (text != this.text && this.text != null)
+        {
+            // everything outside the longest common prefix and suffix of the two texts was edited
+            String old = this.text;
+            int limit = Math.min(old.length(), text.length());
+            int prefix = 0;
+            while (prefix < limit && old.charAt(prefix) == text.charAt(prefix))
+            {
+                prefix++;
+            }
+            int suffix = 0;
+            while (suffix < limit - prefix
+                    && old.charAt(old.length() - 1 - suffix) == text.charAt(text.length() - 1 - suffix))
+            {
+                suffix++;
+            }
+            CharSequence replacement = text.subSequence(prefix, text.length() - suffix);
+            if (index != null)
+            {
+                index.replace(prefix, old.length() - suffix, replacement);
+            }
+            if (foldedIndex != null)
+            {
+                foldedIndex.replace(prefix, old.length() - suffix, HorspoolSearch.fold(replacement));
+            }
+        }
+        this.text = text;
+        if (ignoreCase)
+        {
+            if (foldedIndex == null)
+            {
+                foldedIndex = new TrigramIndex(HorspoolSearch.fold(text));
+            }
+            return foldedIndex;
+        }
+        if (index == null)
+        {
+            index = new TrigramIndex(text);
+        }
+        return index;
+    }
+}
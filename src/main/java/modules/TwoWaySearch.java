@@ -0,0 +1,244 @@
+package modules;
+
+/**
+ * Simulates a Search using the Two-Way algorithm of Crochemore and Perrin. The query is split at a critical
+ * position; the right part is matched left to right and the left part right to left, and the period of the query
+ * bounds how far the search can skip ahead. Every search takes time linear in the length of the text, even on
+ * repetitive inputs that make a naive search quadratic, and uses no memory beyond a few integers. The
+ * factorization of the most recent query is kept between calls. Case-insensitive searches factor the case folding
+ * of the query and fold the text as they read it, so they take linear time too.
+ */
+public class TwoWaySearch implements SearchModule
+{
+    private String query;
+    private boolean ignoreCase;
+    /** The query, or its case folding if it was compiled to ignore case. */
+    private String pattern;
+    private int critical;
+    private int period;
+    private boolean periodic;
+    /** The position before the maximal suffix found by the last call to {@link #maximalSuffixPeriod}. */
+    private int maximalSuffix;
+
+    /**
+     * Creates a TwoWaySearch
+     */
+    TwoWaySearch()
+    {
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} or -1
+     * if the query does not appear in the target text.
+     */
+    public int find(String query, String text)
+    {
+        return find(query, text, 0, text.length());
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex)
+    {
+        return find(query, text, fromIndex, text.length());
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} in {@code text} at or after
+     * {@code fromIndex}, optionally ignoring case and only counting whole words, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex, boolean ignoreCase, boolean wholeWord)
+    {
+        for (int pos = find(query, text, fromIndex, text.length(), ignoreCase); pos >= 0;
+                pos = find(query, text, pos + 1, text.length(), ignoreCase))
+        {
+            if (!wholeWord || SearchModule.isWholeWord(text, pos, query.length()))
+            {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} lying entirely within
+     * {@code text[fromIndex, toIndex)}, or -1 if there is none.
+     */
+    public int find(String query, String text, int fromIndex, int toIndex)
+    {
+        return find(query, text, fromIndex, toIndex, false);
+    }
+
+    /**
+     * Returns the starting location of the first occurrence of {@code query} lying entirely within
+     * {@code text[fromIndex, toIndex)}, ignoring case if {@code ignoreCase} is true, or -1 if there is none.
+     */
+    private int find(String query, String text, int fromIndex, int toIndex, boolean ignoreCase)
+    {
+        int m = query.length();
+        fromIndex = Math.max(fromIndex, 0);
+        toIndex = Math.min(toIndex, text.length());
+        if (m == 0)
+        {
+            return fromIndex <= toIndex ? fromIndex : -1;
+        }
+        compile(query, ignoreCase);
+        String pattern = this.pattern;
+        int suffix = critical;
+        if (periodic)
+        {
+            // the left part repeats in the right part, so after a full match of the right part the first
+            // m - period characters of the next window are known to match already
+            int memory = 0;
+            for (int j = fromIndex; j <= toIndex - m; )
+            {
+                int i = Math.max(suffix, memory);
+                while (i < m && pattern.charAt(i) == charAt(text, i + j, ignoreCase))
+                {
+                    i++;
+                }
+                if (i >= m)
+                {
+                    i = suffix - 1;
+                    while (memory <= i && pattern.charAt(i) == charAt(text, i + j, ignoreCase))
+                    {
+                        i--;
+                    }
+                    if (i < memory)
+                    {
+                        return j;
+                    }
+                    j += period;
+                    memory = m - period;
+                }
+                else
+                {
+                    j += i - suffix + 1;
+                    memory = 0;
+                }
+            }
+        }
+        else
+        {
+            for (int j = fromIndex; j <= toIndex - m; )
+            {
+                int i = suffix;
+                while (i < m && pattern.charAt(i) == charAt(text, i + j, ignoreCase))
+                {
+                    i++;
+                }
+                if (i >= m)
+                {
+                    i = suffix - 1;
+                    while (i >= 0 && pattern.charAt(i) == charAt(text, i + j, ignoreCase))
+                    {
+                        i--;
+                    }
+                    if (i < 0)
+                    {
+                        return j;
+                    }
+                    j += period;
+                }
+                else
+                {
+                    j += i - suffix + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the character of {@code text} at {@code index}, case-folded if {@code ignoreCase} is true
+     */
+    private static char charAt(String text, int index, boolean ignoreCase)
+    {
+        char c = text.charAt(index);
+        return ignoreCase ? HorspoolSearch.fold(c) : c;
+    }
+
+    /**
+     * Computes the critical factorization and period of {@code query}, or of its case folding if
+     * {@code ignoreCase} is true, unless that is what they were last computed for
+     */
+    private void compile(String query, boolean ignoreCase)
+    {
+        if (query.equals(this.query) && ignoreCase == this.ignoreCase)
+        {
+            return;
+        }
+        String pattern = ignoreCase ? HorspoolSearch.fold(query) : query;
+        int m = pattern.length();
+        // the critical position is the later of the starts of the maximal suffixes under the two orderings
+        int forwardPeriod = maximalSuffixPeriod(pattern, false);
+        int forward = maximalSuffix;
+        int reversePeriod = maximalSuffixPeriod(pattern, true);
+        int reverse = maximalSuffix;
+        if (reverse < forward)
+        {
+            critical = forward + 1;
+            period = forwardPeriod;
+        }
+        else
+        {
+            critical = reverse + 1;
+            period = reversePeriod;
+        }
+        periodic = critical + period <= m && pattern.regionMatches(0, pattern, period, critical);
+        if (!periodic)
+        {
+            period = Math.max(critical, m - critical) + 1;
+        }
+        this.query = query;
+        this.ignoreCase = ignoreCase;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Finds the lexicographically maximal suffix of {@code query}, under the reversed character order if
+     * {@code reversed} is true. Stores the position just before it in {@link #maximalSuffix} and returns its
+     * period.
+     */
+    private int maximalSuffixPeriod(String query, boolean reversed)
+    {
+        int m = query.length();
+        int maxSuffix = -1;
+        int j = 0;
+        int k = 1;
+        int p = 1;
+        while (j + k < m)
+        {
+            char a = query.charAt(j + k);
+            char b = query.charAt(maxSuffix + k);
+            if (reversed ? b < a : a < b)
+            {
+                j += k;
+                k = 1;
+                p = j - maxSuffix;
+            }
+            else if (a == b)
+            {
+                if (k != p)
+                {
+                    k++;
+                }
+                else
+                {
+                    j += p;
+                    k = 1;
+                }
+            }
+            else
+            {
+                maxSuffix = j++;
+                k = 1;
+                p = 1;
+            }
+        }
+        maximalSuffix = maxSuffix;
+        return p;
+    }
+}
@@ -0,0 +1,103 @@
+package modules;
+
+import java.util.Arrays;
+import util.HashTable;
+import util.XorFilter;
+
+/**
+ * Simulates a SpellCheck for a dictionary that is loaded once, backed by an xor filter. Words are collected
+ * until the first call to {@link #isValidWord(String)}, which builds the filter; words added after that are kept
+ * in a small exact table beside it, and once more than an eighth as many words as the filter holds have been
+ * added the filter is rebuilt with them. The hash codes of the words are kept for that rebuild, at 32 bits a word.
+ * Words may be checked from several threads at once while none are added.
+ */
+public class XorSpellCheck implements SpellCheckModule
+{
+    /** The fewest words added after the filter is built that cause it to be rebuilt. */
+    static final int MIN_REBUILD = 1 << 10;
+
+    private volatile XorFilter<String> dict;
+    private int[] keys;
+    private int numKeys;
+    private HashTable<String, Boolean> added;
+
+    /**
+     * Creates an XorSpellCheck
+     */
+    XorSpellCheck()
+    {
+        this(1024);
+    }
+
+    /**
+     * Creates an XorSpellCheck with room to collect {@code capacity} words before it has to grow
+     */
+    XorSpellCheck(int capacity)
+    {
+        keys = new int[Math.max(capacity, 16)];
+        added = new HashTable<String, Boolean>(16);
+    }
+
+    /**
+     * Builds the filter from the words collected so far, unless another thread checking at the same time has
+     * already built it
+     * @return The filter
+     */
+    private synchronized XorFilter<String> build()
+    {
+        if (dict == null)
+        {
+            dict = new XorFilter<String>(keys, numKeys);
+            // the filter sorts the keys in place and moves one of each distinct key to the front
+            numKeys = dict.size();
+        }
+        return dict;
+    }
+
+    /**
+     * Adds {@code word} to the set of words that can be returned by {@link #isValidWord(String)}.
+     */
+    public void addWord(String word)
+    {
+        XorFilter<String> dict = this.dict;
+        if (dict != null && !added.isEmpty() && added.containsKey(word))
+        {
+            return;
+        }
+        if (numKeys == keys.length)
+        {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[numKeys++] = word.hashCode();
+        if (dict == null)
+        {
+            return;
+        }
+        // a word the filter seems to know may be a false positive, so its hash is kept for the rebuild either way
+        if (!dict.mightContain(word))
+        {
+            added.put(word, Boolean.TRUE);
+        }
+        if (numKeys - dict.size() > Math.max(MIN_REBUILD, dict.size() / 8))
+        {
+            // the new filter knows the added words before the table of them is dropped
+            this.dict = new XorFilter<String>(keys, numKeys);
+            numKeys = this.dict.size();
+            added = new HashTable<String, Boolean>(16);
+        }
+    }
+
+    /**
+     * Returns true if {@code word} has been added to the list of known words through a call to
+     * {@link #addWord(String)}.
+     */
+    public boolean isValidWord(String word)
+    {
+        XorFilter<String> dict = this.dict;
+        if (dict == null)
+        {
+            dict = build();
+        }
+        return dict.mightContain(word) || (!added.isEmpty() && added.containsKey(word));
+    }
+}
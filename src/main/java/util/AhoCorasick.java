@@ -0,0 +1,170 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Represents a set of patterns compiled into an Aho-Corasick automaton, which finds every occurrence of every
+ * pattern in a text in a single pass. The automaton is a complete transition table over the characters that
+ * appear in the patterns, stored with its failure and output links in flat int arrays, so scanning a text does
+ * one array lookup per character.
+ */
+public class AhoCorasick
+{
+    /**
+     * Receives the matches found by {@link #findAll(CharSequence, MatchHandler)}
+     */
+    public interface MatchHandler
+    {
+        /**
+         * Called for each occurrence of pattern number {@code pattern} starting at {@code offset} in the text
+         */
+        void match(int pattern, int offset);
+    }
+
+    int[] charClass;
+    int numClasses;
+    int[] delta;
+    int numStates;
+    int[] output;
+    int[] outputLink;
+    int[] nextSamePattern;
+    int[] patternLength;
+
+    /**
+     * Compiles an automaton that finds every pattern in {@code patterns}. Empty patterns never match.
+     *
+     * @param patterns The patterns to search for, identified in matches by their index in this array
+     */
+    public AhoCorasick(String[] patterns)
+    {
+        // number the characters used by the patterns 1..numClasses-1; every other character is class 0
+        int maxChar = 0;
+        int totalLength = 0;
+        for (String pattern : patterns)
+        {
+            totalLength += pattern.length();
+            for (int i = 0; i < pattern.length(); i++)
+            {
+                maxChar = Math.max(maxChar, pattern.charAt(i));
+            }
+        }
+        charClass = new int[maxChar + 1];
+        numClasses = 1;
+        for (String pattern : patterns)
+        {
+            for (int i = 0; i < pattern.length(); i++)
+            {
+                if (charClass[pattern.charAt(i)] == 0)
+                {
+                    charClass[pattern.charAt(i)] = numClasses++;
+                }
+            }
+        }
+
+        // build the trie; state 0 is the root and is never a child, so 0 also means "no child" here
+        delta = new int[(totalLength + 1) * numClasses];
+        output = new int[totalLength + 1];
+        Arrays.fill(output, -1);
+        nextSamePattern = new int[patterns.length];
+        patternLength = new int[patterns.length];
+        numStates = 1;
+        for (int p = 0; p < patterns.length; p++)
+        {
+            String pattern = patterns[p];
+            patternLength[p] = pattern.length();
+            nextSamePattern[p] = -1;
+            if (pattern.isEmpty())
+            {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++)
+            {
+                int edge = state * numClasses + charClass[pattern.charAt(i)];
+                if (delta[edge] == 0)
+                {
+                    delta[edge] = numStates++;
+                }
+                state = delta[edge];
+            }
+            nextSamePattern[p] = output[state];
+            output[state] = p;
+        }
+        delta = Arrays.copyOf(delta, numStates * numClasses);
+        output = Arrays.copyOf(output, numStates);
+
+        // in breadth-first order, point each state at the longest proper suffix of it that is also a state, and
+        // fill in every missing transition with the one that suffix would take
+        int[] fail = new int[numStates];
+        outputLink = new int[numStates];
+        Arrays.fill(outputLink, -1);
+        int[] queue = new int[numStates];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = 0;
+        while (head < tail)
+        {
+            int state = queue[head++];
+            for (int c = 0; c < numClasses; c++)
+            {
+                int edge = state * numClasses + c;
+                int child = delta[edge];
+                if (state == 0)
+                {
+                    if (child != 0)
+                    {
+                        fail[child] = 0;
+                        queue[tail++] = child;
+                    }
+                }
+                else if (child != 0 && c != 0)
+                {
+                    int suffix = delta[fail[state] * numClasses + c];
+                    fail[child] = suffix;
+                    outputLink[child] = output[suffix] >= 0 ? suffix : outputLink[suffix];
+                    queue[tail++] = child;
+                }
+                else
+                {
+                    delta[edge] = delta[fail[state] * numClasses + c];
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports every occurrence of every pattern in {@code text} to {@code handler}, in order of the position
+     * where the occurrence ends.
+     *
+     * @param text The text to search
+     * @param handler The handler to report each match to
+     */
+    public void findAll(CharSequence text, MatchHandler handler)
+    {
+        int[] charClass = this.charClass;
+        int[] delta = this.delta;
+        int numClasses = this.numClasses;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++)
+        {
+            char ch = text.charAt(i);
+            state = delta[state * numClasses + (ch < charClass.length ? charClass[ch] : 0)];
+            for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s])
+            {
+                for (int p = output[s]; p >= 0; p = nextSamePattern[p])
+                {
+                    handler.match(p, i - patternLength[p] + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of states of this automaton
+     * @return The number of states of this automaton
+     */
+    public int numStates()
+    {
+        return numStates;
+    }
+}
@@ -1,5 +1,11 @@
 package util;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 
 /**
@@ -11,9 +17,15 @@ import java.util.Collection;
  */
 public class BloomFilter<E>
 {
-    byte[] bits;
+    /** Identifies a file written by {@link #writeTo(Path)}; the ASCII bytes "BLMF". */
+    static final int MAGIC = 0x424C4D46;
+    /** Version of the on-disk format, bumped whenever the layout below changes. */
+    static final int VERSION = 1;
+
+    ByteBuffer bits;
     int[] hashAddends;
     int numHashFunctions;
+    long numElements;
 
     /**
      * Create a new Bloom filter with {@code elems} inside. The bit array is of length 8 * numBytes.
@@ -25,13 +37,13 @@ public class BloomFilter<E>
      */
     public BloomFilter(Collection<E> elems, int numBytes, int numHashFunctions)
     {
-        bits = new byte[numBytes];
+        bits = ByteBuffer.wrap(new byte[numBytes]);
         this.numHashFunctions = numHashFunctions > 0 ? numHashFunctions : 1;
         this.hashAddends = new int[numHashFunctions];
         hashAddends[0] = 0;
         for (int i = 1; i < hashAddends.length; i++)
         {
-            hashAddends[i] = (int) (Math.random() * (bits.length * 8 - 1) + 1);
+            hashAddends[i] = (int) (Math.random() * (bits.capacity() * 8 - 1) + 1);
         }
         if (elems != null)
         {
@@ -43,32 +55,62 @@ public class BloomFilter<E>
 
     }
 
+    /**
+     * Create a Bloom filter over an existing bit array, as read back by {@link #open(Path)}.
+     */
+    private BloomFilter(ByteBuffer bits, int[] hashAddends, long numElements)
+    {
+        this.bits = bits;
+        this.hashAddends = hashAddends;
+        this.numHashFunctions = hashAddends.length;
+        this.numElements = numElements;
+    }
+
     /**
      * Calculates the modular hash for k given m
      * @param k The number to be hashed
      * @param m The number to mod with
-     * @return
+     * @return The non-negative remainder of k modulo m
      */
     public int hash(int k, int m)
     {
         return k % m >= 0 ? k % m : (k % m) * -1;
     }
 
+    /**
+     * Calculates the same hash as {@link #hash(int, int)} without dividing, given {@code magic}, which must be
+     * ceil(2^64 / m). This is Lemire's "fastmod": the low 64 bits of magic * |k| are the fractional part of
+     * |k| / m, and multiplying that by m gives the remainder, exactly for every 32-bit k and m.
+     */
+    static int hash(int k, int m, long magic)
+    {
+        long fraction = magic * Math.abs((long) k);
+        // the high 64 bits of the unsigned product fraction * m
+        return (int) (Math.multiplyHigh(fraction, m) + ((fraction >> 63) & m));
+    }
+
     /**
      * Add {@code elem} to the Bloom filter.
      */
     public void insert(E elem)
     {
+        if (bits.isReadOnly())
+        {
+            // the first insert into a mapped filter copies its bits onto the heap, leaving the file untouched
+            ByteBuffer copy = ByteBuffer.allocate(bits.capacity());
+            copy.put(bits.duplicate().clear());
+            bits = copy;
+        }
         int hashedElem = elem.hashCode();
         for (int i = 0; i < numHashFunctions; i++)
         {
-            hashedElem = hash(hashedElem + hashAddends[i], bits.length * 8);
+            hashedElem = hash(hashedElem + hashAddends[i], bits.capacity() * 8);
             int arrIndex = hashedElem / 8;
             int bitIndex = hashedElem % 8;
             int bitShift = 7 - bitIndex;
-            byte newByte = bits[arrIndex] |= (1 << bitShift);
-            bits[arrIndex] = newByte;
+            bits.put(arrIndex, (byte) (bits.get(arrIndex) | (1 << bitShift)));
         }
+        numElements++;
     }
 
     /**
@@ -79,11 +121,11 @@ public class BloomFilter<E>
         int hashedElem = elem.hashCode();
         for (int i = 0; i < numHashFunctions; i++)
         {
-            hashedElem = hash(hashedElem + hashAddends[i], bits.length * 8);
+            hashedElem = hash(hashedElem + hashAddends[i], bits.capacity() * 8);
             int arrIndex = hashedElem / 8;
             int bitIndex = hashedElem % 8;
             int bitShift = 7 - bitIndex;
-            int value = (bits[arrIndex] >>> bitShift) & 1;
+            int value = (bits.get(arrIndex) >>> bitShift) & 1;
             if (value == 0)
             {
                 return false;
@@ -91,4 +133,155 @@ public class BloomFilter<E>
         }
         return true;
     }
+
+    /**
+     * Check whether each of {@code elems} might be in the collection, setting {@code out[i]} to the result for
+     * {@code elems[i]}. Equivalent to calling {@link #mightContain(Object)} on each element, but faster on large
+     * batches: all elements are hashed first, then each hash function is applied to the whole batch in one
+     * branch-free loop, so the memory loads for different elements overlap instead of waiting on each other.
+     *
+     * @param elems The elements to check
+     * @param out The array to store the results in, at least as long as {@code elems}
+     */
+    public void mightContainAll(E[] elems, boolean[] out)
+    {
+        int[] hashCodes = new int[elems.length];
+        for (int i = 0; i < elems.length; i++)
+        {
+            hashCodes[i] = elems[i].hashCode();
+        }
+        mightContainAll(hashCodes, elems.length, out);
+    }
+
+    /**
+     * Check whether each of the elements whose hash codes are the first {@code count} entries of
+     * {@code hashCodes} might be in the collection, as in {@link #mightContainAll(Object[], boolean[])}. The
+     * hash code array is reused as scratch space and is overwritten.
+     *
+     * @param hashCodes The hash codes of the elements to check
+     * @param count The number of elements to check
+     * @param out The array to store the results in
+     */
+    public void mightContainAll(int[] hashCodes, int count, boolean[] out)
+    {
+        int numBits = bits.capacity() * 8;
+        // ceil(2^64 / numBits), for computing remainders by multiplication instead of division
+        long magic = Long.divideUnsigned(-1L, numBits) + 1;
+        for (int i = 0; i < count; i++)
+        {
+            out[i] = true;
+        }
+        for (int k = 0; k < numHashFunctions; k++)
+        {
+            int addend = hashAddends[k];
+            for (int i = 0; i < count; i++)
+            {
+                int hashedElem = hash(hashCodes[i] + addend, numBits, magic);
+                hashCodes[i] = hashedElem;
+                out[i] &= ((bits.get(hashedElem >>> 3) >>> (7 - (hashedElem & 7))) & 1) != 0;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of insertions made into this Bloom filter, including repeated ones
+     * @return The number of insertions made into this Bloom filter
+     */
+    public long getNumElements()
+    {
+        return numElements;
+    }
+
+    /**
+     * Gets the number of bits in the bit array of this Bloom filter
+     * @return The number of bits in the bit array of this Bloom filter
+     */
+    public long bitCount()
+    {
+        return 8L * bits.capacity();
+    }
+
+    /**
+     * Saves this Bloom filter to {@code path} so that it can be reopened with {@link #open(Path)}. The file is a
+     * big-endian header (magic, version, bit count, hash count, hash addends, element count) followed by the bit
+     * array, byte for byte. Only elements whose hashCode() is the same in every process, such as Strings, can be
+     * tested against a filter that was saved by another process.
+     *
+     * @param path The file to write, replaced if it already exists
+     * @throws IOException If the file cannot be written
+     */
+    public void writeTo(Path path) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(headerLength(numHashFunctions));
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong((long) bits.capacity() * 8);
+        header.putInt(numHashFunctions);
+        for (int addend : hashAddends)
+        {
+            header.putInt(addend);
+        }
+        header.putLong(numElements);
+        header.flip();
+        ByteBuffer body = bits.duplicate();
+        body.clear();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (header.hasRemaining() || body.hasRemaining())
+            {
+                channel.write(new ByteBuffer[] {header, body});
+            }
+        }
+    }
+
+    /**
+     * Opens a Bloom filter saved by {@link #writeTo(Path)} without copying its bits onto the heap. The bit array
+     * is a read-only memory mapping of the file, so pages are loaded lazily and shared with every other process
+     * that maps the same file. The first insert copies the bits onto the heap; inserts never modify the file.
+     *
+     * @param path The file to open
+     * @return The Bloom filter stored in {@code path}
+     * @throws IOException If the file cannot be read, is not a Bloom filter of a supported version, or has more
+     * bits than an int can index
+     */
+    public static <E> BloomFilter<E> open(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (file.remaining() < headerLength(0) || file.getInt() != MAGIC)
+            {
+                throw new IOException(path + " is not a Bloom filter file.");
+            }
+            int version = file.getInt();
+            if (version != VERSION)
+            {
+                throw new IOException("Unsupported Bloom filter file version " + version + ".");
+            }
+            long numBits = file.getLong();
+            int numHashFunctions = file.getInt();
+            // probes index the bits with ints, so a larger filter cannot be used even if it can be mapped
+            if (numBits <= 0 || numBits % 8 != 0 || numBits > Integer.MAX_VALUE || numHashFunctions <= 0
+                    || file.capacity() != headerLength(numHashFunctions) + numBits / 8)
+            {
+                throw new IOException(path + " is truncated or corrupt.");
+            }
+            int[] hashAddends = new int[numHashFunctions];
+            for (int i = 0; i < numHashFunctions; i++)
+            {
+                hashAddends[i] = file.getInt();
+            }
+            long numElements = file.getLong();
+            return new BloomFilter<E>(file.slice(), hashAddends, numElements);
+        }
+    }
+
+    /**
+     * Calculates the length in bytes of the file header for a filter with the given number of hash functions
+     */
+    private static int headerLength(int numHashFunctions)
+    {
+        return 4 + 4 + 8 + 4 + 4 * numHashFunctions + 8;
+    }
 }
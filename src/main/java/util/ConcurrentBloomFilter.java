@@ -0,0 +1,96 @@
+package util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+
+/**
+ * Represents a thread-safe collection of elements of type E for which the only operation is a probabilistic
+ * membership test. Bits are stored in 64-bit words that are set with an atomic OR, so concurrent inserts never
+ * lose each other's updates and no lock is ever taken. Membership tests are wait-free.
+ */
+public class ConcurrentBloomFilter<E>
+{
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    long[] words;
+    int numBits;
+    int[] hashAddends;
+    int numHashFunctions;
+
+    /**
+     * Create a new concurrent Bloom filter with {@code elems} inside. The bit array is of length 8 * numBytes,
+     * so a filter built with the same arguments as a {@link BloomFilter} has the same size.
+     *
+     * @param elems The collection of elements to be added to this filter
+     * @param numBytes The length in bytes of the bit array
+     * @param numHashFunctions The number of hash functions to be used in this filter
+     */
+    public ConcurrentBloomFilter(Collection<E> elems, int numBytes, int numHashFunctions)
+    {
+        numBits = (numBytes > 0 ? numBytes : 1) * 8;
+        words = new long[(numBits + 63) / 64];
+        this.numHashFunctions = numHashFunctions > 0 ? numHashFunctions : 1;
+        this.hashAddends = new int[this.numHashFunctions];
+        hashAddends[0] = 0;
+        for (int i = 1; i < hashAddends.length; i++)
+        {
+            hashAddends[i] = (int) (Math.random() * (numBits - 1) + 1);
+        }
+        if (elems != null)
+        {
+            for (E elem : elems)
+            {
+                this.insert(elem);
+            }
+        }
+    }
+
+    /**
+     * Calculates the modular hash for k given m
+     * @param k The number to be hashed
+     * @param m The number to mod with
+     * @return The non-negative remainder of k modulo m
+     */
+    public int hash(int k, int m)
+    {
+        return k % m >= 0 ? k % m : (k % m) * -1;
+    }
+
+    /**
+     * Add {@code elem} to the Bloom filter. Safe to call from any number of threads at once.
+     */
+    public void insert(E elem)
+    {
+        int hashedElem = elem.hashCode();
+        for (int i = 0; i < numHashFunctions; i++)
+        {
+            hashedElem = hash(hashedElem + hashAddends[i], numBits);
+            long mask = 1L << hashedElem;
+            int wordIndex = hashedElem >>> 6;
+            // skip the atomic write when the bit is already set, which is the common case once the filter fills up
+            if (((long) WORDS.getAcquire(words, wordIndex) & mask) == 0)
+            {
+                WORDS.getAndBitwiseOr(words, wordIndex, mask);
+            }
+        }
+    }
+
+    /**
+     * Check whether {@code elem} might be in the collection. Every insert that completed before this call
+     * started is visible to it.
+     */
+    public boolean mightContain(E elem)
+    {
+        int hashedElem = elem.hashCode();
+        for (int i = 0; i < numHashFunctions; i++)
+        {
+            hashedElem = hash(hashedElem + hashAddends[i], numBits);
+            if (((long) WORDS.getAcquire(words, hashedElem >>> 6) & (1L << hashedElem)) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
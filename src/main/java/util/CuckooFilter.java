@@ -0,0 +1,265 @@
+package util;
+
+/**
+ * Represents a collection of elements of type E that supports insertion, deletion and a probabilistic
+ * membership test. Elements are stored as 12-bit fingerprints in buckets of four slots; each element can live
+ * in one of two buckets, and inserting into two full buckets moves existing fingerprints to their other bucket.
+ * At the default 95% load this takes about 12.6 bits per element for a false positive rate of about 0.2%.
+ */
+public class CuckooFilter<E>
+{
+    static final int BITS_PER_FINGERPRINT = 12;
+    static final int SLOTS_PER_BUCKET = 4;
+    static final int MAX_KICKS = 500;
+    static final long SEED = 0x9E3779B97F4A7C15L;
+
+    long[] slots;
+    int numBuckets;
+    int numElements;
+    int victimFingerprint;
+    int victimBucket;
+    long kickState;
+
+    /**
+     * Create a new empty cuckoo filter with room for about {@code capacity} elements.
+     *
+     * @param capacity The number of elements the filter should be able to hold
+     */
+    public CuckooFilter(int capacity)
+    {
+        numBuckets = Math.max(1, (int) Math.ceil(capacity / (SLOTS_PER_BUCKET * 0.95)));
+        long numBits = (long) numBuckets * SLOTS_PER_BUCKET * BITS_PER_FINGERPRINT;
+        slots = new long[(int) ((numBits + 63) / 64)];
+        kickState = SEED;
+    }
+
+    /**
+     * Add {@code elem} to the filter. An element added twice must be deleted twice.
+     *
+     * @return True if the element was added, false if the filter is full
+     */
+    public boolean insert(E elem)
+    {
+        if (victimFingerprint != 0)
+        {
+            return false;
+        }
+        long h = XorFilter.mix(elem.hashCode() + SEED);
+        insertFingerprint(reduce(h), fingerprint(h));
+        return true;
+    }
+
+    /**
+     * Remove {@code elem} from the filter. Only elements that were added may be removed, otherwise an element
+     * sharing its fingerprint could be removed instead.
+     *
+     * @return True if a fingerprint of the element was found and removed
+     */
+    public boolean delete(E elem)
+    {
+        long h = XorFilter.mix(elem.hashCode() + SEED);
+        int fingerprint = fingerprint(h);
+        int bucket = reduce(h);
+        int other = alternate(bucket, fingerprint);
+        if (victimFingerprint == fingerprint && (victimBucket == bucket || victimBucket == other))
+        {
+            victimFingerprint = 0;
+            numElements--;
+            return true;
+        }
+        if (removeFromBucket(bucket, fingerprint) || removeFromBucket(other, fingerprint))
+        {
+            numElements--;
+            if (victimFingerprint != 0)
+            {
+                // the freed slot may be one the victim can move into
+                int victim = victimFingerprint;
+                victimFingerprint = 0;
+                numElements--;
+                insertFingerprint(victimBucket, victim);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether {@code elem} might be in the collection.
+     */
+    public boolean mightContain(E elem)
+    {
+        return mightContainHash(elem.hashCode());
+    }
+
+    /**
+     * Check whether an element with hash code {@code hashCode} might be in the collection.
+     */
+    public boolean mightContainHash(int hashCode)
+    {
+        long h = XorFilter.mix(hashCode + SEED);
+        int fingerprint = fingerprint(h);
+        int bucket = reduce(h);
+        int other = alternate(bucket, fingerprint);
+        return bucketContains(bucket, fingerprint) || bucketContains(other, fingerprint)
+                || (victimFingerprint == fingerprint && (victimBucket == bucket || victimBucket == other));
+    }
+
+    /**
+     * Gets the number of elements stored in this filter
+     * @return The number of elements stored in this filter
+     */
+    public int size()
+    {
+        return numElements;
+    }
+
+    /**
+     * Gets the number of bits of fingerprint storage used by this filter
+     * @return The number of bits of fingerprint storage used by this filter
+     */
+    public long bitCount()
+    {
+        return (long) numBuckets * SLOTS_PER_BUCKET * BITS_PER_FINGERPRINT;
+    }
+
+    /**
+     * Adds a fingerprint whose element hashes to {@code bucket}, relocating others as in {@link #insert(Object)}
+     */
+    private void insertFingerprint(int bucket, int fingerprint)
+    {
+        if (addToBucket(bucket, fingerprint) || addToBucket(alternate(bucket, fingerprint), fingerprint))
+        {
+            numElements++;
+            return;
+        }
+        for (int kick = 0; kick < MAX_KICKS; kick++)
+        {
+            kickState = XorFilter.mix(kickState);
+            if ((kickState & SLOTS_PER_BUCKET) != 0)
+            {
+                bucket = alternate(bucket, fingerprint);
+            }
+            int slot = bucket * SLOTS_PER_BUCKET + (int) (kickState & (SLOTS_PER_BUCKET - 1));
+            int evicted = get(slot);
+            set(slot, fingerprint);
+            fingerprint = evicted;
+            bucket = alternate(bucket, fingerprint);
+            if (addToBucket(bucket, fingerprint))
+            {
+                numElements++;
+                return;
+            }
+        }
+        // keep the last displaced fingerprint aside so that no element already added is lost
+        victimFingerprint = fingerprint;
+        victimBucket = bucket;
+        numElements++;
+    }
+
+    /**
+     * Puts {@code fingerprint} into a free slot of {@code bucket}, returning false if there is none
+     */
+    private boolean addToBucket(int bucket, int fingerprint)
+    {
+        for (int slot = bucket * SLOTS_PER_BUCKET; slot < (bucket + 1) * SLOTS_PER_BUCKET; slot++)
+        {
+            if (get(slot) == 0)
+            {
+                set(slot, fingerprint);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Clears one slot of {@code bucket} holding {@code fingerprint}, returning false if there is none
+     */
+    private boolean removeFromBucket(int bucket, int fingerprint)
+    {
+        for (int slot = bucket * SLOTS_PER_BUCKET; slot < (bucket + 1) * SLOTS_PER_BUCKET; slot++)
+        {
+            if (get(slot) == fingerprint)
+            {
+                set(slot, 0);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether some slot of {@code bucket} holds {@code fingerprint}
+     */
+    private boolean bucketContains(int bucket, int fingerprint)
+    {
+        for (int slot = bucket * SLOTS_PER_BUCKET; slot < (bucket + 1) * SLOTS_PER_BUCKET; slot++)
+        {
+            if (get(slot) == fingerprint)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the fingerprint in {@code slot}, which may straddle two words of the packed array
+     */
+    private int get(int slot)
+    {
+        long bit = (long) slot * BITS_PER_FINGERPRINT;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = slots[word] >>> shift;
+        if (shift + BITS_PER_FINGERPRINT > 64)
+        {
+            value |= slots[word + 1] << (64 - shift);
+        }
+        return (int) (value & ((1 << BITS_PER_FINGERPRINT) - 1));
+    }
+
+    /**
+     * Writes {@code fingerprint} into {@code slot}, which may straddle two words of the packed array
+     */
+    private void set(int slot, int fingerprint)
+    {
+        long bit = (long) slot * BITS_PER_FINGERPRINT;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long mask = (1L << BITS_PER_FINGERPRINT) - 1;
+        slots[word] = (slots[word] & ~(mask << shift)) | ((long) fingerprint << shift);
+        if (shift + BITS_PER_FINGERPRINT > 64)
+        {
+            int spill = 64 - shift;
+            slots[word + 1] = (slots[word + 1] & ~(mask >>> spill)) | ((long) fingerprint >>> spill);
+        }
+    }
+
+    /**
+     * Maps the hash {@code h} to a bucket
+     */
+    private int reduce(long h)
+    {
+        return (int) (((h & 0xFFFFFFFFL) * numBuckets) >>> 32);
+    }
+
+    /**
+     * Finds the other bucket of a fingerprint stored in {@code bucket}. Applying this twice returns
+     * {@code bucket}, so it works for any number of buckets.
+     */
+    private int alternate(int bucket, int fingerprint)
+    {
+        int offset = reduce(XorFilter.mix(fingerprint));
+        int other = offset - bucket;
+        return other < 0 ? other + numBuckets : other;
+    }
+
+    /**
+     * Calculates the non-zero 12-bit fingerprint of the hash {@code h}, leaving 0 to mark an empty slot
+     */
+    private static int fingerprint(long h)
+    {
+        return (int) ((h >>> 32) % ((1 << BITS_PER_FINGERPRINT) - 1)) + 1;
+    }
+}
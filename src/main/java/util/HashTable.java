@@ -86,8 +86,8 @@ public class HashTable<K, V> implements Map<K, V>, Iterable<K>
         for (K key : this.keySet())
         {
             V value = this.get(key);
-            int hashedKey = key.hashCode();
-            hashedKey = hashedKey % newBuckets.length;
+            // as in hash, a negative remainder is made positive
+            int hashedKey = Math.abs(key.hashCode() % newBuckets.length);
             newBuckets[hashedKey].add(new HashNode<K, V>(key, value));
         }
         buckets = newBuckets;
@@ -0,0 +1,209 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Represents a set of strings packed into one byte array as sorted UTF-8, with an exact membership test by
+ * binary search. Storage is the encoded words plus one int per word, with no per-word objects.
+ */
+public class PackedWordSet
+{
+    byte[] bytes;
+    int[] offsets;
+    int size;
+
+    /**
+     * Create an empty set.
+     */
+    public PackedWordSet()
+    {
+        bytes = new byte[0];
+        offsets = new int[] {0};
+        size = 0;
+    }
+
+    /**
+     * Adds every string in {@code words} to the set. This rebuilds the packed arrays, so add words in large
+     * batches rather than one at a time.
+     *
+     * @param words The strings to be added
+     */
+    public void addAll(Collection<String> words)
+    {
+        byte[][] added = new byte[words.size()][];
+        int i = 0;
+        for (String word : words)
+        {
+            added[i++] = word.getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(added, Arrays::compareUnsigned);
+
+        int totalBytes = bytes.length;
+        for (byte[] word : added)
+        {
+            totalBytes += word.length;
+        }
+        byte[] newBytes = new byte[totalBytes];
+        int[] newOffsets = new int[size + added.length + 1];
+        int newSize = 0;
+        int length = 0;
+        int old = 0;
+        int next = 0;
+        // merge the two sorted runs, dropping duplicates
+        while (old < size || next < added.length)
+        {
+            byte[] source;
+            int from;
+            int to;
+            if (next == added.length || (old < size && compareUnsigned(old, added[next]) <= 0))
+            {
+                source = bytes;
+                from = offsets[old];
+                to = offsets[old + 1];
+                old++;
+            }
+            else
+            {
+                source = added[next];
+                from = 0;
+                to = source.length;
+                next++;
+            }
+            if (newSize > 0 && Arrays.equals(newBytes, newOffsets[newSize - 1], length, source, from, to))
+            {
+                continue;
+            }
+            System.arraycopy(source, from, newBytes, length, to - from);
+            length += to - from;
+            newOffsets[++newSize] = length;
+        }
+        bytes = length == newBytes.length ? newBytes : Arrays.copyOf(newBytes, length);
+        offsets = newOffsets.length == newSize + 1 ? newOffsets : Arrays.copyOf(newOffsets, newSize + 1);
+        size = newSize;
+    }
+
+    /**
+     * Return true if this set contains {@code word}, false otherwise.
+     */
+    public boolean contains(CharSequence word)
+    {
+        if (word == null)
+        {
+            return false;
+        }
+        return contains(word, 0, word.length());
+    }
+
+    /**
+     * Return true if this set contains the word {@code word[start, end)}, false otherwise.
+     */
+    public boolean contains(CharSequence word, int start, int end)
+    {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, word, start, end);
+            if (cmp < 0)
+            {
+                low = mid + 1;
+            }
+            else if (cmp > 0)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns string {@code index} of this set, in the order of their UTF-8 bytes
+     */
+    public String get(int index)
+    {
+        return new String(bytes, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the number of strings in this set
+     * @return The number of strings in this set
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the number of bytes used by the packed arrays of this set
+     * @return The number of bytes used by the packed arrays of this set
+     */
+    public long byteCount()
+    {
+        return bytes.length + 4L * offsets.length;
+    }
+
+    /**
+     * Compares stored word {@code index} with the UTF-8 bytes of another word
+     */
+    private int compareUnsigned(int index, byte[] other)
+    {
+        return Arrays.compareUnsigned(bytes, offsets[index], offsets[index + 1], other, 0, other.length);
+    }
+
+    /**
+     * Compares stored word {@code index} with {@code word[start, wordEnd)} by code point, which is the order of
+     * their UTF-8 bytes, decoding the stored word as it goes rather than encoding {@code word}
+     */
+    private int compare(int index, CharSequence word, int start, int wordEnd)
+    {
+        int pos = offsets[index];
+        int end = offsets[index + 1];
+        int i = start;
+        while (pos < end && i < wordEnd)
+        {
+            int b = bytes[pos] & 0xFF;
+            int stored;
+            if (b < 0x80)
+            {
+                stored = b;
+                pos += 1;
+            }
+            else if (b < 0xE0)
+            {
+                stored = ((b & 0x1F) << 6) | (bytes[pos + 1] & 0x3F);
+                pos += 2;
+            }
+            else if (b < 0xF0)
+            {
+                stored = ((b & 0x0F) << 12) | ((bytes[pos + 1] & 0x3F) << 6) | (bytes[pos + 2] & 0x3F);
+                pos += 3;
+            }
+            else
+            {
+                stored = ((b & 0x07) << 18) | ((bytes[pos + 1] & 0x3F) << 12) | ((bytes[pos + 2] & 0x3F) << 6)
+                        | (bytes[pos + 3] & 0x3F);
+                pos += 4;
+            }
+            int c = Character.isHighSurrogate(word.charAt(i)) && i + 1 < wordEnd
+                    && Character.isLowSurrogate(word.charAt(i + 1))
+                    ? Character.toCodePoint(word.charAt(i), word.charAt(i + 1)) : word.charAt(i);
+            if (stored != c)
+            {
+                return stored < c ? -1 : 1;
+            }
+            i += Character.charCount(c);
+        }
+        if (pos < end)
+        {
+            return 1;
+        }
+        return i < wordEnd ? -1 : 0;
+    }
+}
@@ -0,0 +1,524 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a set of words indexed by how they sound, so that a misspelling such as "fonetik" finds "phonetic".
+ * Each word's Metaphone key is packed into a long, five bits per sound, and an open-addressed table maps the key
+ * to the most recent word with that key; the words with the same key are chained through an int array in
+ * the order they were added. Adding a word is a single insertion, so the index is built in the same pass that
+ * reads the dictionary, and looking a word up is a single probe of the table.
+ */
+public class PhoneticIndex
+{
+    /** Identifies a file written by {@link #writeTo(Path)}; the ASCII bytes "PHIX". */
+    static final int MAGIC = 0x50484958;
+    /** Version of the on-disk format, bumped whenever the layout below changes. */
+    static final int VERSION = 1;
+    /** Keys keep the first MAX_KEY_LENGTH sounds of a word, which is all but a few very long words. */
+    static final int MAX_KEY_LENGTH = 12;
+    /** The sounds a key is made of; each is stored as its index in this string plus one. */
+    static final String SOUNDS = "BFHJKLMNPRSTWXY0AEIOU";
+
+    // the words, back to back in chars; word i is chars[starts[i], starts[i + 1]), and next[i] is the previous
+    // word with the same key, or -1
+    char[] chars;
+    int[] starts;
+    int[] next;
+    int size;
+
+    // an open-addressed table from each key to the last word added with it; key 0 marks an empty slot
+    long[] keys;
+    int[] last;
+    int numKeys;
+
+    /**
+     * Creates an empty PhoneticIndex
+     */
+    public PhoneticIndex()
+    {
+        chars = new char[1 << 10];
+        starts = new int[1 << 8];
+        next = new int[1 << 8];
+        keys = new long[1 << 8];
+        last = new int[1 << 8];
+    }
+
+    /**
+     * Creates a PhoneticIndex from arrays read back by {@link #read(Path)}
+     */
+    private PhoneticIndex(char[] chars, int[] starts, int[] next, int size, long[] keys, int[] last, int numKeys)
+    {
+        this.chars = chars;
+        this.starts = starts;
+        this.next = next;
+        this.size = size;
+        this.keys = keys;
+        this.last = last;
+        this.numKeys = numKeys;
+    }
+
+    /**
+     * Adds {@code word} to the index
+     */
+    public void add(CharSequence word)
+    {
+        int end = starts[size] + word.length();
+        if (end > chars.length)
+        {
+            chars = Arrays.copyOf(chars, Math.max(end, 2 * chars.length));
+        }
+        for (int i = 0; i < word.length(); i++)
+        {
+            chars[starts[size] + i] = word.charAt(i);
+        }
+        if (size + 2 > starts.length)
+        {
+            starts = Arrays.copyOf(starts, 2 * starts.length);
+            next = Arrays.copyOf(next, 2 * next.length);
+        }
+        starts[size + 1] = end;
+        if (2 * (numKeys + 1) > keys.length)
+        {
+            resize();
+        }
+        long key = key(word);
+        int slot = slot(key);
+        if (keys[slot] == 0)
+        {
+            keys[slot] = key;
+            last[slot] = -1;
+            numKeys++;
+        }
+        next[size] = last[slot];
+        last[slot] = size;
+        size++;
+    }
+
+    /**
+     * Gets the number of words added
+     * @return The number of words in the index
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the word with id {@code id}, the number of words added before it
+     * @return The id-th word added
+     */
+    public String word(int id)
+    {
+        return new String(chars, starts[id], starts[id + 1] - starts[id]);
+    }
+
+    /**
+     * Returns up to {@code limit} of the words that sound like {@code word}, meaning they have the same
+     * Metaphone key. The words closest to it in spelling come first, ties broken by the order they were added.
+     */
+    public List<String> soundsLike(CharSequence word, int limit)
+    {
+        long key = key(word);
+        int slot = slot(key);
+        List<String> found = new ArrayList<>();
+        if (keys[slot] == 0)
+        {
+            return found;
+        }
+        // candidates are packed as distance << 32 | the number of candidates after this one, which ranks them by
+        // distance and then in the order they were added
+        int count = 0;
+        for (int id = last[slot]; id >= 0; id = next[id])
+        {
+            count++;
+        }
+        long[] ranked = new long[count];
+        int i = 0;
+        for (int id = last[slot]; id >= 0; id = next[id], i++)
+        {
+            ranked[i] = (long) distance(word, id) << 32 | (count - 1 - i);
+        }
+        Arrays.sort(ranked);
+        int[] ids = new int[count];
+        i = 0;
+        for (int id = last[slot]; id >= 0; id = next[id])
+        {
+            ids[count - 1 - i++] = id;
+        }
+        for (int r = 0; r < count && found.size() < limit; r++)
+        {
+            found.add(word(ids[(int) ranked[r]]));
+        }
+        return found;
+    }
+
+    /**
+     * Returns the Metaphone key of {@code word}, as a string of the sounds in {@link #SOUNDS}
+     */
+    public static String encode(CharSequence word)
+    {
+        StringBuilder sb = new StringBuilder();
+        long key = key(word);
+        for (int shift = 63 - Long.numberOfLeadingZeros(key) - 5; shift >= 0; shift -= 5)
+        {
+            sb.append(SOUNDS.charAt((int) (key >>> shift & 31) - 1));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the number of bytes used by the index and the words
+     * @return The number of bytes used by this index
+     */
+    public long byteCount()
+    {
+        return 2L * chars.length + 4L * starts.length + 4L * next.length + 12L * keys.length;
+    }
+
+    /**
+     * Saves this index to {@code path} so that it can be loaded with {@link #read(Path)} without recomputing any
+     * keys. The file is a big-endian header (magic, version, word count, character count, table size) followed by
+     * the characters, word starts, chain links, table keys and table entries.
+     *
+     * @param path The file to write, replaced if it already exists
+     * @throws IOException If the file cannot be written
+     */
+    public void writeTo(Path path) throws IOException
+    {
+        int numChars = starts[size];
+        ByteBuffer file = ByteBuffer.allocate(fileLength(size, numChars, keys.length));
+        file.putInt(MAGIC);
+        file.putInt(VERSION);
+        file.putInt(size);
+        file.putInt(numChars);
+        file.putInt(keys.length);
+        file.asCharBuffer().put(chars, 0, numChars);
+        file.position(file.position() + 2 * numChars);
+        file.asIntBuffer().put(starts, 0, size + 1).put(next, 0, size);
+        file.position(file.position() + 4 * (2 * size + 1));
+        file.asLongBuffer().put(keys);
+        file.position(file.position() + 8 * keys.length);
+        file.asIntBuffer().put(last);
+        file.clear();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (file.hasRemaining())
+            {
+                channel.write(file);
+            }
+        }
+    }
+
+    /**
+     * Loads an index saved by {@link #writeTo(Path)}. Its arrays are read in bulk from a memory mapping of the
+     * file, and words can be added to it afterwards.
+     *
+     * @param path The file to read
+     * @return The index stored in {@code path}
+     * @throws IOException If the file cannot be read or is not a phonetic index of a supported version
+     */
+    public static PhoneticIndex read(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (file.remaining() < fileLength(0, 0, 0) || file.getInt() != MAGIC)
+            {
+                throw new IOException(path + " is not a phonetic index file.");
+            }
+            int version = file.getInt();
+            if (version != VERSION)
+            {
+                throw new IOException("Unsupported phonetic index file version " + version + ".");
+            }
+            int size = file.getInt();
+            int numChars = file.getInt();
+            int tableSize = file.getInt();
+            if (size < 0 || numChars < 0 || Integer.bitCount(tableSize) != 1
+                    || file.capacity() != fileLength(size, numChars, tableSize))
+            {
+                throw new IOException(path + " is truncated or corrupt.");
+            }
+            char[] chars = new char[Math.max(numChars, 1)];
+            file.asCharBuffer().get(chars, 0, numChars);
+            file.position(file.position() + 2 * numChars);
+            int[] starts = new int[size + 2];
+            int[] next = new int[size + 2];
+            file.asIntBuffer().get(starts, 0, size + 1).get(next, 0, size);
+            file.position(file.position() + 4 * (2 * size + 1));
+            long[] keys = new long[tableSize];
+            file.asLongBuffer().get(keys);
+            file.position(file.position() + 8 * tableSize);
+            int[] last = new int[tableSize];
+            file.asIntBuffer().get(last);
+            int numKeys = 0;
+            for (long key : keys)
+            {
+                numKeys += key != 0 ? 1 : 0;
+            }
+            return new PhoneticIndex(chars, starts, next, size, keys, last, numKeys);
+        }
+    }
+
+    /**
+     * Calculates the length in bytes of a saved index
+     */
+    private static int fileLength(int size, int numChars, int tableSize)
+    {
+        return 5 * 4 + 2 * numChars + 4 * (2 * size + 1) + 12 * tableSize;
+    }
+
+    /**
+     * Returns the slot of the table that holds {@code key}, or the empty slot where it belongs
+     */
+    private int slot(long key)
+    {
+        int mask = keys.length - 1;
+        int i = (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask;
+        while (keys[i] != 0 && keys[i] != key)
+        {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Doubles the size of the table
+     */
+    private void resize()
+    {
+        long[] oldKeys = keys;
+        int[] oldLast = last;
+        keys = new long[2 * oldKeys.length];
+        last = new int[keys.length];
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != 0)
+            {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                last[slot] = oldLast[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the Levenshtein distance between {@code word} and word {@code id}, ignoring case
+     */
+    private int distance(CharSequence word, int id)
+    {
+        int start = starts[id];
+        int n = starts[id + 1] - start;
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++)
+        {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= word.length(); i++)
+        {
+            current[0] = i;
+            char c = Character.toLowerCase(word.charAt(i - 1));
+            for (int j = 1; j <= n; j++)
+            {
+                int cost = c == Character.toLowerCase(chars[start + j - 1]) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[n];
+    }
+
+    /**
+     * Computes the Metaphone key of {@code word}, using Lawrence Philips' original rules on its letters A to Z
+     * and ignoring everything else, packed as a 1 bit followed by five bits per sound
+     */
+    static long key(CharSequence word)
+    {
+        char[] w = new char[word.length()];
+        int n = 0;
+        for (int i = 0; i < word.length(); i++)
+        {
+            char c = Character.toUpperCase(word.charAt(i));
+            if (c >= 'A' && c <= 'Z')
+            {
+                w[n++] = c;
+            }
+        }
+        long key = 1;
+        int length = 0;
+        int i = 0;
+        // initial letters that are silent or sound unusual
+        if (n >= 2 && (w[0] == 'A' && w[1] == 'E' || w[1] == 'N' && (w[0] == 'G' || w[0] == 'K' || w[0] == 'P')
+                || w[0] == 'W' && w[1] == 'R'))
+        {
+            i = 1;
+        }
+        else if (n >= 1 && w[0] == 'X')
+        {
+            key = key << 5 | code('S');
+            length++;
+            i = 1;
+        }
+        else if (n >= 2 && w[0] == 'W' && w[1] == 'H')
+        {
+            key = key << 5 | code('W');
+            length++;
+            i = 2;
+        }
+        for (; i < n && length < MAX_KEY_LENGTH; i++)
+        {
+            char c = w[i];
+            char before = i > 0 ? w[i - 1] : 0;
+            char after = i + 1 < n ? w[i + 1] : 0;
+            char afterNext = i + 2 < n ? w[i + 2] : 0;
+            if (c == before && c != 'C')
+            {
+                continue;
+            }
+            char sound = 0;
+            char second = 0;
+            switch (c)
+            {
+                case 'A':
+                case 'E':
+                case 'I':
+                case 'O':
+                case 'U':
+                    sound = i == 0 ? c : 0;
+                    break;
+                case 'B':
+                    sound = before == 'M' && i == n - 1 ? 0 : 'B';
+                    break;
+                case 'C':
+                    if (after == 'I' && afterNext == 'A' || after == 'H')
+                    {
+                        sound = before == 'S' && after == 'H' ? 'K' : 'X';
+                    }
+                    else if (after == 'I' || after == 'E' || after == 'Y')
+                    {
+                        sound = before == 'S' ? 0 : 'S';
+                    }
+                    else
+                    {
+                        sound = 'K';
+                    }
+                    break;
+                case 'D':
+                    sound = after == 'G' && (afterNext == 'E' || afterNext == 'Y' || afterNext == 'I') ? 'J' : 'T';
+                    break;
+                case 'G':
+                    if (after == 'H' && !(i + 2 == n || isVowel(afterNext)))
+                    {
+                        sound = 0;
+                    }
+                    else if (after == 'N' && (i + 2 == n
+                            || i + 4 == n && afterNext == 'E' && w[i + 3] == 'D'))
+                    {
+                        sound = 0;
+                    }
+                    else if (before == 'D' && (after == 'I' || after == 'E' || after == 'Y'))
+                    {
+                        // already sounded by the D of -DGE-, -DGI- or -DGY-
+                        sound = 0;
+                    }
+                    else if ((after == 'I' || after == 'E' || after == 'Y') && before != 'G')
+                    {
+                        sound = 'J';
+                    }
+                    else
+                    {
+                        sound = 'K';
+                    }
+                    break;
+                case 'H':
+                    boolean silent = isVowel(before) && !isVowel(after)
+                            || before == 'C' || before == 'S' || before == 'P' || before == 'T' || before == 'G';
+                    sound = silent ? 0 : 'H';
+                    break;
+                case 'K':
+                    sound = before == 'C' ? 0 : 'K';
+                    break;
+                case 'P':
+                    sound = after == 'H' ? 'F' : 'P';
+                    break;
+                case 'Q':
+                    sound = 'K';
+                    break;
+                case 'S':
+                    sound = after == 'H' || after == 'I' && (afterNext == 'O' || afterNext == 'A') ? 'X' : 'S';
+                    break;
+                case 'T':
+                    if (after == 'I' && (afterNext == 'O' || afterNext == 'A'))
+                    {
+                        sound = 'X';
+                    }
+                    else if (after == 'H')
+                    {
+                        sound = '0';
+                    }
+                    else
+                    {
+                        sound = after == 'C' && afterNext == 'H' ? 0 : 'T';
+                    }
+                    break;
+                case 'V':
+                    sound = 'F';
+                    break;
+                case 'W':
+                case 'Y':
+                    sound = isVowel(after) ? c : 0;
+                    break;
+                case 'X':
+                    sound = 'K';
+                    second = 'S';
+                    break;
+                case 'Z':
+                    sound = 'S';
+                    break;
+                default:
+                    // F, J, L, M, N and R sound like themselves
+                    sound = c;
+            }
+            if (sound != 0)
+            {
+                key = key << 5 | code(sound);
+                length++;
+            }
+            if (second != 0 && length < MAX_KEY_LENGTH)
+            {
+                key = key << 5 | code(second);
+                length++;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Returns the five-bit code of a sound
+     */
+    private static int code(char sound)
+    {
+        return SOUNDS.indexOf(sound) + 1;
+    }
+
+    /**
+     * Determines whether {@code c} is one of the vowels A, E, I, O and U
+     */
+    private static boolean isVowel(char c)
+    {
+        return c == 'A' || c == 'E' || c == 'I' || c == 'O' || c == 'U';
+    }
+}
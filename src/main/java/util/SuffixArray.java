@@ -0,0 +1,472 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Represents an index of every suffix of a text in sorted order, with the lengths of the longest common prefixes
+ * of neighbouring suffixes. Building it takes time linear in the length of the text (SA-IS construction and
+ * Kasai's LCP algorithm); afterwards the occurrences of any query are found by binary search in O(m log n). A
+ * wavelet matrix over the suffix array finds the first occurrence at or after any position in O(log n) more,
+ * however many occurrences there are.
+ */
+public class SuffixArray
+{
+    CharSequence text;
+    int[] suffixes;
+    int[] lcp;
+
+    // the wavelet matrix: level l holds bit (levels - 1 - l) of every position, in the order the positions have
+    // once stably sorted by their higher bits, with the number of ones before every 64th entry and of zeros in all
+    int levels;
+    long[][] bits;
+    int[][] ones;
+    int[] zeros;
+
+    /**
+     * Builds the suffix array and LCP array of {@code text}.
+     *
+     * @param text The text to index; it must not change while this index is in use
+     */
+    public SuffixArray(CharSequence text)
+    {
+        this.text = text;
+        int n = text.length();
+        // rename the characters to 1..K-1 by rank and end the string with a unique smallest sentinel 0
+        boolean[] used = new boolean[Character.MAX_VALUE + 1];
+        for (int i = 0; i < n; i++)
+        {
+            used[text.charAt(i)] = true;
+        }
+        int[] rank = new int[Character.MAX_VALUE + 1];
+        int alphabet = 1;
+        for (int c = 0; c <= Character.MAX_VALUE; c++)
+        {
+            if (used[c])
+            {
+                rank[c] = alphabet++;
+            }
+        }
+        int[] s = new int[n + 1];
+        for (int i = 0; i < n; i++)
+        {
+            s[i] = rank[text.charAt(i)];
+        }
+        int[] sa = new int[n + 1];
+        sais(s, sa, n + 1, alphabet);
+        // the sentinel's suffix always sorts first
+        suffixes = Arrays.copyOfRange(sa, 1, n + 1);
+        lcp = buildLcp(text, suffixes);
+        buildWaveletMatrix();
+    }
+
+    /**
+     * Gets the number of suffixes, which is the length of the text
+     * @return The number of suffixes in this index
+     */
+    public int size()
+    {
+        return suffixes.length;
+    }
+
+    /**
+     * Gets the start of the suffix of rank {@code i}
+     * @param i The rank of a suffix, between 0 and size() - 1
+     * @return The position in the text where the i-th smallest suffix starts
+     */
+    public int suffix(int i)
+    {
+        return suffixes[i];
+    }
+
+    /**
+     * Finds the ranks of the suffixes that start with {@code query}, which are consecutive.
+     *
+     * @param query The string to look up
+     * @return An array {lo, hi} such that the suffixes of rank lo to hi - 1 are exactly those starting with
+     *         the query; lo == hi if the query does not occur
+     */
+    public int[] range(CharSequence query)
+    {
+        int m = query.length();
+        int lo = 0;
+        int hi = suffixes.length;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (compare(suffixes[mid], query) < 0)
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        int end = lo;
+        if (end < suffixes.length && compare(suffixes[end], query) == 0)
+        {
+            // neighbours sharing at least m characters with the first match also start with the query
+            end++;
+            while (end < suffixes.length && lcp[end] >= m)
+            {
+                end++;
+            }
+        }
+        return new int[] {lo, end};
+    }
+
+    /**
+     * Returns the smallest starting location of {@code query} in the text that is at least {@code fromIndex},
+     * or -1 if there is none.
+     */
+    public int first(CharSequence query, int fromIndex)
+    {
+        int[] range = range(query);
+        return successor(0, range[0], range[1], 0, Math.max(fromIndex, 0));
+    }
+
+    /**
+     * Returns every starting location of {@code query} in the text, in increasing order.
+     */
+    public int[] findAll(CharSequence query)
+    {
+        int[] range = range(query);
+        int[] positions = Arrays.copyOfRange(suffixes, range[0], range[1]);
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    /**
+     * Gets the number of bytes used by the suffix and LCP arrays, not counting the text
+     * @return The number of bytes used by this index
+     */
+    public long byteCount()
+    {
+        long bytes = 4L * suffixes.length + 4L * lcp.length;
+        for (int l = 0; l < levels; l++)
+        {
+            bytes += 8L * bits[l].length + 4L * ones[l].length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Builds the wavelet matrix of the suffix array, one bit of every position per level from the highest
+     */
+    private void buildWaveletMatrix()
+    {
+        int n = suffixes.length;
+        levels = 32 - Integer.numberOfLeadingZeros(Math.max(n - 1, 1));
+        bits = new long[levels][];
+        ones = new int[levels][];
+        zeros = new int[levels];
+        int[] current = suffixes.clone();
+        int[] next = new int[n];
+        int[] high = new int[n];
+        for (int l = 0; l < levels; l++)
+        {
+            int shift = levels - 1 - l;
+            long[] words = new long[(n >>> 6) + 1];
+            // the positions with a 0 at this bit go first, each side in its order at this level; the bits are
+            // random, so both sides are written every time rather than branching on them
+            int zeroCount = 0;
+            int oneCount = 0;
+            for (int i = 0; i < n; i++)
+            {
+                int position = current[i];
+                int bit = position >>> shift & 1;
+                words[i >>> 6] |= (long) bit << i;
+                next[zeroCount] = position;
+                high[oneCount] = position;
+                zeroCount += bit ^ 1;
+                oneCount += bit;
+            }
+            System.arraycopy(high, 0, next, zeroCount, oneCount);
+            int[] counts = new int[words.length + 1];
+            for (int w = 0; w < words.length; w++)
+            {
+                counts[w + 1] = counts[w] + Long.bitCount(words[w]);
+            }
+            bits[l] = words;
+            ones[l] = counts;
+            zeros[l] = zeroCount;
+            int[] swap = current;
+            current = next;
+            next = swap;
+        }
+    }
+
+    /**
+     * Returns the number of ones among the first {@code i} entries of wavelet matrix level {@code level}
+     */
+    private int onesBefore(int level, int i)
+    {
+        return ones[level][i >>> 6] + Long.bitCount(bits[level][i >>> 6] & ((1L << i) - 1));
+    }
+
+    /**
+     * Returns the smallest position at least {@code min} among entries {@code [lo, hi)} of wavelet matrix level
+     * {@code level}, whose bits above that level are all {@code prefix}, or -1 if there is none. Only positions
+     * whose high bits equal those of {@code min} can fail to qualify, so at most one path down the levels turns
+     * back, and the search takes O(log n) steps.
+     */
+    private int successor(int level, int lo, int hi, int prefix, int min)
+    {
+        int remaining = levels - level;
+        if (lo >= hi || (prefix << remaining | ((1 << remaining) - 1)) < min)
+        {
+            return -1;
+        }
+        if (level == levels)
+        {
+            return prefix;
+        }
+        int loOnes = onesBefore(level, lo);
+        int hiOnes = onesBefore(level, hi);
+        int found = successor(level + 1, lo - loOnes, hi - hiOnes, prefix << 1, min);
+        if (found < 0)
+        {
+            found = successor(level + 1, zeros[level] + loOnes, zeros[level] + hiOnes, prefix << 1 | 1, min);
+        }
+        return found;
+    }
+
+    /**
+     * Compares the first query.length() characters of the suffix starting at {@code position} with
+     * {@code query}, returning 0 if the suffix starts with the query
+     */
+    private int compare(int position, CharSequence query)
+    {
+        int n = text.length();
+        for (int i = 0; i < query.length(); i++)
+        {
+            if (position + i >= n)
+            {
+                return -1;
+            }
+            char a = text.charAt(position + i);
+            char b = query.charAt(i);
+            if (a != b)
+            {
+                return a < b ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Computes lcp[i], the length of the longest common prefix of the suffixes of rank i - 1 and i, with Kasai's
+     * algorithm. lcp[0] is 0.
+     */
+    private static int[] buildLcp(CharSequence text, int[] suffixes)
+    {
+        int n = suffixes.length;
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            rank[suffixes[i]] = i;
+        }
+        int[] lcp = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; i++)
+        {
+            if (rank[i] > 0)
+            {
+                int j = suffixes[rank[i] - 1];
+                while (i + h < n && j + h < n && text.charAt(i + h) == text.charAt(j + h))
+                {
+                    h++;
+                }
+                lcp[rank[i]] = h;
+                if (h > 0)
+                {
+                    h--;
+                }
+            }
+            else
+            {
+                h = 0;
+            }
+        }
+        return lcp;
+    }
+
+    /**
+     * Sorts the suffixes of {@code s[0, n)} into {@code sa} with the SA-IS algorithm of Nong, Zhang and Chan.
+     * The characters of s are in [0, alphabet) and s[n - 1] is a 0 that appears nowhere else.
+     */
+    private static void sais(int[] s, int[] sa, int n, int alphabet)
+    {
+        // classify each suffix as S-type (smaller than the next suffix) or L-type
+        boolean[] sType = new boolean[n];
+        sType[n - 1] = true;
+        for (int i = n - 2; i >= 0; i--)
+        {
+            sType[i] = s[i] < s[i + 1] || (s[i] == s[i + 1] && sType[i + 1]);
+        }
+
+        // sort the LMS substrings by placing LMS positions at the ends of their buckets and inducing
+        int[] bucket = new int[alphabet];
+        Arrays.fill(sa, 0, n, -1);
+        bucketEnds(s, n, bucket, alphabet);
+        for (int i = 1; i < n; i++)
+        {
+            if (isLms(sType, i))
+            {
+                sa[--bucket[s[i]]] = i;
+            }
+        }
+        induce(s, sa, sType, n, bucket, alphabet);
+
+        // move the sorted LMS positions to the front and name each distinct LMS substring by rank
+        int n1 = 0;
+        for (int i = 0; i < n; i++)
+        {
+            if (isLms(sType, sa[i]))
+            {
+                sa[n1++] = sa[i];
+            }
+        }
+        Arrays.fill(sa, n1, n, -1);
+        int name = 0;
+        int previous = -1;
+        for (int i = 0; i < n1; i++)
+        {
+            int position = sa[i];
+            boolean different = false;
+            for (int d = 0; d < n; d++)
+            {
+                if (previous == -1 || s[position + d] != s[previous + d]
+                        || sType[position + d] != sType[previous + d])
+                {
+                    different = true;
+                    break;
+                }
+                else if (d > 0 && (isLms(sType, position + d) || isLms(sType, previous + d)))
+                {
+                    break;
+                }
+            }
+            if (different)
+            {
+                name++;
+                previous = position;
+            }
+            // LMS positions are at least two apart, so position / 2 is a unique slot in sa[n1, n)
+            sa[n1 + position / 2] = name - 1;
+        }
+        for (int i = n - 1, j = n - 1; i >= n1; i--)
+        {
+            if (sa[i] >= 0)
+            {
+                sa[j--] = sa[i];
+            }
+        }
+
+        // sort the LMS suffixes, recursing if two LMS substrings share a name
+        int[] s1 = Arrays.copyOfRange(sa, n - n1, n);
+        int[] sa1 = new int[n1];
+        if (name < n1)
+        {
+            sais(s1, sa1, n1, name);
+        }
+        else
+        {
+            for (int i = 0; i < n1; i++)
+            {
+                sa1[s1[i]] = i;
+            }
+        }
+
+        // place the sorted LMS suffixes at the ends of their buckets and induce the order of the rest
+        for (int i = 1, j = 0; i < n; i++)
+        {
+            if (isLms(sType, i))
+            {
+                s1[j++] = i;
+            }
+        }
+        Arrays.fill(sa, 0, n, -1);
+        bucketEnds(s, n, bucket, alphabet);
+        for (int i = n1 - 1; i >= 0; i--)
+        {
+            int position = s1[sa1[i]];
+            sa[--bucket[s[position]]] = position;
+        }
+        induce(s, sa, sType, n, bucket, alphabet);
+    }
+
+    /**
+     * Induces the order of the L-type suffixes from the sorted positions in {@code sa}, then the S-type ones
+     */
+    private static void induce(int[] s, int[] sa, boolean[] sType, int n, int[] bucket, int alphabet)
+    {
+        bucketStarts(s, n, bucket, alphabet);
+        for (int i = 0; i < n; i++)
+        {
+            int j = sa[i] - 1;
+            if (j >= 0 && !sType[j])
+            {
+                sa[bucket[s[j]]++] = j;
+            }
+        }
+        bucketEnds(s, n, bucket, alphabet);
+        for (int i = n - 1; i >= 0; i--)
+        {
+            int j = sa[i] - 1;
+            if (j >= 0 && sType[j])
+            {
+                sa[--bucket[s[j]]] = j;
+            }
+        }
+    }
+
+    /**
+     * Determines whether the suffix at {@code i} is a leftmost S-type suffix
+     */
+    private static boolean isLms(boolean[] sType, int i)
+    {
+        return i > 0 && sType[i] && !sType[i - 1];
+    }
+
+    /**
+     * Sets bucket[c] to the index in the suffix array where suffixes starting with c begin
+     */
+    private static void bucketStarts(int[] s, int n, int[] bucket, int alphabet)
+    {
+        countCharacters(s, n, bucket, alphabet);
+        int sum = 0;
+        for (int c = 0; c < alphabet; c++)
+        {
+            int count = bucket[c];
+            bucket[c] = sum;
+            sum += count;
+        }
+    }
+
+    /**
+     * Sets bucket[c] to the index in the suffix array just past the suffixes starting with c
+     */
+    private static void bucketEnds(int[] s, int n, int[] bucket, int alphabet)
+    {
+        countCharacters(s, n, bucket, alphabet);
+        int sum = 0;
+        for (int c = 0; c < alphabet; c++)
+        {
+            sum += bucket[c];
+            bucket[c] = sum;
+        }
+    }
+
+    /**
+     * Sets bucket[c] to the number of occurrences of c in s[0, n)
+     */
+    private static void countCharacters(int[] s, int n, int[] bucket, int alphabet)
+    {
+        Arrays.fill(bucket, 0, alphabet, 0);
+        for (int i = 0; i < n; i++)
+        {
+            bucket[s[i]]++;
+        }
+    }
+}
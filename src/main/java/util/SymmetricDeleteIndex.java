@@ -0,0 +1,371 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a set of words that can be searched for the words closest to a misspelling, using the symmetric
+ * delete method of SymSpell. Every string obtained by deleting up to two characters from the first seven
+ * characters of each word is hashed, and the (hash, word) pairs are kept sorted in two int arrays behind a
+ * directory on the top bits of the hash. A lookup generates the same deletes of the misspelling, so the only
+ * words whose distance is computed are those sharing a delete with it, and no strings are created but the
+ * results. Words added after the index is built are compared directly until there are enough to rebuild it.
+ * A lookup builds the index when it is due and reuses scratch space, so lookups and additions are synchronized
+ * and one index can be shared by several threads, though they look words up one at a time.
+ */
+public class SymmetricDeleteIndex
+{
+    /** The largest edit distance a suggestion may be from the word it is for. */
+    public static final int MAX_DISTANCE = 2;
+    /** Only deletes of the first PREFIX_LENGTH characters of a word are indexed, as in SymSpell. */
+    static final int PREFIX_LENGTH = 7;
+    /** The number of top bits of the hash that select a directory entry. */
+    static final int DIRECTORY_BITS = 15;
+
+    // the words, back to back in chars; word i is chars[starts[i], starts[i + 1])
+    char[] chars;
+    int[] starts;
+    int size;
+
+    // the deletes of the first indexed words, as sorted 31-bit hashes with the word each came from
+    int indexed;
+    int[] hashes;
+    int[] ids;
+    int[] directory;
+
+    // per-lookup scratch space: the lookup each word was last seen in, and rows for the distance
+    int[] seen;
+    int lookup;
+    int[][] rows;
+
+    /**
+     * Creates an empty SymmetricDeleteIndex
+     */
+    public SymmetricDeleteIndex()
+    {
+        chars = new char[1 << 10];
+        starts = new int[1 << 8];
+        hashes = new int[0];
+        ids = new int[0];
+        directory = new int[(1 << DIRECTORY_BITS) + 1];
+        seen = new int[0];
+        rows = new int[3][0];
+    }
+
+    /**
+     * Adds {@code word} to the words that can be suggested
+     */
+    public synchronized void add(CharSequence word)
+    {
+        int end = starts[size] + word.length();
+        if (end > chars.length)
+        {
+            chars = Arrays.copyOf(chars, Math.max(end, 2 * chars.length));
+        }
+        for (int i = 0; i < word.length(); i++)
+        {
+            chars[starts[size] + i] = word.charAt(i);
+        }
+        if (size + 2 > starts.length)
+        {
+            starts = Arrays.copyOf(starts, 2 * starts.length);
+        }
+        starts[++size] = end;
+    }
+
+    /**
+     * Gets the number of words added
+     * @return The number of words that can be suggested
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns up to {@code limit} of the words within {@link #MAX_DISTANCE} edits of {@code word}, counting
+     * insertions, deletions, substitutions and transpositions of adjacent characters. The closest words come
+     * first, ties broken alphabetically; a word in the set is its own first suggestion.
+     */
+    public synchronized List<String> suggest(CharSequence word, int limit)
+    {
+        if (size - indexed > indexed / 8)
+        {
+            build();
+        }
+        if (seen.length < size)
+        {
+            seen = Arrays.copyOf(seen, Math.max(size, 2 * seen.length));
+        }
+        if (++lookup == 0)
+        {
+            Arrays.fill(seen, 0);
+            lookup = 1;
+        }
+        // candidates are packed as distance << 32 | word so that sorting them ranks by distance
+        long[] found = new long[16];
+        int numFound = 0;
+        int prefix = Math.min(word.length(), PREFIX_LENGTH);
+        // a and b are the offsets of the deleted characters, with b == a deleting only one and a == -1 none
+        for (int a = -1; a < prefix; a++)
+        {
+            for (int b = a; b < prefix; b++)
+            {
+                int hash = hash(word, 0, prefix, a, b == a ? -1 : b);
+                int i = lowerBound(hash);
+                for (; i < hashes.length && hashes[i] == hash; i++)
+                {
+                    int id = ids[i];
+                    if (seen[id] != lookup)
+                    {
+                        seen[id] = lookup;
+                        int distance = distance(word, id);
+                        if (distance <= MAX_DISTANCE)
+                        {
+                            if (numFound == found.length)
+                            {
+                                found = Arrays.copyOf(found, 2 * numFound);
+                            }
+                            found[numFound++] = (long) distance << 32 | id;
+                        }
+                    }
+                }
+                if (a < 0)
+                {
+                    break;
+                }
+            }
+        }
+        for (int id = indexed; id < size; id++)
+        {
+            int distance = distance(word, id);
+            if (distance <= MAX_DISTANCE)
+            {
+                if (numFound == found.length)
+                {
+                    found = Arrays.copyOf(found, 2 * numFound);
+                }
+                found[numFound++] = (long) distance << 32 | id;
+            }
+        }
+        Arrays.sort(found, 0, numFound);
+        List<String> suggestions = new ArrayList<>();
+        for (int lo = 0; lo < numFound && suggestions.size() < limit; )
+        {
+            // sort each run of words at the same distance alphabetically, dropping duplicates
+            int hi = lo;
+            while (hi < numFound && found[hi] >>> 32 == found[lo] >>> 32)
+            {
+                hi++;
+            }
+            List<String> tied = new ArrayList<>(hi - lo);
+            for (int i = lo; i < hi; i++)
+            {
+                int id = (int) found[i];
+                tied.add(new String(chars, starts[id], starts[id + 1] - starts[id]));
+            }
+            tied.sort(null);
+            for (int i = 0; i < tied.size() && suggestions.size() < limit; i++)
+            {
+                if (i == 0 || !tied.get(i).equals(tied.get(i - 1)))
+                {
+                    suggestions.add(tied.get(i));
+                }
+            }
+            lo = hi;
+        }
+        return suggestions;
+    }
+
+    /**
+     * Gets the number of bytes used by the index and the words
+     * @return The number of bytes used by this index
+     */
+    public synchronized long byteCount()
+    {
+        return 2L * chars.length + 4L * starts.length + 4L * hashes.length + 4L * ids.length
+                + 4L * directory.length;
+    }
+
+    /**
+     * Indexes the deletes of every word added so far
+     */
+    private void build()
+    {
+        long[] pairs = new long[Math.max(size, 1) * 8];
+        int numPairs = 0;
+        for (int id = 0; id < size; id++)
+        {
+            int start = starts[id];
+            int prefix = Math.min(starts[id + 1] - start, PREFIX_LENGTH);
+            for (int a = -1; a < prefix; a++)
+            {
+                for (int b = a; b < prefix; b++)
+                {
+                    if (numPairs == pairs.length)
+                    {
+                        pairs = Arrays.copyOf(pairs, 2 * numPairs);
+                    }
+                    pairs[numPairs++] = (long) hash(chars, start, prefix, a, b == a ? -1 : b) << 32 | id;
+                    if (a < 0)
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+        Arrays.sort(pairs, 0, numPairs);
+        // the same delete can come from a word more than once, as "ab" does from "aab"
+        int unique = 0;
+        for (int i = 0; i < numPairs; i++)
+        {
+            if (i == 0 || pairs[i] != pairs[i - 1])
+            {
+                pairs[unique++] = pairs[i];
+            }
+        }
+        hashes = new int[unique];
+        ids = new int[unique];
+        for (int i = 0; i < unique; i++)
+        {
+            hashes[i] = (int) (pairs[i] >>> 32);
+            ids[i] = (int) pairs[i];
+        }
+        // directory[d] is the first entry whose hash has top bits d
+        for (int d = 0, i = 0; d <= 1 << DIRECTORY_BITS; d++)
+        {
+            while (i < unique && hashes[i] >>> (31 - DIRECTORY_BITS) < d)
+            {
+                i++;
+            }
+            directory[d] = i;
+        }
+        indexed = size;
+    }
+
+    /**
+     * Returns the index of the first entry whose hash is at least {@code hash}
+     */
+    private int lowerBound(int hash)
+    {
+        int d = hash >>> (31 - DIRECTORY_BITS);
+        int lo = directory[d];
+        int hi = directory[d + 1];
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (hashes[mid] < hash)
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the edit distance between {@code word} and word {@code id}, or MAX_DISTANCE + 1 if it is larger,
+     * with the optimal string alignment algorithm
+     */
+    private int distance(CharSequence word, int id)
+    {
+        int start = starts[id];
+        int m = word.length();
+        int n = starts[id + 1] - start;
+        if (Math.abs(m - n) > MAX_DISTANCE)
+        {
+            return MAX_DISTANCE + 1;
+        }
+        if (rows[0].length <= n)
+        {
+            for (int r = 0; r < rows.length; r++)
+            {
+                rows[r] = new int[2 * n + 1];
+            }
+        }
+        // rows[0] is two rows back, rows[1] the previous row and rows[2] the current one
+        int[] twoBack = rows[0];
+        int[] previous = rows[1];
+        int[] current = rows[2];
+        for (int j = 0; j <= n; j++)
+        {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= m; i++)
+        {
+            current[0] = i;
+            int rowMin = i;
+            char c = word.charAt(i - 1);
+            for (int j = 1; j <= n; j++)
+            {
+                char d = chars[start + j - 1];
+                int cost = c == d ? 0 : 1;
+                int best = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && c == chars[start + j - 2] && word.charAt(i - 2) == d)
+                {
+                    best = Math.min(best, twoBack[j - 2] + 1);
+                }
+                current[j] = best;
+                rowMin = Math.min(rowMin, best);
+            }
+            if (rowMin > MAX_DISTANCE)
+            {
+                return MAX_DISTANCE + 1;
+            }
+            int[] recycled = twoBack;
+            twoBack = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[n], MAX_DISTANCE + 1);
+    }
+
+    /**
+     * Hashes {@code s[start, start + length)} with the characters at offsets {@code a} and {@code b} left out,
+     * where -1 leaves out nothing, to a non-negative int
+     */
+    private static int hash(CharSequence s, int start, int length, int a, int b)
+    {
+        int h = length - (a >= 0 ? 1 : 0) - (b >= 0 ? 1 : 0);
+        for (int i = 0; i < length; i++)
+        {
+            if (i != a && i != b)
+            {
+                h = 31 * h + s.charAt(start + i);
+            }
+        }
+        return mix(h);
+    }
+
+    /**
+     * Hashes {@code s[start, start + length)} like {@link #hash(CharSequence, int, int, int, int)}
+     */
+    private static int hash(char[] s, int start, int length, int a, int b)
+    {
+        int h = length - (a >= 0 ? 1 : 0) - (b >= 0 ? 1 : 0);
+        for (int i = 0; i < length; i++)
+        {
+            if (i != a && i != b)
+            {
+                h = 31 * h + s[start + i];
+            }
+        }
+        return mix(h);
+    }
+
+    /**
+     * Spreads the bits of {@code h} so that the top ones, which choose the directory entry, depend on all of them
+     */
+    private static int mix(int h)
+    {
+        h *= 0x9E3779B9;
+        h ^= h >>> 15;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h & Integer.MAX_VALUE;
+    }
+}
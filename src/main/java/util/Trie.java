@@ -12,6 +12,7 @@ import java.util.Set;
 public class Trie
 {
     TrieNode root;
+    int modCount;
 
     /**
      * Create an empty trie.
@@ -21,6 +22,23 @@ public class Trie
         root = new TrieNode("", false);
     }
 
+    /**
+     * Get the node that the empty string reaches, from which every other node is reached a character at a time
+     */
+    public TrieNode getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * Get the number of changes made to the collection, so that nodes kept from before a change can be
+     * recognized as stale
+     */
+    public int modCount()
+    {
+        return modCount;
+    }
+
     /**
      * Add {@code elem} to the collection.
      */
@@ -39,6 +57,7 @@ public class Trie
             curr = children.get(character);
         }
         curr.changeEnd(true);
+        modCount++;
     }
 
     /**
@@ -63,6 +82,7 @@ public class Trie
                 curr = children.get(character);
             }
             lastUsed.getChildren().remove(nextChar);
+            modCount++;
         }
     }
 
@@ -110,6 +130,15 @@ public class Trie
                 return null;
             }
         }
+        return closestWordFrom(curr, prefix);
+    }
+
+    /**
+     * Return a word contained in the trie of minimal length with {@code prefix}, where {@code curr} is the node
+     * reached from the root by the characters of {@code prefix}. If no such word exists, return null.
+     */
+    public String closestWordFrom(TrieNode curr, String prefix)
+    {
         if (curr.isEnd())
         {
             return prefix;
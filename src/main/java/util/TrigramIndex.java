@@ -0,0 +1,419 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Represents a text together with an inverted index of the positions of its trigrams (runs of three characters),
+ * which is kept up to date as the text is edited. The text is divided into blocks of a few thousand characters
+ * and each block indexes the trigrams that start in it by their position within the block, so an edit only
+ * reindexes the blocks it touches and never renumbers the rest. Queries of three or more characters look up the
+ * positions of their rarest trigram and verify only those, so the time taken depends on how often the query's
+ * trigrams occur rather than on the length of the text.
+ */
+public class TrigramIndex
+{
+    /** The default number of characters in a block. */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 13;
+    /** Positions within a block are stored in the low 16 bits of a posting, so blocks stay below this length. */
+    static final int MAX_BLOCK_LENGTH = 1 << 16;
+
+    StringBuilder text;
+    int blockSize;
+
+    // block b covers lengths[b] characters of the text; its postings are (trigram << 16 | position in block),
+    // sorted, so the positions of one trigram are consecutive and in increasing order
+    int numBlocks;
+    int[] lengths;
+    long[][] postings;
+
+    // the number of occurrences of each trigram in the whole text, in an open-addressed table keyed by
+    // trigram + 1 so that 0 marks an empty slot
+    long[] countKeys;
+    int[] counts;
+    int countSlotsUsed;
+
+    /**
+     * Indexes {@code text} in blocks of the default size.
+     */
+    public TrigramIndex(CharSequence text)
+    {
+        this(text, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Indexes {@code text} in blocks of about {@code blockSize} characters.
+     *
+     * @param text The text to index, which is copied
+     * @param blockSize The number of characters per block; smaller blocks make edits cheaper and queries dearer
+     */
+    public TrigramIndex(CharSequence text, int blockSize)
+    {
+        this.text = new StringBuilder(text);
+        this.blockSize = Math.min(Math.max(blockSize, 1), MAX_BLOCK_LENGTH / 2);
+        lengths = new int[16];
+        postings = new long[16][];
+        countKeys = new long[1 << 10];
+        counts = new int[countKeys.length];
+        splice(0, 0, 0, this.text.length());
+    }
+
+    /**
+     * Gets the length of the indexed text
+     * @return The number of characters in the text
+     */
+    public int length()
+    {
+        return text.length();
+    }
+
+    /**
+     * Gets the indexed text, which must not be modified except through {@link #replace(int, int, CharSequence)}
+     * @return The current text
+     */
+    public CharSequence text()
+    {
+        return text;
+    }
+
+    /**
+     * Replaces the characters in {@code [start, end)} with {@code replacement} and updates the index, reindexing
+     * only the blocks that hold the trigrams the edit changes.
+     *
+     * @throws IndexOutOfBoundsException If start and end are not a range within the text
+     */
+    public void replace(int start, int end, CharSequence replacement)
+    {
+        int n = text.length();
+        if (start < 0 || end > n || start > end)
+        {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") is not within length " + n);
+        }
+        if (start == end && replacement.length() == 0)
+        {
+            return;
+        }
+        // trigrams starting from start - 2 up to end read a changed character
+        int first = Math.max(start - 2, 0);
+        int last = Math.max(first, end - 1);
+        int firstBlock = 0;
+        int spanStart = 0;
+        while (firstBlock < numBlocks - 1 && spanStart + lengths[firstBlock] <= first)
+        {
+            spanStart += lengths[firstBlock++];
+        }
+        int lastBlock = firstBlock;
+        int spanEnd = numBlocks == 0 ? 0 : spanStart + lengths[firstBlock];
+        while (lastBlock < numBlocks - 1 && spanEnd <= last)
+        {
+            spanEnd += lengths[++lastBlock];
+        }
+        int delta = replacement.length() - (end - start);
+        // fold a shrinking span into the next block rather than leave a sliver of a block behind
+        if (spanEnd - spanStart + delta < blockSize / 2 && lastBlock < numBlocks - 1)
+        {
+            spanEnd += lengths[++lastBlock];
+        }
+        int removed = numBlocks == 0 ? 0 : lastBlock - firstBlock + 1;
+        for (int b = firstBlock; b < firstBlock + removed; b++)
+        {
+            for (long posting : postings[b])
+            {
+                addCount(posting >>> 16, -1);
+            }
+        }
+        text.replace(start, end, replacement.toString());
+        splice(firstBlock, removed, spanStart, spanEnd + delta);
+    }
+
+    /**
+     * Returns the smallest position at or after {@code fromIndex} where {@code query} occurs in the text, or -1
+     * if there is none.
+     */
+    public int find(CharSequence query, int fromIndex)
+    {
+        int m = query.length();
+        fromIndex = Math.max(fromIndex, 0);
+        if (m < 3)
+        {
+            return fromIndex <= text.length() ? text.indexOf(query.toString(), fromIndex) : -1;
+        }
+        int offset = rarestTrigram(query);
+        long trigram = trigram(query, offset);
+        if (count(trigram) == 0)
+        {
+            return -1;
+        }
+        int blockStart = 0;
+        for (int b = 0; b < numBlocks; blockStart += lengths[b++])
+        {
+            if (blockStart + lengths[b] - offset <= fromIndex)
+            {
+                continue;
+            }
+            long[] list = postings[b];
+            for (int i = lowerBound(list, trigram << 16); i < list.length && list[i] >>> 16 == trigram; i++)
+            {
+                int position = blockStart + (int) (list[i] & 0xFFFF) - offset;
+                if (position >= fromIndex && matches(query, position))
+                {
+                    return position;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns every position where {@code query} occurs in the text, in increasing order.
+     */
+    public int[] findAll(CharSequence query)
+    {
+        int m = query.length();
+        int[] found = new int[16];
+        int size = 0;
+        if (m < 3)
+        {
+            for (int i = find(query, 0); i >= 0; i = find(query, i + 1))
+            {
+                if (size == found.length)
+                {
+                    found = Arrays.copyOf(found, size * 2);
+                }
+                found[size++] = i;
+            }
+            return Arrays.copyOf(found, size);
+        }
+        int offset = rarestTrigram(query);
+        long trigram = trigram(query, offset);
+        if (count(trigram) == 0)
+        {
+            return new int[0];
+        }
+        int blockStart = 0;
+        for (int b = 0; b < numBlocks; blockStart += lengths[b++])
+        {
+            long[] list = postings[b];
+            for (int i = lowerBound(list, trigram << 16); i < list.length && list[i] >>> 16 == trigram; i++)
+            {
+                int position = blockStart + (int) (list[i] & 0xFFFF) - offset;
+                if (position >= 0 && matches(query, position))
+                {
+                    if (size == found.length)
+                    {
+                        found = Arrays.copyOf(found, size * 2);
+                    }
+                    found[size++] = position;
+                }
+            }
+        }
+        return Arrays.copyOf(found, size);
+    }
+
+    /**
+     * Gets the number of bytes used by the index, not counting the text
+     * @return The number of bytes used by the postings and trigram counts
+     */
+    public long byteCount()
+    {
+        long bytes = 12L * countKeys.length + 4L * lengths.length;
+        for (int b = 0; b < numBlocks; b++)
+        {
+            bytes += 8L * postings[b].length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Replaces the {@code removed} blocks starting at block {@code at} with new blocks covering
+     * {@code text[spanStart, spanEnd)}, indexing the trigrams that start in them
+     */
+    private void splice(int at, int removed, int spanStart, int spanEnd)
+    {
+        int span = spanEnd - spanStart;
+        // split the span into blocks of blockSize characters, the last taking the remainder
+        int added = span <= 2 * blockSize ? (span > 0 ? 1 : 0) : span / blockSize;
+        int newNumBlocks = numBlocks - removed + added;
+        if (newNumBlocks > lengths.length)
+        {
+            int capacity = Math.max(newNumBlocks, 2 * lengths.length);
+            lengths = Arrays.copyOf(lengths, capacity);
+            postings = Arrays.copyOf(postings, capacity);
+        }
+        System.arraycopy(lengths, at + removed, lengths, at + added, numBlocks - at - removed);
+        System.arraycopy(postings, at + removed, postings, at + added, numBlocks - at - removed);
+        Arrays.fill(postings, newNumBlocks, Math.max(numBlocks, newNumBlocks), null);
+        numBlocks = newNumBlocks;
+        int blockStart = spanStart;
+        for (int b = at; b < at + added; b++)
+        {
+            int length = b == at + added - 1 ? spanEnd - blockStart : blockSize;
+            int starts = Math.max(Math.min(length, text.length() - 2 - blockStart), 0);
+            long[] list = new long[starts];
+            for (int i = 0; i < starts; i++)
+            {
+                long trigram = trigram(text, blockStart + i);
+                list[i] = trigram << 16 | i;
+                addCount(trigram, 1);
+            }
+            Arrays.sort(list);
+            lengths[b] = length;
+            postings[b] = list;
+            blockStart += length;
+        }
+    }
+
+    /**
+     * Returns the offset in {@code query} of the trigram that occurs least often in the text
+     */
+    private int rarestTrigram(CharSequence query)
+    {
+        int best = 0;
+        int bestCount = Integer.MAX_VALUE;
+        for (int i = 0; i + 3 <= query.length(); i++)
+        {
+            int count = count(trigram(query, i));
+            if (count < bestCount)
+            {
+                best = i;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Determines whether {@code query} occurs in the text at {@code position}
+     */
+    private boolean matches(CharSequence query, int position)
+    {
+        if (position + query.length() > text.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < query.length(); i++)
+        {
+            if (text.charAt(position + i) != query.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the three characters of {@code s} at {@code i} packed into the low 48 bits of a long
+     */
+    private static long trigram(CharSequence s, int i)
+    {
+        return (long) s.charAt(i) << 32 | (long) s.charAt(i + 1) << 16 | s.charAt(i + 2);
+    }
+
+    /**
+     * Returns the index of the first element of the sorted array {@code list} that is at least {@code key}
+     */
+    private static int lowerBound(long[] list, long key)
+    {
+        int lo = 0;
+        int hi = list.length;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (list[mid] < key)
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the number of occurrences of {@code trigram} in the text
+     */
+    private int count(long trigram)
+    {
+        int mask = countKeys.length - 1;
+        for (int i = slot(trigram, mask); countKeys[i] != 0; i = (i + 1) & mask)
+        {
+            if (countKeys[i] == trigram + 1)
+            {
+                return counts[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds {@code delta} to the number of occurrences of {@code trigram}
+     */
+    private void addCount(long trigram, int delta)
+    {
+        int mask = countKeys.length - 1;
+        int i = slot(trigram, mask);
+        while (countKeys[i] != 0 && countKeys[i] != trigram + 1)
+        {
+            i = (i + 1) & mask;
+        }
+        if (countKeys[i] == 0)
+        {
+            if (2 * (countSlotsUsed + 1) > countKeys.length)
+            {
+                resizeCounts();
+                addCount(trigram, delta);
+                return;
+            }
+            countKeys[i] = trigram + 1;
+            countSlotsUsed++;
+        }
+        counts[i] += delta;
+    }
+
+    /**
+     * Rehashes the trigram counts into a table sized for the trigrams still present, dropping the ones whose
+     * count has fallen to zero
+     */
+    private void resizeCounts()
+    {
+        long[] oldKeys = countKeys;
+        int[] oldCounts = counts;
+        int live = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != 0 && oldCounts[i] != 0)
+            {
+                live++;
+            }
+        }
+        int capacity = Integer.highestOneBit(Math.max(4 * live, 1 << 10) - 1) << 1;
+        countKeys = new long[capacity];
+        counts = new int[capacity];
+        countSlotsUsed = 0;
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldKeys[j] != 0 && oldCounts[j] != 0)
+            {
+                int i = slot(oldKeys[j] - 1, mask);
+                while (countKeys[i] != 0)
+                {
+                    i = (i + 1) & mask;
+                }
+                countKeys[i] = oldKeys[j];
+                counts[i] = oldCounts[j];
+                countSlotsUsed++;
+            }
+        }
+    }
+
+    /**
+     * Returns the home slot of {@code trigram} in a table of mask + 1 slots
+     */
+    private static int slot(long trigram, int mask)
+    {
+        long h = trigram * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 40) & mask;
+    }
+}
@@ -0,0 +1,194 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Splits text into whitespace-separated tokens and normalizes each into a word for spell checking, in one pass
+ * over the text and without creating any strings. The tokens are exactly those of
+ * {@code text.split("\\s+")}, including the empty first token when the text starts with whitespace, and each
+ * word is what {@code token.toLowerCase().replaceAll("[^\\w]", "")} would give: the token lowercased, keeping
+ * only ASCII letters, digits and underscores. The words are written back to back into a buffer that is reused
+ * by the next call.
+ */
+public class WordTokenizer
+{
+    /**
+     * What each ASCII character becomes in a word: whitespace becomes ' ', which ends the token, letters become
+     * lowercase, digits and underscores stay, and everything else becomes 0, which is dropped. Outside ASCII,
+     * only dotted capital I and the Kelvin sign lowercase into a kept character, 'i' and 'k'.
+     */
+    private static final char[] ASCII = new char[128];
+
+    static
+    {
+        for (char c = 0; c < ASCII.length; c++)
+        {
+            if (isWhitespace(c))
+            {
+                ASCII[c] = ' ';
+            }
+            else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_')
+            {
+                ASCII[c] = c;
+            }
+            else if (c >= 'A' && c <= 'Z')
+            {
+                ASCII[c] = (char) (c + ('a' - 'A'));
+            }
+        }
+    }
+
+    // token i is text[tokenStarts[i], tokenEnds[i]) and its word is words[wordStarts[i], wordStarts[i + 1])
+    int count;
+    int[] tokenStarts;
+    int[] tokenEnds;
+    char[] words;
+    int[] wordStarts;
+    char[] source;
+
+    /**
+     * Creates a WordTokenizer
+     */
+    public WordTokenizer()
+    {
+        tokenStarts = new int[16];
+        tokenEnds = new int[16];
+        words = new char[64];
+        wordStarts = new int[17];
+        source = new char[words.length];
+    }
+
+    /**
+     * Splits {@code text} into tokens and words, replacing the ones from the previous call.
+     */
+    public void tokenize(CharSequence text)
+    {
+        count = 0;
+        int n = text.length();
+        if (words.length < n)
+        {
+            words = new char[Math.max(n, 2 * words.length)];
+            source = new char[words.length];
+        }
+        // scanning a char array is much faster than calling charAt through the CharSequence interface
+        char[] source = this.source;
+        if (text instanceof String)
+        {
+            ((String) text).getChars(0, n, source, 0);
+        }
+        else if (text instanceof StringBuilder)
+        {
+            ((StringBuilder) text).getChars(0, n, source, 0);
+        }
+        else
+        {
+            for (int i = 0; i < n; i++)
+            {
+                source[i] = text.charAt(i);
+            }
+        }
+        int i = 0;
+        while (i < n && isWhitespace(source[i]))
+        {
+            i++;
+        }
+        if (n == 0 || (i > 0 && i < n))
+        {
+            // split gives a single empty token for empty text, and an empty first token before leading
+            // whitespace unless the text is all whitespace
+            addToken(0, 0, 0);
+        }
+        char[] words = this.words;
+        int length = 0;
+        while (i < n)
+        {
+            int start = i;
+            for (; i < n; i++)
+            {
+                char c = source[i];
+                char normal = c < ASCII.length ? ASCII[c] : c == '\u0130' ? 'i' : c == '\u212A' ? 'k' : 0;
+                if (normal == ' ')
+                {
+                    break;
+                }
+                words[length] = normal;
+                length += normal != 0 ? 1 : 0;
+            }
+            addToken(start, i, length);
+            while (i < n && isWhitespace(source[i]))
+            {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tokens found by the last call to {@link #tokenize(CharSequence)}
+     * @return The number of tokens
+     */
+    public int count()
+    {
+        return count;
+    }
+
+    /**
+     * Gets where token {@code i} starts in the text
+     * @return The index of the first character of token i
+     */
+    public int tokenStart(int i)
+    {
+        return tokenStarts[i];
+    }
+
+    /**
+     * Gets where token {@code i} ends in the text
+     * @return The index just past the last character of token i
+     */
+    public int tokenEnd(int i)
+    {
+        return tokenEnds[i];
+    }
+
+    /**
+     * Gets the buffer holding the normalized words, which is overwritten by the next call to
+     * {@link #tokenize(CharSequence)}
+     * @return The characters of every word, back to back
+     */
+    public char[] words()
+    {
+        return words;
+    }
+
+    /**
+     * Gets where each word starts in {@link #words()}; word i ends where word i + 1 starts
+     * @return An array of at least count() + 1 offsets
+     */
+    public int[] wordStarts()
+    {
+        return wordStarts;
+    }
+
+    /**
+     * Records the token {@code text[start, end)}, whose word ends at {@code wordEnd} in the buffer
+     */
+    private void addToken(int start, int end, int wordEnd)
+    {
+        if (count == tokenStarts.length)
+        {
+            tokenStarts = Arrays.copyOf(tokenStarts, 2 * count);
+            tokenEnds = Arrays.copyOf(tokenEnds, 2 * count);
+            wordStarts = Arrays.copyOf(wordStarts, 2 * count + 1);
+        }
+        tokenStarts[count] = start;
+        tokenEnds[count] = end;
+        wordStarts[++count] = wordEnd;
+    }
+
+    /**
+     * Determines whether {@code c} is whitespace as the regular expression \s defines it
+     */
+    public static boolean isWhitespace(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,201 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Represents an immutable collection of elements of type E for which the only operation is a probabilistic
+ * membership test. Each element is mapped to three slots of an array of 8-bit fingerprints whose XOR is the
+ * element's own fingerprint, which takes about 9.84 bits per element for a false positive rate of about 0.4%.
+ */
+public class XorFilter<E>
+{
+    byte[] fingerprints;
+    int blockLength;
+    long seed;
+    int numElements;
+
+    /**
+     * Create a new xor filter containing exactly the elements of {@code elems}. Elements with equal hash codes
+     * are indistinguishable to the filter and are stored once.
+     *
+     * @param elems The collection of elements to be added to this filter
+     */
+    public XorFilter(Collection<E> elems)
+    {
+        int[] keys = new int[elems.size()];
+        int numKeys = 0;
+        for (E elem : elems)
+        {
+            keys[numKeys++] = elem.hashCode();
+        }
+        build(keys, numKeys);
+    }
+
+    /**
+     * Create a new xor filter containing the elements whose hash codes are the first {@code numKeys} entries of
+     * {@code keys}. The array is sorted in place.
+     *
+     * @param keys The hash codes of the elements to be added to this filter
+     * @param numKeys The number of entries of {@code keys} to use
+     */
+    public XorFilter(int[] keys, int numKeys)
+    {
+        build(keys, numKeys);
+    }
+
+    /**
+     * Fills in the fingerprint array by repeatedly peeling slots that only one key maps to, retrying with a new
+     * seed in the rare case that the keys' slots contain a cycle.
+     */
+    private void build(int[] keys, int numKeys)
+    {
+        Arrays.sort(keys, 0, numKeys);
+        int distinct = 0;
+        for (int i = 0; i < numKeys; i++)
+        {
+            if (distinct == 0 || keys[distinct - 1] != keys[i])
+            {
+                keys[distinct++] = keys[i];
+            }
+        }
+        numElements = distinct;
+        blockLength = (32 + (int) Math.ceil(1.23 * distinct)) / 3;
+        int capacity = 3 * blockLength;
+        fingerprints = new byte[capacity];
+
+        int[] count = new int[capacity];
+        long[] xorMask = new long[capacity];
+        int[] queue = new int[capacity];
+        long[] stackHash = new long[distinct];
+        int[] stackIndex = new int[distinct];
+        seed = 0x9E3779B97F4A7C15L;
+        while (true)
+        {
+            Arrays.fill(count, 0);
+            Arrays.fill(xorMask, 0);
+            for (int i = 0; i < distinct; i++)
+            {
+                long h = mix(keys[i] + seed);
+                for (int j = 0; j < 3; j++)
+                {
+                    int index = index(h, j);
+                    xorMask[index] ^= h;
+                    count[index]++;
+                }
+            }
+            int queueSize = 0;
+            for (int i = 0; i < capacity; i++)
+            {
+                if (count[i] == 1)
+                {
+                    queue[queueSize++] = i;
+                }
+            }
+            int stackSize = 0;
+            while (queueSize > 0)
+            {
+                int index = queue[--queueSize];
+                if (count[index] != 1)
+                {
+                    continue;
+                }
+                long h = xorMask[index];
+                stackHash[stackSize] = h;
+                stackIndex[stackSize] = index;
+                stackSize++;
+                for (int j = 0; j < 3; j++)
+                {
+                    int other = index(h, j);
+                    xorMask[other] ^= h;
+                    if (--count[other] == 1)
+                    {
+                        queue[queueSize++] = other;
+                    }
+                }
+            }
+            if (stackSize == distinct)
+            {
+                break;
+            }
+            seed = mix(seed);
+        }
+
+        // assign in reverse peeling order so that each key's own slot is the last of its three to be written
+        for (int i = distinct - 1; i >= 0; i--)
+        {
+            long h = stackHash[i];
+            int index = stackIndex[i];
+            fingerprints[index] = 0;
+            fingerprints[index] = (byte) (fingerprint(h) ^ fingerprints[index(h, 0)] ^ fingerprints[index(h, 1)]
+                    ^ fingerprints[index(h, 2)]);
+        }
+    }
+
+    /**
+     * Check whether {@code elem} might be in the collection.
+     */
+    public boolean mightContain(E elem)
+    {
+        return mightContainHash(elem.hashCode());
+    }
+
+    /**
+     * Check whether an element with hash code {@code hashCode} might be in the collection.
+     */
+    public boolean mightContainHash(int hashCode)
+    {
+        long h = mix(hashCode + seed);
+        return fingerprint(h) == (fingerprints[index(h, 0)] ^ fingerprints[index(h, 1)] ^ fingerprints[index(h, 2)]);
+    }
+
+    /**
+     * Gets the number of distinct elements stored in this filter
+     * @return The number of distinct elements stored in this filter
+     */
+    public int size()
+    {
+        return numElements;
+    }
+
+    /**
+     * Gets the number of bits of fingerprint storage used by this filter
+     * @return The number of bits of fingerprint storage used by this filter
+     */
+    public long bitCount()
+    {
+        return (long) fingerprints.length * 8;
+    }
+
+    /**
+     * Finds the slot in block {@code block} that the hash {@code h} maps to
+     */
+    private int index(long h, int block)
+    {
+        long r = Long.rotateLeft(h, 21 * block) & 0xFFFFFFFFL;
+        return (int) ((r * blockLength) >>> 32) + block * blockLength;
+    }
+
+    /**
+     * Calculates the 8-bit fingerprint of the hash {@code h}
+     */
+    private static byte fingerprint(long h)
+    {
+        return (byte) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Scrambles the bits of {@code k} so that similar hash codes map to unrelated 64-bit hashes
+     * @param k The number to be mixed
+     * @return The mixed 64-bit hash of k
+     */
+    static long mix(long k)
+    {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,1154 @@
+package test;
+
+import editor.EditorModel;
+import editor.IncrementalSpellCheck;
+import editor.MarkupScanner;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import modules.BatchSpellCheck;
+import modules.AutoComplete;
+import modules.AutoCompleteModule;
+import modules.AutoCompleteSession;
+import modules.CachedSpellCheck;
+import modules.MappedFileSearch;
+import modules.ModuleFactory;
+import modules.ParallelSearch;
+import modules.SearchModule;
+import modules.SpellCheckModule;
+import util.*;
+
+/**
+ * Micro-benchmarks for the data structures in util and modules, run with {@code gradle benchmark}. Pass the
+ * names of the benchmarks to run with {@code --args}, or nothing to run them all.
+ */
+class Benchmark
+{
+	private static final String DICTIONARY = "files/USdict.txt";
+	private static final int ROUNDS = 5;
+
+	/** Results are summed into here so that the JIT cannot discard the work being timed. */
+	static volatile long sink;
+
+	public static void main(String[] args) throws IOException
+	{
+		List<String> selected = java.util.Arrays.asList(args);
+		if (selected.isEmpty() || selected.contains("filters"))
+		{
+			filters();
+		}
+		if (selected.isEmpty() || selected.contains("batch"))
+		{
+			batch();
+		}
+		if (selected.isEmpty() || selected.contains("search"))
+		{
+			search();
+		}
+		if (selected.isEmpty() || selected.contains("multi"))
+		{
+			multi();
+		}
+		if (selected.isEmpty() || selected.contains("index"))
+		{
+			index();
+		}
+		if (selected.isEmpty() || selected.contains("parallel"))
+		{
+			parallel();
+		}
+		if (selected.isEmpty() || selected.contains("file"))
+		{
+			file();
+		}
+		if (selected.isEmpty() || selected.contains("options"))
+		{
+			options();
+		}
+		if (selected.isEmpty() || selected.contains("trigram"))
+		{
+			trigram();
+		}
+		if (selected.isEmpty() || selected.contains("suggest"))
+		{
+			suggest();
+		}
+		if (selected.isEmpty() || selected.contains("phonetic"))
+		{
+			phonetic();
+		}
+		if (selected.isEmpty() || selected.contains("tokenize"))
+		{
+			tokenize();
+		}
+		if (selected.isEmpty() || selected.contains("markup"))
+		{
+			markup();
+		}
+		if (selected.isEmpty() || selected.contains("incremental"))
+		{
+			incremental();
+		}
+		if (selected.isEmpty() || selected.contains("cache"))
+		{
+			cache();
+		}
+		if (selected.isEmpty() || selected.contains("scaling"))
+		{
+			scaling();
+		}
+		if (selected.isEmpty() || selected.contains("session"))
+		{
+			session();
+		}
+		if (selected.isEmpty() || selected.contains("load"))
+		{
+			load();
+		}
+		if (selected.isEmpty() || selected.contains("piece"))
+		{
+			piece();
+		}
+	}
+
+	/**
+	 * Compares the approximate-set backends of SpellCheck on the US dictionary: bits per word, false positive
+	 * rate on absent words, build time and query throughput.
+	 */
+	static void filters() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		List<String> absent = new ArrayList<>();
+		for (int i = 0; i < words.size(); i++)
+		{
+			absent.add(words.get(i) + "qx" + i);
+		}
+		int n = words.size();
+		System.out.println("filters: " + n + " words");
+		System.out.println("backend      bits/word   fpp%     build ms   queries/s");
+
+		// a Bloom filter of 12 bits per word with 8 hash functions targets a similar 0.4% false positive rate
+		long start = System.nanoTime();
+		BloomFilter<String> bloom = null;
+		for (int r = 0; r < ROUNDS; r++)
+		{
+			bloom = new BloomFilter<String>(words, n * 12 / 8, 8);
+		}
+		double bloomBuild = (System.nanoTime() - start) / 1e6 / ROUNDS;
+		BloomFilter<String> bloomFilter = bloom;
+		report("bloom", n * 12 / 8 * 8L, n, bloomBuild, absent, bloomFilter::mightContain, words);
+
+		start = System.nanoTime();
+		XorFilter<String> xor = null;
+		for (int r = 0; r < ROUNDS; r++)
+		{
+			xor = new XorFilter<String>(words);
+		}
+		double xorBuild = (System.nanoTime() - start) / 1e6 / ROUNDS;
+		XorFilter<String> xorFilter = xor;
+		report("xor", xorFilter.bitCount(), n, xorBuild, absent, xorFilter::mightContain, words);
+
+		start = System.nanoTime();
+		CuckooFilter<String> cuckoo = null;
+		for (int r = 0; r < ROUNDS; r++)
+		{
+			cuckoo = new CuckooFilter<String>(n);
+			for (String word : words)
+			{
+				cuckoo.insert(word);
+			}
+		}
+		double cuckooBuild = (System.nanoTime() - start) / 1e6 / ROUNDS;
+		CuckooFilter<String> cuckooFilter = cuckoo;
+		report("cuckoo", cuckooFilter.bitCount(), n, cuckooBuild, absent, cuckooFilter::mightContain, words);
+	}
+
+	/**
+	 * Compares checking a document's worth of words against a Bloom filter one at a time with checking them
+	 * in one call to mightContainAll.
+	 */
+	static void batch() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		BloomFilter<String> bloom = new BloomFilter<String>(words, words.size() * 12 / 8, 8);
+		// a document mixing known and unknown words, in an order unrelated to the filter's layout
+		String[] document = new String[1 << 20];
+		java.util.Random random = new java.util.Random(2112);
+		for (int i = 0; i < document.length; i++)
+		{
+			String word = words.get(random.nextInt(words.size()));
+			document[i] = random.nextInt(4) == 0 ? word + "x" : word;
+		}
+		boolean[] out = new boolean[document.length];
+		System.out.println("batch: " + document.length + " words");
+		for (int warmup = 0; warmup < 2; warmup++)
+		{
+			long start = System.nanoTime();
+			for (int r = 0; r < ROUNDS; r++)
+			{
+				for (int i = 0; i < document.length; i++)
+				{
+					out[i] = bloom.mightContain(document[i]);
+				}
+			}
+			double scalar = (double) ROUNDS * document.length / ((System.nanoTime() - start) / 1e9);
+			start = System.nanoTime();
+			for (int r = 0; r < ROUNDS; r++)
+			{
+				bloom.mightContainAll(document, out);
+			}
+			double batched = (double) ROUNDS * document.length / ((System.nanoTime() - start) / 1e9);
+			if (warmup == 1)
+			{
+				System.out.printf("scalar mightContain     %12.0f words/s%n", scalar);
+				System.out.printf("batched mightContainAll %12.0f words/s%n", batched);
+			}
+		}
+		sink += out[0] ? 1 : 0;
+	}
+
+	/**
+	 * Compares the search algorithms on a long natural-language document and on a repetitive document that
+	 * makes a naive search quadratic, reporting the time per search.
+	 */
+	static void search() throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		while (sb.length() < 8_000_000)
+		{
+			for (String word : words)
+			{
+				sb.append(word).append(' ');
+			}
+		}
+		String document = sb.toString();
+		String repetitive = "a".repeat(1_000_000);
+		String[][] cases = {
+				{"document", "qzxj", document},
+				{"document", "unreasonableness antidisestablishment", document},
+				{"repetitive", "a".repeat(500) + "b", repetitive},
+				{"repetitive", "b" + "a".repeat(500), repetitive}};
+		System.out.println("search: document " + document.length() + " chars, repetitive " + repetitive.length()
+				+ " chars");
+		System.out.println("text        query len  algorithm       ms/search");
+		for (String[] c : cases)
+		{
+			for (ModuleFactory.SearchAlgorithm algorithm : ModuleFactory.SearchAlgorithm.values())
+			{
+				SearchModule search = ModuleFactory.getSearchModule(algorithm);
+				double millis = timeSearch(search, c[1], c[2]);
+				System.out.printf("%-11s %9d  %-14s %10.3f%n", c[0], c[1].length(), algorithm, millis);
+			}
+		}
+	}
+
+	/**
+	 * Compares finding every domain of files/negatives.txt in a long document with one Aho-Corasick pass
+	 * against one indexOf scan per domain.
+	 */
+	static void multi() throws IOException
+	{
+		String[] domains = Files.readAllLines(Paths.get("files/negatives.txt")).stream()
+				.filter(line -> !line.isEmpty()).toArray(String[]::new);
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		java.util.Random random = new java.util.Random(2112);
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < 8_000_000)
+		{
+			// one token in a hundred is a domain to be found
+			sb.append(random.nextInt(100) == 0 ? domains[random.nextInt(domains.length)]
+					: words.get(random.nextInt(words.size()))).append(' ');
+		}
+		String document = sb.toString();
+		System.out.println("multi: " + domains.length + " patterns, document " + document.length() + " chars");
+
+		long[] count = new long[1];
+		double build = 0;
+		double scan = 0;
+		for (int r = 0; r < ROUNDS; r++)
+		{
+			long start = System.nanoTime();
+			AhoCorasick automaton = new AhoCorasick(domains);
+			long built = System.nanoTime();
+			automaton.findAll(document, (pattern, offset) -> count[0]++);
+			build = (built - start) / 1e6;
+			scan = (System.nanoTime() - built) / 1e6;
+		}
+		System.out.printf("aho-corasick build %8.2f ms, scan %8.1f ms (%.0f MB/s), %d matches%n", build, scan,
+				document.length() / scan / 1e3, count[0] / ROUNDS);
+
+		double repeated = 0;
+		for (int r = 0; r < 2; r++)
+		{
+			long start = System.nanoTime();
+			for (String domain : domains)
+			{
+				for (int i = document.indexOf(domain); i >= 0; i = document.indexOf(domain, i + 1))
+				{
+					count[0]++;
+				}
+			}
+			repeated = (System.nanoTime() - start) / 1e6;
+		}
+		System.out.printf("repeated indexOf          scan %8.1f ms (%.0f MB/s)%n", repeated,
+				document.length() / repeated / 1e3);
+		sink += count[0];
+	}
+
+	/**
+	 * Measures building a suffix array over a multi-megabyte document, its memory per character, and the
+	 * latency of queries answered from it compared with scanning the document each time.
+	 */
+	static void index() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		java.util.Random random = new java.util.Random(2112);
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < 4_000_000)
+		{
+			sb.append(words.get(random.nextInt(words.size()))).append(' ');
+		}
+		String document = sb.toString();
+		System.out.println("index: document " + document.length() + " chars");
+		SuffixArray index = null;
+		long start = System.nanoTime();
+		for (int r = 0; r < 3; r++)
+		{
+			index = new SuffixArray(document);
+		}
+		System.out.printf("build %.0f ms, %.1f bytes/char beyond the text%n", (System.nanoTime() - start) / 1e6 / 3,
+				(double) index.byteCount() / document.length());
+		String[] queries = {"quizzical", "the", "antidisestablishment", "qzxj"};
+		System.out.println("query                 matches  index us   indexOf us  first us  mid first us");
+		SearchModule indexed = ModuleFactory.getSearchModule(ModuleFactory.SearchAlgorithm.SUFFIX_ARRAY);
+		SearchModule scan = ModuleFactory.getSearchModule(ModuleFactory.SearchAlgorithm.INDEX_OF);
+		for (String query : queries)
+		{
+			double indexMicros = timeFindAll(indexed, query, document);
+			double scanMicros = timeFindAll(scan, query, document);
+			// the first occurrence, from the start and from the middle, through the index
+			double firstMicros = timeFind(indexed, query, document, 0);
+			double middleMicros = timeFind(indexed, query, document, document.length() / 2);
+			System.out.printf("%-20s %8d %9.1f %12.1f %9.2f %13.2f%n", query, index.findAll(query).length,
+					indexMicros, scanMicros, firstMicros, middleMicros);
+		}
+	}
+
+	/**
+	 * Measures the average time in microseconds that {@code search} takes to find the first occurrence of
+	 * {@code query} in {@code text} at or after {@code fromIndex}, after warming it up
+	 */
+	private static double timeFind(SearchModule search, String query, String text, int fromIndex)
+	{
+		sink += search.find(query, text, fromIndex);
+		int rounds = 0;
+		long start = System.nanoTime();
+		while (rounds < ROUNDS || System.nanoTime() - start < 200_000_000L)
+		{
+			sink += search.find(query, text, fromIndex);
+			rounds++;
+		}
+		return (System.nanoTime() - start) / 1e3 / rounds;
+	}
+
+	/**
+	 * Measures the average time in microseconds that {@code search} takes to find every occurrence of
+	 * {@code query} in {@code text}, after warming it up
+	 */
+	private static double timeFindAll(SearchModule search, String query, String text)
+	{
+		sink += search.findAll(query, text).sum();
+		int rounds = 0;
+		long start = System.nanoTime();
+		while (rounds < ROUNDS || System.nanoTime() - start < 200_000_000L)
+		{
+			sink += search.findAll(query, text).sum();
+			rounds++;
+		}
+		return (System.nanoTime() - start) / 1e3 / rounds;
+	}
+
+	/**
+	 * Times parallel chunked search on pools from one thread up to one per available core on a 200-million-character
+	 * text, for a query that does not occur and for one that first occurs a quarter of the way in.
+	 */
+	static void parallel() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		StringBuilder sb = new StringBuilder(200_000_000);
+		java.util.Random random = new java.util.Random(2112);
+		while (sb.length() < 200_000_000)
+		{
+			sb.append(words.get(random.nextInt(words.size()))).append(' ');
+		}
+		String needle = "qzxjneedleqzxj";
+		sb.replace(50_000_000, 50_000_000 + needle.length(), needle);
+		String document = sb.toString();
+		sb = null;
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("parallel: document " + document.length() + " chars, " + cores + " cores");
+		System.out.println("threads   absent ms   at 25% ms");
+		List<Integer> threadCounts = new ArrayList<>();
+		for (int threads = 1; threads < cores; threads *= 2)
+		{
+			threadCounts.add(threads);
+		}
+		threadCounts.add(cores);
+		for (int threads : threadCounts)
+		{
+			java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(threads);
+			SearchModule search = new ParallelSearch(pool, 1 << 20);
+			System.out.printf("%7d %11.1f %11.1f%n", threads, timeSearch(search, "qzxjqzxj", document),
+					timeSearch(search, needle, document));
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Measures searching a 256 MB file in place through memory mappings, once the file is in the page cache,
+	 * against reading it onto the heap as a String and calling indexOf.
+	 */
+	static void file() throws IOException
+	{
+		java.nio.file.Path file = Files.createTempFile("benchmark", ".txt");
+		try
+		{
+			List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+			java.util.Random random = new java.util.Random(2112);
+			try (java.io.Writer out = Files.newBufferedWriter(file))
+			{
+				for (long written = 0; written < 256L << 20; )
+				{
+					String word = words.get(random.nextInt(words.size()));
+					out.write(word);
+					out.write('\n');
+					written += word.length() + 1;
+				}
+			}
+			long size = Files.size(file);
+			System.out.println("file: " + size + " bytes");
+			MappedFileSearch search = ModuleFactory.getFileSearch();
+			String query = "qzxjqzxj";
+			double mapped = 0;
+			double heap = 0;
+			for (int r = 0; r < 3; r++)
+			{
+				long start = System.nanoTime();
+				sink += search.find(query, file);
+				mapped = (System.nanoTime() - start) / 1e6;
+				start = System.nanoTime();
+				sink += Files.readString(file).indexOf(query);
+				heap = (System.nanoTime() - start) / 1e6;
+			}
+			System.out.printf("mapped search        %8.1f ms (%.0f MB/s)%n", mapped, size / 1e3 / mapped);
+			System.out.printf("readString + indexOf %8.1f ms (%.0f MB/s)%n", heap, size / 1e3 / heap);
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Compares case-insensitive and whole-word searches with the case-sensitive path, and with lowercasing a copy
+	 * of the text or using a regular expression instead, reporting time and bytes allocated per search.
+	 */
+	static void options() throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		while (sb.length() < 8_000_000)
+		{
+			for (String word : words)
+			{
+				sb.append(word).append(' ');
+			}
+		}
+		String document = sb.toString();
+		String query = "Unreasonableness Antidisestablishment";
+		java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(
+				java.util.regex.Pattern.quote(query), java.util.regex.Pattern.CASE_INSENSITIVE
+						| java.util.regex.Pattern.UNICODE_CASE);
+		String lowerQuery = query.toLowerCase();
+		System.out.println("options: document " + document.length() + " chars, query length " + query.length());
+		System.out.println("algorithm   ignoreCase wholeWord  ms/search  bytes/search");
+		for (ModuleFactory.SearchAlgorithm algorithm : new ModuleFactory.SearchAlgorithm[] {
+				ModuleFactory.SearchAlgorithm.INDEX_OF, ModuleFactory.SearchAlgorithm.HORSPOOL})
+		{
+			SearchModule search = ModuleFactory.getSearchModule(algorithm);
+			for (int mode = 0; mode < 4; mode++)
+			{
+				boolean ignoreCase = (mode & 1) != 0;
+				boolean wholeWord = (mode & 2) != 0;
+				SearchModule withOptions = (q, t) -> search.find(q, t, 0, ignoreCase, wholeWord);
+				System.out.printf("%-11s %-10s %-9s %10.3f %13d%n", algorithm, ignoreCase, wholeWord,
+						timeSearch(withOptions, query, document), bytesPerSearch(withOptions, query, document));
+			}
+		}
+		SearchModule lowered = (q, t) -> t.toLowerCase().indexOf(lowerQuery);
+		SearchModule regex = (q, t) ->
+		{
+			java.util.regex.Matcher matcher = pattern.matcher(t);
+			return matcher.find() ? matcher.start() : -1;
+		};
+		System.out.printf("%-32s %10.3f %13d%n", "toLowerCase + indexOf", timeSearch(lowered, query, document),
+				bytesPerSearch(lowered, query, document));
+		System.out.printf("%-32s %10.3f %13d%n", "Pattern.CASE_INSENSITIVE", timeSearch(regex, query, document),
+				bytesPerSearch(regex, query, document));
+	}
+
+	/**
+	 * Measures searching a long document that is edited between searches: a scan with Horspool, the trigram
+	 * index updated directly from each edit, and TrigramSearch, which finds the edit by comparing the texts.
+	 */
+	static void trigram() throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		while (sb.length() < 8_000_000)
+		{
+			for (String word : words)
+			{
+				sb.append(word).append(' ');
+			}
+		}
+		String document = sb.toString();
+		long start = System.nanoTime();
+		util.TrigramIndex index = new util.TrigramIndex(document);
+		double buildMillis = (System.nanoTime() - start) / 1e6;
+		System.out.printf("trigram: document %d chars, index built in %.0f ms, %.1f bytes/char%n",
+				document.length(), buildMillis, (double) index.byteCount() / document.length());
+		System.out.println("query              matches  horspool ms  index edit ms  index query ms  TrigramSearch ms");
+		SearchModule horspool = ModuleFactory.getSearchModule(ModuleFactory.SearchAlgorithm.HORSPOOL);
+		SearchModule trigram = ModuleFactory.getSearchModule(ModuleFactory.SearchAlgorithm.TRIGRAM);
+		java.util.Random random = new java.util.Random(2112);
+		for (String query : new String[] {"qzxj", "unreasonableness", "tion"})
+		{
+			int matches = index.findAll(query).length;
+			// each round types one character at a random place, then finds every match
+			int rounds = 50;
+			String[] edited = new String[rounds];
+			int[] at = new int[rounds];
+			String current = document;
+			for (int r = 0; r < rounds; r++)
+			{
+				at[r] = random.nextInt(current.length());
+				current = current.substring(0, at[r]) + "x" + current.substring(at[r]);
+				edited[r] = current;
+			}
+			long scan = 0;
+			long edit = 0;
+			long direct = 0;
+			long diffed = 0;
+			trigram.findAll(query, document).count();
+			for (int r = 0; r < rounds; r++)
+			{
+				long t0 = System.nanoTime();
+				sink += horspool.findAll(query, edited[r]).count();
+				long t1 = System.nanoTime();
+				index.replace(at[r], at[r], "x");
+				long t2 = System.nanoTime();
+				sink += index.findAll(query).length;
+				long t3 = System.nanoTime();
+				sink += trigram.findAll(query, edited[r]).count();
+				long t4 = System.nanoTime();
+				scan += t1 - t0;
+				edit += t2 - t1;
+				direct += t3 - t2;
+				diffed += t4 - t3;
+			}
+			System.out.printf("%-18s %7d %12.3f %14.3f %15.3f %17.3f%n", query, matches, scan / 1e6 / rounds,
+					edit / 1e6 / rounds, direct / 1e6 / rounds, diffed / 1e6 / rounds);
+			index = new util.TrigramIndex(document);
+			trigram.findAll(query, document).count();
+		}
+	}
+
+	/**
+	 * Measures the symmetric delete index on the US dictionary: build time, memory, and the time to suggest
+	 * corrections for words with one or two random edits.
+	 */
+	static void suggest() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		java.util.Random random = new java.util.Random(2112);
+		String[] misspelled = new String[20_000];
+		for (int i = 0; i < misspelled.length; i++)
+		{
+			StringBuilder word = new StringBuilder(words.get(random.nextInt(words.size())));
+			for (int edits = 1 + random.nextInt(2); edits > 0 && word.length() > 1; edits--)
+			{
+				int at = random.nextInt(word.length());
+				char c = (char) ('a' + random.nextInt(26));
+				switch (random.nextInt(3))
+				{
+					case 0:
+						word.insert(at, c);
+						break;
+					case 1:
+						word.deleteCharAt(at);
+						break;
+					default:
+						word.setCharAt(at, c);
+				}
+			}
+			misspelled[i] = word.toString();
+		}
+		for (int r = 0; r < ROUNDS; r++)
+		{
+			util.SymmetricDeleteIndex index = new util.SymmetricDeleteIndex();
+			long start = System.nanoTime();
+			for (String word : words)
+			{
+				index.add(word);
+			}
+			index.suggest("warmup", 1);
+			double buildMillis = (System.nanoTime() - start) / 1e6;
+			long found = 0;
+			start = System.nanoTime();
+			for (String word : misspelled)
+			{
+				found += index.suggest(word, 5).size();
+			}
+			double micros = (System.nanoTime() - start) / 1e3 / misspelled.length;
+			sink += found;
+			if (r == ROUNDS - 1)
+			{
+				System.out.printf("suggest: %d words, built in %.0f ms, %.1f MB; %.1f us per misspelling, "
+								+ "%.2f suggestions on average%n", words.size(), buildMillis,
+						index.byteCount() / 1e6, micros, (double) found / misspelled.length);
+			}
+		}
+	}
+
+	/**
+	 * Measures the phonetic index on the US dictionary: the time to build it word by word, to save it and to
+	 * load it again, its size, and the time to look up sound-alikes.
+	 */
+	static void phonetic() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		java.nio.file.Path file = Files.createTempFile("phonetic", ".bin");
+		try
+		{
+			for (int r = 0; r < ROUNDS; r++)
+			{
+				long start = System.nanoTime();
+				util.PhoneticIndex index = new util.PhoneticIndex();
+				for (String word : words)
+				{
+					index.add(word);
+				}
+				double buildMillis = (System.nanoTime() - start) / 1e6;
+				start = System.nanoTime();
+				index.writeTo(file);
+				double writeMillis = (System.nanoTime() - start) / 1e6;
+				start = System.nanoTime();
+				util.PhoneticIndex loaded = util.PhoneticIndex.read(file);
+				double readMillis = (System.nanoTime() - start) / 1e6;
+				long found = 0;
+				start = System.nanoTime();
+				for (int i = 0; i < 20_000; i++)
+				{
+					found += loaded.soundsLike(words.get(i * 5), 5).size();
+				}
+				double micros = (System.nanoTime() - start) / 1e3 / 20_000;
+				sink += found;
+				if (r == ROUNDS - 1)
+				{
+					System.out.printf("phonetic: %d words, built in %.0f ms, %.1f MB, saved in %.1f ms, loaded in "
+									+ "%.1f ms (%d bytes); %.1f us per lookup%n", words.size(), buildMillis,
+							index.byteCount() / 1e6, writeMillis, readMillis, Files.size(file), micros);
+				}
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Measures EditorModel.spellCheck on a 100,000-word document with the US dictionary loaded, by its own
+	 * spellCheckTime, against the same span of work done the old way: split on a regex, then toLowerCase and
+	 * replaceAll for every word.
+	 */
+	static void tokenize() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		EditorModel model = new EditorModel();
+		model.loadDictionary(new java.io.File(DICTIONARY));
+		SpellCheckModule spellCheck = ModuleFactory.getSpellCheck();
+		for (String word : words)
+		{
+			spellCheck.addWord(word);
+		}
+		java.util.Random random = new java.util.Random(2112);
+		StringBuilder sb = new StringBuilder("<html><head></head><body contenteditable=\"true\"><p>");
+		for (int i = 0; i < 100_000; i++)
+		{
+			String word = words.get(random.nextInt(words.size()));
+			// some misspellings, capitals and punctuation
+			sb.append(i % 10 == 0 ? word + "q" : i % 7 == 0 ? Character.toUpperCase(word.charAt(0))
+					+ word.substring(1) + "," : word).append(' ');
+		}
+		sb.append("</p></body></html>");
+		String document = sb.toString();
+		String plainText = document.replaceAll("<p>", " ").replaceAll("<[^>]+>", "").replace("&nbsp;", "");
+		int runs = 4 * ROUNDS;
+		long[] before = new long[runs];
+		long[] after = new long[runs];
+		for (int r = 0; r < runs; r++)
+		{
+			long start = System.nanoTime();
+			String[] tokens = plainText.split("\\s+");
+			String[] normalized = new String[tokens.length];
+			for (int i = 0; i < tokens.length; i++)
+			{
+				normalized[i] = tokens[i].toLowerCase().replaceAll("[^\\w]", "");
+			}
+			boolean[] valid = new boolean[tokens.length];
+			spellCheck.areValidWords(normalized, valid);
+			StringBuilder out = new StringBuilder();
+			for (int i = 0; i < tokens.length; i++)
+			{
+				out.append(valid[i] ? "" : "<u><font color=\"red\">").append(tokens[i])
+						.append(valid[i] ? " " : "</font></u> ");
+			}
+			before[r] = (System.nanoTime() - start) / 1000;
+			sink += out.length();
+			sink += model.spellCheck(document).length();
+			after[r] = model.getSpellCheckTime();
+		}
+		java.util.Arrays.sort(before);
+		java.util.Arrays.sort(after);
+		System.out.printf("tokenize: %d words; median spellCheckTime %d us with split and replaceAll, %d us with "
+				+ "WordTokenizer%n", 100_000, before[runs / 2], after[runs / 2]);
+	}
+
+	/**
+	 * Measures converting a spell-checked 100,000-word document to plain text and clearing its formatting with
+	 * the regular expressions EditorModel used, against MarkupScanner, and the time autocomplete takes on it.
+	 */
+	static void markup() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		EditorModel model = new EditorModel();
+		model.loadDictionary(new java.io.File(DICTIONARY));
+		java.util.Random random = new java.util.Random(2112);
+		StringBuilder sb = new StringBuilder("<html><head></head><body contenteditable=\"true\"><p>");
+		for (int i = 0; i < 100_000; i++)
+		{
+			String word = words.get(random.nextInt(words.size()));
+			sb.append(i % 10 == 0 ? word + "q" : word).append(i % 50 == 0 ? "</p><p>" : i % 9 == 0 ? "&nbsp;" : " ");
+		}
+		sb.append("</p></body></html>");
+		String document = model.spellCheck(sb.toString());
+		MarkupScanner scanner = new MarkupScanner();
+		int runs = 4 * ROUNDS;
+		long[][] times = new long[5][runs];
+		for (int r = 0; r < runs; r++)
+		{
+			long start = System.nanoTime();
+			sink += document.replaceAll("<p>", " ").replaceAll("<[^>]+>", "").replace("&nbsp;", "").length();
+			times[0][r] = System.nanoTime() - start;
+			start = System.nanoTime();
+			sink += scanner.toPlainText(document).length();
+			times[1][r] = System.nanoTime() - start;
+			start = System.nanoTime();
+			sink += document.replaceAll("<u><font color=\"(red|blue)\">", "").replaceAll("</font></u>", "")
+					.length();
+			times[2][r] = System.nanoTime() - start;
+			start = System.nanoTime();
+			sink += scanner.clearFormatting(document).length();
+			times[3][r] = System.nanoTime() - start;
+			start = System.nanoTime();
+			String completion = model.autocomplete(document);
+			times[4][r] = System.nanoTime() - start;
+			sink += completion == null ? 0 : completion.length();
+		}
+		double[] medians = new double[times.length];
+		for (int i = 0; i < times.length; i++)
+		{
+			java.util.Arrays.sort(times[i]);
+			medians[i] = times[i][runs / 2] / 1e6;
+		}
+		System.out.printf("markup: %d chars; median ms, regex vs MarkupScanner: plain text %.2f vs %.2f, clear "
+				+ "formatting %.2f vs %.2f; autocomplete %.3f%n", document.length(), medians[0], medians[1],
+				medians[2], medians[3], medians[4]);
+	}
+
+	/**
+	 * Measures EditorModel.spellCheck on a 100,000-word document after changing one word in it, by its own
+	 * spellCheckTime, against checking the whole document every time.
+	 */
+	static void incremental() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		EditorModel model = new EditorModel();
+		model.loadDictionary(new java.io.File(DICTIONARY));
+		SpellCheckModule spellCheck = ModuleFactory.getSpellCheck();
+		for (String word : words)
+		{
+			spellCheck.addWord(word);
+		}
+		IncrementalSpellCheck full = new IncrementalSpellCheck(spellCheck);
+		full.setIncremental(false);
+		java.util.Random random = new java.util.Random(2112);
+		String[] document = new String[100_000];
+		for (int i = 0; i < document.length; i++)
+		{
+			String word = words.get(random.nextInt(words.size()));
+			document[i] = i % 10 == 0 ? word + "q" : word;
+		}
+		int runs = 4 * ROUNDS;
+		long[] before = new long[runs];
+		long[] after = new long[runs];
+		sink += model.spellCheck(markup(document)).length();
+		for (int r = 0; r < runs; r++)
+		{
+			document[random.nextInt(document.length)] = words.get(random.nextInt(words.size()));
+			String markup = markup(document);
+			String plainText = String.join(" ", document);
+			StringBuilder out = new StringBuilder(markup.length() + markup.length() / 2);
+			long start = System.nanoTime();
+			full.check(plainText, out);
+			before[r] = (System.nanoTime() - start) / 1000;
+			sink += out.length();
+			sink += model.spellCheck(markup).length();
+			after[r] = model.getSpellCheckTime();
+		}
+		java.util.Arrays.sort(before);
+		java.util.Arrays.sort(after);
+		System.out.printf("incremental: %d words, one changed; median spellCheckTime %d us checking everything, %d "
+				+ "us checking changed chunks%n", document.length, before[runs / 2], after[runs / 2]);
+	}
+
+	/**
+	 * Measures checking the words of a 100,000-word document whose words follow Zipf's law, as natural text
+	 * does, with each backend on its own and behind a CachedSpellCheck of the default size.
+	 */
+	static void cache() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		java.util.Collections.shuffle(words, new java.util.Random(2112));
+		// the word of rank r is drawn with probability proportional to 1 / r
+		double[] cumulative = new double[words.size()];
+		double total = 0;
+		for (int r = 0; r < words.size(); r++)
+		{
+			total += 1.0 / (r + 1);
+			cumulative[r] = total;
+		}
+		java.util.Random random = new java.util.Random(2112);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100_000; i++)
+		{
+			int r = java.util.Arrays.binarySearch(cumulative, random.nextDouble() * total);
+			sb.append(words.get(r < 0 ? -r - 1 : r)).append(i % 10 == 0 ? "q " : " ");
+		}
+		WordTokenizer tokenizer = new WordTokenizer();
+		tokenizer.tokenize(sb);
+		int count = tokenizer.count();
+		boolean[] valid = new boolean[count];
+		for (ModuleFactory.SpellCheckBackend backend : new ModuleFactory.SpellCheckBackend[] {
+				ModuleFactory.SpellCheckBackend.BLOOM, ModuleFactory.SpellCheckBackend.BLOOM_EXACT,
+				ModuleFactory.SpellCheckBackend.XOR})
+		{
+			SpellCheckModule spellCheck = ModuleFactory.getSpellCheck(backend);
+			for (String word : words)
+			{
+				spellCheck.addWord(word);
+			}
+			CachedSpellCheck cached = ModuleFactory.getCachedSpellCheck(spellCheck);
+			double[] millis = new double[2];
+			for (int c = 0; c < 2; c++)
+			{
+				SpellCheckModule module = c == 0 ? spellCheck : cached;
+				long[] times = new long[4 * ROUNDS];
+				for (int r = 0; r < times.length; r++)
+				{
+					long start = System.nanoTime();
+					module.areValidWords(tokenizer.words(), tokenizer.wordStarts(), count, valid);
+					times[r] = System.nanoTime() - start;
+					sink += valid[r] ? 1 : 0;
+				}
+				java.util.Arrays.sort(times);
+				millis[c] = times[times.length / 2] / 1e6;
+			}
+			System.out.printf("cache: %-11s %d words; median ms %.2f uncached, %.2f cached, hit rate %.1f%%%n",
+					backend, count, millis[0], millis[1],
+					100.0 * cached.getHits() / (cached.getHits() + cached.getMisses()));
+		}
+	}
+
+	static void scaling() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		SpellCheckModule spellCheck = ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.BLOOM_EXACT);
+		for (String word : words)
+		{
+			spellCheck.addWord(word);
+		}
+		// 2000 documents of about 10k characters, and the same text as one document, one word in ten misspelled
+		java.util.Random random = new java.util.Random(2112);
+		List<String> documents = new ArrayList<>();
+		StringBuilder all = new StringBuilder();
+		for (int d = 0; d < 2000; d++)
+		{
+			StringBuilder sb = new StringBuilder();
+			while (sb.length() < 10_000)
+			{
+				sb.append(words.get(random.nextInt(words.size()))).append(random.nextInt(10) == 0 ? "q " : " ");
+			}
+			documents.add(sb.toString());
+			all.append(sb);
+		}
+		String document = all.toString();
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("scaling: " + documents.size() + " documents, " + document.length() + " chars, "
+				+ cores + " cores");
+		System.out.println("threads   documents ms   MB/s   one document ms   MB/s");
+		List<Integer> threadCounts = new ArrayList<>();
+		for (int threads = 1; threads < cores; threads *= 2)
+		{
+			threadCounts.add(threads);
+		}
+		threadCounts.add(cores);
+		for (int threads : threadCounts)
+		{
+			java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(threads);
+			BatchSpellCheck batch = new BatchSpellCheck(spellCheck, pool, 1 << 16);
+			long[] many = new long[ROUNDS];
+			long[] one = new long[ROUNDS];
+			for (int r = 0; r < ROUNDS; r++)
+			{
+				long start = System.nanoTime();
+				sink += batch.checkAll(documents).length;
+				many[r] = System.nanoTime() - start;
+				start = System.nanoTime();
+				sink += batch.check(document).length;
+				one[r] = System.nanoTime() - start;
+			}
+			java.util.Arrays.sort(many);
+			java.util.Arrays.sort(one);
+			double manyMillis = many[ROUNDS / 2] / 1e6;
+			double oneMillis = one[ROUNDS / 2] / 1e6;
+			System.out.printf("%7d %14.1f %6.0f %17.1f %6.0f%n", threads, manyMillis,
+					document.length() / manyMillis / 1e3, oneMillis, document.length() / oneMillis / 1e3);
+			pool.shutdown();
+		}
+	}
+
+	static void session() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		AutoComplete uncached = new AutoComplete(0, 0);
+		AutoComplete cached = new AutoComplete();
+		for (String word : words)
+		{
+			uncached.addWord(word);
+			cached.addWord(word);
+		}
+		// type 5000 words a character at a time, completing the prefix after each keystroke
+		java.util.Random random = new java.util.Random(2112);
+		List<String> typed = new ArrayList<>();
+		int keystrokes = 0;
+		for (int i = 0; i < 5000; i++)
+		{
+			String word = words.get(random.nextInt(words.size())).toLowerCase();
+			typed.add(word);
+			keystrokes += word.length();
+		}
+		AutoCompleteSession uncachedSession = uncached.newSession();
+		AutoCompleteSession cachedSession = cached.newSession();
+		AutoCompleteModule[] modules = {uncached, cached};
+		AutoCompleteSession[] sessions = {uncachedSession, cachedSession};
+		String[] names = {"full lookup", "full lookup, cached", "session", "session, cached"};
+		for (int v = 0; v < names.length; v++)
+		{
+			long[] times = new long[ROUNDS];
+			for (int r = 0; r < ROUNDS; r++)
+			{
+				long start = System.nanoTime();
+				for (String word : typed)
+				{
+					for (int k = 1; k <= word.length(); k++)
+					{
+						String prefix = word.substring(0, k);
+						String completion = v < 2 ? modules[v].getWordForPrefix(prefix)
+								: sessions[v - 2].getWordForPrefix(prefix);
+						sink += completion == null ? 0 : completion.length();
+					}
+				}
+				times[r] = System.nanoTime() - start;
+			}
+			java.util.Arrays.sort(times);
+			System.out.printf("session: %d keystrokes; median ms %.1f %s%n", keystrokes, times[ROUNDS / 2] / 1e6,
+					names[v]);
+		}
+		System.out.printf("session: cache hit ratio %.1f%%, %d evictions%n", 100 * cached.getHitRatio(),
+				cached.getEvictions());
+	}
+
+	static void load() throws IOException
+	{
+		// the dictionary read line by line and added a word at a time to both modules, as the editor used to
+		long[] sequential = new long[ROUNDS];
+		long[] parallel = new long[ROUNDS];
+		for (int r = 0; r < ROUNDS; r++)
+		{
+			long start = System.nanoTime();
+			AutoCompleteModule autoComplete = ModuleFactory.getAutoComplete();
+			SpellCheckModule spellCheck = ModuleFactory.getSpellCheck();
+			try (java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.FileReader(DICTIONARY)))
+			{
+				for (String line; (line = reader.readLine()) != null; )
+				{
+					autoComplete.addWord(line);
+					spellCheck.addWord(line);
+				}
+			}
+			sequential[r] = System.nanoTime() - start;
+			start = System.nanoTime();
+			EditorModel model = new EditorModel();
+			sink += model.loadDictionary(new java.io.File(DICTIONARY)) ? 1 : 0;
+			parallel[r] = System.nanoTime() - start;
+		}
+		java.util.Arrays.sort(sequential);
+		java.util.Arrays.sort(parallel);
+		System.out.printf("load: %d cores; median ms %.1f line by line, %.1f mapped chunks with modules in parallel%n",
+				Runtime.getRuntime().availableProcessors(), sequential[ROUNDS / 2] / 1e6, parallel[ROUNDS / 2] / 1e6);
+	}
+
+	/**
+	 * Measures spellCheck and search on a 100,000-word document with one word changed between calls, as when the
+	 * user types: the median time of a whole call and the bytes it allocates.
+	 */
+	static void piece() throws IOException
+	{
+		List<String> words = Files.readAllLines(Paths.get(DICTIONARY));
+		EditorModel model = new EditorModel();
+		model.loadDictionary(new java.io.File(DICTIONARY));
+		java.util.Random random = new java.util.Random(2112);
+		String[] document = new String[100_000];
+		for (int i = 0; i < document.length; i++)
+		{
+			String word = words.get(random.nextInt(words.size()));
+			document[i] = i % 10 == 0 ? word + "q" : word;
+		}
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		int runs = 4 * ROUNDS;
+		long[] spellCheckTimes = new long[runs];
+		long[] searchTimes = new long[runs];
+		long spellCheckBytes = 0;
+		long searchBytes = 0;
+		String text = model.spellCheck(markup(document));
+		sink += model.search("ing", text).length();
+		for (int r = 0; r < runs; r++)
+		{
+			document[random.nextInt(document.length)] = words.get(random.nextInt(words.size()));
+			String markup = markup(document);
+			long bytes = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			text = model.spellCheck(markup);
+			spellCheckTimes[r] = (System.nanoTime() - start) / 1000;
+			spellCheckBytes += threads.getThreadAllocatedBytes(thread) - bytes;
+			bytes = threads.getThreadAllocatedBytes(thread);
+			start = System.nanoTime();
+			sink += model.search("ing", text).length();
+			searchTimes[r] = (System.nanoTime() - start) / 1000;
+			searchBytes += threads.getThreadAllocatedBytes(thread) - bytes;
+		}
+		java.util.Arrays.sort(spellCheckTimes);
+		java.util.Arrays.sort(searchTimes);
+		System.out.printf("piece: %d words, one changed; median us (KB allocated) spellCheck %d (%d), search %d "
+				+ "(%d)%n", document.length, spellCheckTimes[runs / 2], spellCheckBytes / runs / 1024,
+				searchTimes[runs / 2], searchBytes / runs / 1024);
+	}
+
+	/**
+	 * Returns the markup of the editor for a document of {@code words}
+	 */
+	private static String markup(String[] words)
+	{
+		return "<html><head></head><body contenteditable=\"true\"><p>" + String.join(" ", words)
+				+ "</p></body></html>";
+	}
+
+	/**
+	 * Measures the bytes the current thread allocates while {@code search} finds {@code query} in {@code text},
+	 * averaged over several searches
+	 */
+	private static long bytesPerSearch(SearchModule search, String query, String text)
+	{
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int r = 0; r < ROUNDS; r++)
+		{
+			sink += search.find(query, text);
+		}
+		return (threads.getThreadAllocatedBytes(thread) - before) / ROUNDS;
+	}
+
+	/**
+	 * Measures the average time in milliseconds that {@code search} takes to find {@code query} in
+	 * {@code text}, after warming it up
+	 */
+	private static double timeSearch(SearchModule search, String query, String text)
+	{
+		for (int r = 0; r < ROUNDS; r++)
+		{
+			sink += search.find(query, text);
+		}
+		int rounds = 0;
+		long start = System.nanoTime();
+		while (rounds < ROUNDS || System.nanoTime() - start < 200_000_000L)
+		{
+			sink += search.find(query, text);
+			rounds++;
+		}
+		return (System.nanoTime() - start) / 1e6 / rounds;
+	}
+
+	/**
+	 * Prints one row of the filters table, measuring the false positive rate and query throughput of
+	 * {@code filter}
+	 */
+	private static void report(String name, long bits, int n, double buildMillis, List<String> absent,
+			java.util.function.Predicate<String> filter, List<String> words)
+	{
+		int falsePositives = 0;
+		for (String word : absent)
+		{
+			if (filter.test(word))
+			{
+				falsePositives++;
+			}
+		}
+		int found = 0;
+		long start = System.nanoTime();
+		for (int r = 0; r < ROUNDS; r++)
+		{
+			for (String word : words)
+			{
+				found += filter.test(word) ? 1 : 0;
+			}
+			for (String word : absent)
+			{
+				found += filter.test(word) ? 1 : 0;
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%-10s %9.2f %8.3f %10.1f %11.0f%n", name, (double) bits / n,
+				100.0 * falsePositives / absent.size(), buildMillis, 2.0 * ROUNDS * n / seconds);
+		sink += found;
+	}
+}
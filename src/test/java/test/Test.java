@@ -1,5 +1,45 @@
 package test;
 
+import editor.AsyncAutoComplete;
+import editor.DictionaryLoader;
+import editor.EditorModel;
+import editor.IncrementalSpellCheck;
+import editor.MarkupScanner;
+import editor.PieceTable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import modules.ModuleFactory;
 import modules.*;
 import util.*;
@@ -15,6 +55,9 @@ import static org.junit.jupiter.api.Assertions.*;
 class Test
 {
 
+	/** The seed of every random test, so that a failure can be reproduced. */
+	private static final long SEED = 2112;
+
 	private final ModuleFactory moduleFactory = new ModuleFactory();
 	@org.junit.jupiter.api.Test
 	void testHashTable()
@@ -189,6 +232,1197 @@ class Test
 		assertEquals(true, one.mightContain("ben"));
 		assertEquals(false, one.mightContain("no"));
 		assertEquals(false, one.mightContain("oogabooga"));
+		// test long bitCount()
+		assertEquals(8 * 8888, one.bitCount());
+	}
+
+	@org.junit.jupiter.api.Test
+	void testBloomFilterBatch()
+	{
+		BloomFilter<String> one = new BloomFilter<String>(null, 1000, 4);
+		String[] words = new String[2000];
+		for (int i = 0; i < words.length; i++)
+		{
+			words[i] = "word" + i;
+			if (i % 3 == 0)
+			{
+				one.insert(words[i]);
+			}
+		}
+		// test void mightContainAll(E[] elems, boolean[] out) agrees with boolean mightContain(E elem)
+		boolean[] out = new boolean[words.length];
+		one.mightContainAll(words, out);
+		for (int i = 0; i < words.length; i++)
+		{
+			assertEquals(one.mightContain(words[i]), out[i]);
+			if (i % 3 == 0)
+			{
+				assertEquals(true, out[i]);
+			}
+		}
+
+		// test void areValidWords(String[] words, boolean[] valid) for every backend
+		for (ModuleFactory.SpellCheckBackend backend : ModuleFactory.SpellCheckBackend.values())
+		{
+			SpellCheckModule spellCheck = ModuleFactory.getSpellCheck(backend);
+			spellCheck.addWord("hello");
+			boolean[] valid = new boolean[3];
+			spellCheck.areValidWords(new String[] {"hello", "oogabooga", "hello"}, valid);
+			assertArrayEquals(new boolean[] {true, false, true}, valid);
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testBloomFilterFile() throws IOException
+	{
+		BloomFilter<String> one = new BloomFilter<String>(null, 8888, 8);
+		one.insert("hi");
+		one.insert("hello");
+		one.insert("ben");
+		assertEquals(3, one.getNumElements());
+
+		// test void writeTo(Path path), BloomFilter<E> open(Path path)
+		Path file = Files.createTempFile("bloom", ".bin");
+		try
+		{
+			one.writeTo(file);
+			BloomFilter<String> two = BloomFilter.open(file);
+			assertEquals(3, two.getNumElements());
+			assertEquals(true, two.mightContain("hi"));
+			assertEquals(true, two.mightContain("hello"));
+			assertEquals(true, two.mightContain("ben"));
+			assertEquals(false, two.mightContain("no"));
+			assertEquals(false, two.mightContain("oogabooga"));
+
+			// inserting into an opened filter does not change the file
+			two.insert("no");
+			assertEquals(true, two.mightContain("no"));
+			assertEquals(false, BloomFilter.<String>open(file).mightContain("no"));
+
+			// test SpellCheckModule getSpellCheck(Path dictionary)
+			SpellCheckModule spellCheck = ModuleFactory.getSpellCheck(file);
+			assertEquals(true, spellCheck.isValidWord("hello"));
+			assertEquals(false, spellCheck.isValidWord("oogabooga"));
+
+			// a filter of 2^31 bits fits in a ByteBuffer but not in the int bit indexes of its probes
+			long headerLength = Files.size(file) - 8888;
+			try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw"))
+			{
+				raw.seek(8);
+				raw.writeLong(1L << 31);
+				raw.setLength(headerLength + (1L << 28));
+			}
+			assertThrows(IOException.class, () -> BloomFilter.open(file));
+
+			Files.write(file, new byte[] {1, 2, 3});
+			assertThrows(IOException.class, () -> BloomFilter.open(file));
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testConcurrentBloomFilter() throws InterruptedException
+	{
+		// test constructor, void insert(E elem), boolean mightContain(E elem)
+		ConcurrentBloomFilter<String> one = new ConcurrentBloomFilter<String>(null, 8888, 8);
+		assertEquals(1, one.hash(15, 7));
+		one.insert("hi");
+		one.insert("hello");
+		assertEquals(true, one.mightContain("hi"));
+		assertEquals(true, one.mightContain("hello"));
+		assertEquals(false, one.mightContain("oogabooga"));
+
+		// stress test: every thread inserts its own words while re-checking the ones it already inserted,
+		// then every inserted word is checked once all threads are done
+		ConcurrentBloomFilter<String> two = new ConcurrentBloomFilter<String>(null, 1 << 16, 4);
+		int numThreads = 8;
+		int wordsPerThread = 20000;
+		boolean[] failed = new boolean[numThreads];
+		Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; t++)
+		{
+			int id = t;
+			threads[t] = new Thread(() ->
+			{
+				for (int i = 0; i < wordsPerThread; i++)
+				{
+					two.insert(id + ":" + i);
+					if (!two.mightContain(id + ":" + i) || !two.mightContain(id + ":" + (i / 2)))
+					{
+						failed[id] = true;
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		for (int t = 0; t < numThreads; t++)
+		{
+			assertEquals(false, failed[t]);
+			for (int i = 0; i < wordsPerThread; i++)
+			{
+				assertEquals(true, two.mightContain(t + ":" + i));
+			}
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testXorFilter()
+	{
+		// test constructor, boolean mightContain(E elem)
+		List<String> words = new ArrayList<>();
+		for (int i = 0; i < 10000; i++)
+		{
+			words.add("word" + i);
+		}
+		words.add("word0");
+		XorFilter<String> one = new XorFilter<String>(words);
+		assertEquals(10000, one.size());
+		for (String word : words)
+		{
+			assertEquals(true, one.mightContain(word));
+		}
+		// about 0.4% of absent words are reported present
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++)
+		{
+			if (one.mightContain("absent" + i))
+			{
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 100);
+		assertTrue(one.bitCount() < 10 * one.size() + 64);
+
+		XorFilter<String> two = new XorFilter<String>(new ArrayList<String>());
+		assertEquals(false, two.mightContain("hi"));
+	}
+
+	@org.junit.jupiter.api.Test
+	void testCuckooFilter()
+	{
+		// test constructor, boolean insert(E elem), boolean mightContain(E elem)
+		CuckooFilter<String> one = new CuckooFilter<String>(10000);
+		for (int i = 0; i < 10000; i++)
+		{
+			assertEquals(true, one.insert("word" + i));
+		}
+		assertEquals(10000, one.size());
+		for (int i = 0; i < 10000; i++)
+		{
+			assertEquals(true, one.mightContain("word" + i));
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++)
+		{
+			if (one.mightContain("absent" + i))
+			{
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 100);
+
+		// test boolean delete(E elem)
+		for (int i = 0; i < 10000; i += 2)
+		{
+			assertEquals(true, one.delete("word" + i));
+		}
+		assertEquals(5000, one.size());
+		for (int i = 1; i < 10000; i += 2)
+		{
+			assertEquals(true, one.mightContain("word" + i));
+		}
+
+		// a full filter refuses more elements but keeps the ones it has
+		CuckooFilter<String> two = new CuckooFilter<String>(100);
+		int inserted = 0;
+		while (two.insert("word" + inserted))
+		{
+			inserted++;
+		}
+		assertTrue(inserted >= 100);
+		for (int i = 0; i < inserted; i++)
+		{
+			assertEquals(true, two.mightContain("word" + i));
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testPackedWordSet()
+	{
+		// test constructor, void addAll(Collection<String> words), boolean contains(CharSequence word)
+		PackedWordSet one = new PackedWordSet();
+		assertEquals(false, one.contains("hi"));
+		one.addAll(Arrays.asList("world", "hi", "hello", "caf\u00e9", "hi"));
+		assertEquals(4, one.size());
+		assertEquals(true, one.contains("hi"));
+		assertEquals(true, one.contains("hello"));
+		assertEquals(true, one.contains("world"));
+		assertEquals(true, one.contains("caf\u00e9"));
+		assertEquals(true, one.contains(new StringBuilder("hello")));
+		assertEquals(false, one.contains("cafe"));
+		assertEquals(false, one.contains("h"));
+		assertEquals(false, one.contains("hellos"));
+		assertEquals(false, one.contains(""));
+		assertEquals(false, one.contains(null));
+
+		// adding more words merges them in
+		one.addAll(Arrays.asList("apple", "hello", "zebra", ""));
+		assertEquals(7, one.size());
+		assertEquals(true, one.contains("apple"));
+		assertEquals(true, one.contains("zebra"));
+		assertEquals(true, one.contains(""));
+		assertEquals(true, one.contains("hi"));
+
+		// test String get(int index)
+		assertEquals("", one.get(0));
+		assertEquals("caf\u00e9", one.get(2));
+		assertEquals("zebra", one.get(one.size() - 1));
+	}
+
+	@org.junit.jupiter.api.Test
+	void testSymmetricDeleteIndex()
+	{
+		// test List<String> suggest(CharSequence word, int limit)
+		SymmetricDeleteIndex one = new SymmetricDeleteIndex();
+		for (String word : new String[] {"phonetic", "phonetics", "kitten", "sitting", "mitten", "the", "then"})
+		{
+			one.add(word);
+		}
+		assertEquals(List.of("kitten", "mitten"), one.suggest("kiten", 5));
+		assertEquals(List.of("kitten"), one.suggest("kiten", 1));
+		assertEquals(List.of("the", "then"), one.suggest("teh", 5));
+		assertEquals(List.of("phonetic", "phonetics"), one.suggest("phonteic", 5));
+		assertEquals(List.of(), one.suggest("qqqqqq", 5));
+		one.add("kiten");
+		assertEquals(List.of("kiten", "kitten", "mitten"), one.suggest("kiten", 5));
+
+		// finds exactly the words within two edits, for random dictionaries of long and short words
+		Random random = new Random(SEED);
+		for (int trial = 0; trial < 200; trial++)
+		{
+			SymmetricDeleteIndex two = new SymmetricDeleteIndex();
+			TreeSet<String> words = new TreeSet<>();
+			for (int i = 0; i < 100; i++)
+			{
+				String word = randomString(random, 1 + random.nextInt(10), 3);
+				words.add(word);
+				two.add(word);
+			}
+			String query = randomString(random, 1 + random.nextInt(10), 3);
+			List<String> expected = new ArrayList<>();
+			for (int distance = 0; distance <= 2; distance++)
+			{
+				for (String word : words)
+				{
+					if (Math.min(editDistance(query, word), 3) == distance)
+					{
+						expected.add(word);
+					}
+				}
+			}
+			assertEquals(expected, two.suggest(query, Integer.MAX_VALUE), query);
+		}
+
+		// test List<String> getSuggestions(String word, int limit), only made by the backend that indexes words
+		SpellCheckModule spellCheck = ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.BLOOM_SUGGEST);
+		spellCheck.addWord("receive");
+		spellCheck.addWord("relieve");
+		assertEquals(List.of("receive"), spellCheck.getSuggestions("recieve", 1));
+		assertEquals(List.of("receive", "relieve"), spellCheck.getSuggestions("recieve", 5));
+		SpellCheckModule plain = ModuleFactory.getSpellCheck();
+		plain.addWord("receive");
+		assertEquals(List.of(), plain.getSuggestions("recieve", 5));
+	}
+
+	@org.junit.jupiter.api.Test
+	void testPhoneticIndex() throws IOException
+	{
+		// test String encode(CharSequence word)
+		assertEquals("FNTK", PhoneticIndex.encode("phonetic"));
+		assertEquals("FNTK", PhoneticIndex.encode("fonetik"));
+		assertEquals("NT", PhoneticIndex.encode("Knight"));
+		assertEquals("0M", PhoneticIndex.encode("thumb"));
+		assertEquals("SKL", PhoneticIndex.encode("school"));
+		assertEquals("SFR", PhoneticIndex.encode("xavier"));
+		assertEquals("", PhoneticIndex.encode(""));
+
+		// test List<String> soundsLike(CharSequence word, int limit)
+		PhoneticIndex one = new PhoneticIndex();
+		for (String word : new String[] {"fanatic", "phonetic", "phonetics", "fantastic", "night", "knight"})
+		{
+			one.add(word);
+		}
+		assertEquals(6, one.size());
+		assertEquals(List.of("fanatic", "phonetic"), one.soundsLike("fonetik", 5));
+		assertEquals(List.of("night", "knight"), one.soundsLike("nite", 5));
+		assertEquals(List.of("knight"), one.soundsLike("knite", 1));
+		assertEquals(List.of(), one.soundsLike("zebra", 5));
+
+		// test void writeTo(Path path), PhoneticIndex read(Path path)
+		Path file = Files.createTempFile("phonetic", ".bin");
+		Path dictionary = Files.createTempFile("bloom", ".bin");
+		try
+		{
+			one.writeTo(file);
+			PhoneticIndex two = PhoneticIndex.read(file);
+			assertEquals(6, two.size());
+			assertEquals("fantastic", two.word(3));
+			assertEquals(List.of("fanatic", "phonetic"), two.soundsLike("fonetik", 5));
+			two.add("fonetic");
+			assertEquals(List.of("fonetic", "fanatic", "phonetic"), two.soundsLike("fonetik", 5));
+
+			// test List<String> getSuggestions(String word, int limit), with sound-alikes after close spellings
+			SpellCheck spellCheck =
+					(SpellCheck) ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.BLOOM_SUGGEST);
+			spellCheck.addWord("phonetic");
+			spellCheck.addWord("frenetic");
+			assertEquals(List.of("phonetic"), spellCheck.getSuggestions("fonetik", 5));
+			assertEquals(List.of("frenetic", "phonetic"), spellCheck.getSuggestions("fonetic", 5));
+
+			// test SpellCheckModule getSpellCheck(Path dictionary, Path phoneticIndex)
+			spellCheck.saveDictionary(dictionary);
+			spellCheck.savePhoneticIndex(file);
+			SpellCheckModule loaded = ModuleFactory.getSpellCheck(dictionary, file);
+			assertEquals(true, loaded.isValidWord("frenetic"));
+			assertEquals(List.of("phonetic"), loaded.getSuggestions("fonetik", 5));
+			assertEquals(List.of("phonetic"), loaded.getSuggestions("phonetc", 5));
+			SpellCheck plain = (SpellCheck) ModuleFactory.getSpellCheck();
+			assertThrows(IllegalStateException.class, () -> plain.savePhoneticIndex(file));
+
+			Files.write(file, new byte[] {1, 2, 3});
+			assertThrows(IOException.class, () -> PhoneticIndex.read(file));
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+			Files.deleteIfExists(dictionary);
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testWordTokenizer()
+	{
+		// test void tokenize(CharSequence text), int count(), int tokenStart(int i), int tokenEnd(int i),
+		// char[] words(), int[] wordStarts()
+		WordTokenizer tokenizer = new WordTokenizer();
+		tokenizer.tokenize(" Hello,\tWORLD_1 !");
+		assertEquals(4, tokenizer.count());
+		assertEquals(0, tokenizer.tokenEnd(0));
+		assertEquals(1, tokenizer.tokenStart(1));
+		assertEquals(7, tokenizer.tokenEnd(1));
+		assertEquals("hello", new String(tokenizer.words(), tokenizer.wordStarts()[1], 5));
+		assertEquals(tokenizer.wordStarts()[3], tokenizer.wordStarts()[4]);
+
+		// agrees with split and replaceAll, for random text with whitespace, punctuation, case and non-ASCII
+		String alphabet = "aB_9 \t\n\r\f\u000B.,'!\u00A0\u00E9\u00C9\u212A\u0130";
+		Random random = new Random(SEED);
+		for (int trial = 0; trial < 3000; trial++)
+		{
+			StringBuilder sb = new StringBuilder();
+			for (int i = random.nextInt(30); i > 0; i--)
+			{
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			String text = sb.toString();
+			String[] tokens = text.split("\\s+");
+			tokenizer.tokenize(text);
+			assertEquals(tokens.length, tokenizer.count(), text);
+			for (int i = 0; i < tokens.length; i++)
+			{
+				assertEquals(tokens[i], text.substring(tokenizer.tokenStart(i), tokenizer.tokenEnd(i)));
+				int start = tokenizer.wordStarts()[i];
+				assertEquals(tokens[i].toLowerCase(Locale.ROOT).replaceAll("[^\\w]", ""),
+						new String(tokenizer.words(), start, tokenizer.wordStarts()[i + 1] - start));
+			}
+		}
+
+		// test void areValidWords(char[] chars, int[] starts, int count, boolean[] valid)
+		for (SpellCheckModule spellCheck : new SpellCheckModule[] {ModuleFactory.getSpellCheck(),
+				ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.BLOOM_EXACT),
+				ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.XOR)})
+		{
+			spellCheck.addWord("hello");
+			spellCheck.addWord("world_1");
+			tokenizer.tokenize("Hello, wrld WORLD_1");
+			boolean[] valid = new boolean[tokenizer.count()];
+			spellCheck.areValidWords(tokenizer.words(), tokenizer.wordStarts(), tokenizer.count(), valid);
+			assertArrayEquals(new boolean[] {true, false, true}, valid);
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testMarkupScanner()
+	{
+		// test CharSequence toPlainText(CharSequence markup), String clearFormatting(String markup)
+		MarkupScanner scanner = new MarkupScanner();
+		String markup = "<html><head></head><body contenteditable=\"true\"><p>Hi&nbsp;<u><font color=\"red\">"
+				+ "thre</font></u> <b>there</b></p></body></html>";
+		assertEquals(" Hithre there", scanner.toPlainText(markup).toString());
+		assertEquals("<html><head></head><body contenteditable=\"true\"><p>Hi&nbsp;thre <b>there</b></p>"
+				+ "</body></html>", scanner.clearFormatting(markup));
+
+		// test static int bodyStart(CharSequence markup, int bodyEnd), static int bodyEnd(CharSequence markup)
+		assertEquals(markup.indexOf("Hi"), MarkupScanner.bodyStart(markup, MarkupScanner.bodyEnd(markup)));
+		assertEquals(markup.lastIndexOf("</body>") - 1, MarkupScanner.bodyEnd(markup));
+
+		// agrees with the regular expressions it replaces, for random markup with broken and nested tags
+		String[] pieces = {"<", ">", "<>", "p", "<p>", "&nbsp;", "&nb", "sp;", " ", "ab", "</body>", "<b>",
+				"<u><font color=\"red\">", "<u><font color=\"blue\">", "</font></u>", "</font", "></u>"};
+		Random random = new Random(SEED);
+		for (int trial = 0; trial < 3000; trial++)
+		{
+			StringBuilder sb = new StringBuilder();
+			for (int i = random.nextInt(20); i > 0; i--)
+			{
+				sb.append(pieces[random.nextInt(pieces.length)]);
+			}
+			String text = sb.toString();
+			assertEquals(text.replaceAll("<p>", " ").replaceAll("<[^>]+>", "").replace("&nbsp;", ""),
+					scanner.toPlainText(text).toString(), text);
+			assertEquals(text.replaceAll("<u><font color=\"(red|blue)\">", "").replaceAll("</font></u>", ""),
+					scanner.clearFormatting(text), text);
+			assertEquals(Math.max(text.lastIndexOf(' ') + 1, text.lastIndexOf("&nbsp;") + 6),
+					MarkupScanner.lastWordStart(text), text);
+
+			// test int runCount(), int runStart(int r), int runEnd(int r): every character outside tags, and
+			// no other, is in a run
+			String cleared = scanner.clearFormatting(text);
+			int depth = 0;
+			int run = 0;
+			for (int i = 0; i < cleared.length(); i++)
+			{
+				char c = cleared.charAt(i);
+				boolean inText = depth == 0 && c != '<' && c != '>';
+				depth += c == '<' ? 1 : c == '>' ? -1 : 0;
+				while (run < scanner.runCount() && scanner.runEnd(run) <= i)
+				{
+					run++;
+				}
+				assertEquals(inText, run < scanner.runCount() && scanner.runStart(run) <= i, cleared);
+			}
+		}
+
+		// search highlights text but not tags
+		EditorModel model = new EditorModel();
+		assertEquals("<html><body><b class=\"b\"> <u><font color=\"blue\">b</font></u></b></body></html>",
+				model.search("b", "<html><body><b class=\"b\">b</b></body></html>"));
+	}
+
+	@org.junit.jupiter.api.Test
+	void testIncrementalSpellCheck()
+	{
+		// test void check(CharSequence plainText, StringBuilder out), int getCheckedLength(), void clear()
+		SpellCheckModule spellCheck = ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.BLOOM_EXACT);
+		for (String word : new String[] {"a", "b", "c", "ab", "ba"})
+		{
+			spellCheck.addWord(word);
+		}
+		IncrementalSpellCheck incremental = new IncrementalSpellCheck(spellCheck);
+		IncrementalSpellCheck full = new IncrementalSpellCheck(spellCheck);
+		full.setIncremental(false);
+
+		// agrees with checking everything, through random edits of random text
+		Random random = new Random(SEED);
+		StringBuilder text = new StringBuilder();
+		for (int trial = 0; trial < 2000; trial++)
+		{
+			int start = text.length() == 0 ? 0 : random.nextInt(text.length());
+			int end = Math.min(text.length(), start + random.nextInt(8));
+			text.replace(start, end, randomString(random, random.nextInt(trial % 100 == 0 ? 2000 : 10), 4)
+					.replace('d', ' '));
+			StringBuilder expected = new StringBuilder();
+			full.check(text, expected);
+			StringBuilder actual = new StringBuilder();
+			incremental.check(text, actual);
+			assertEquals(expected.toString(), actual.toString());
+		}
+
+		// checks little more than the edit
+		String document = randomString(random, 200000, 20).replace('t', ' ');
+		incremental.check(document, new StringBuilder());
+		assertEquals(document.length(), incremental.getCheckedLength());
+		incremental.check(document.substring(0, 100000) + "x" + document.substring(100000), new StringBuilder());
+		assertTrue(incremental.getCheckedLength() < 10000, "" + incremental.getCheckedLength());
+
+		// sees words added to the dictionary once cleared
+		StringBuilder before = new StringBuilder();
+		incremental.check("abc de", before);
+		spellCheck.addWord("abc");
+		incremental.clear();
+		StringBuilder after = new StringBuilder();
+		incremental.check("abc de", after);
+		assertEquals("<u><font color=\"red\">abc</font></u> <u><font color=\"red\">de</font></u> ", before.toString());
+		assertEquals("abc <u><font color=\"red\">de</font></u> ", after.toString());
+	}
+
+	@org.junit.jupiter.api.Test
+	void testCachedSpellCheck()
+	{
+		// test boolean isValidWord(String word), void addWord(String word), long getHits(), long getMisses()
+		CachedSpellCheck cached = ModuleFactory.getCachedSpellCheck(
+				ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.BLOOM_EXACT), 64);
+		assertFalse(cached.isValidWord("hello"));
+		assertFalse(cached.isValidWord("hello"));
+		assertEquals(1, cached.getHits());
+		assertEquals(1, cached.getMisses());
+		cached.addWord("hello");
+		assertTrue(cached.isValidWord("hello"));
+		assertTrue(cached.isValidWord("hello"));
+		assertEquals(2, cached.getHits());
+
+		// agrees with the module it caches through random lookups and additions, in a cache too small for them
+		SpellCheckModule exact = ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.BLOOM_EXACT);
+		Random random = new Random(SEED);
+		WordTokenizer tokenizer = new WordTokenizer();
+		for (int trial = 0; trial < 20000; trial++)
+		{
+			String word = randomString(random, 1 + random.nextInt(3), 4);
+			if (random.nextInt(10) == 0)
+			{
+				cached.addWord(word);
+				exact.addWord(word);
+			}
+			else if (random.nextInt(10) == 0)
+			{
+				// test void areValidWords(char[] chars, int[] starts, int count, boolean[] valid)
+				String text = word + " " + randomString(random, 2, 4) + " " + word;
+				tokenizer.tokenize(text);
+				boolean[] valid = new boolean[tokenizer.count()];
+				cached.areValidWords(tokenizer.words(), tokenizer.wordStarts(), tokenizer.count(), valid);
+				for (int i = 0; i < tokenizer.count(); i++)
+				{
+					assertEquals(exact.isValidWord(text.split(" ")[i]), valid[i], text);
+				}
+			}
+			else
+			{
+				assertEquals(exact.isValidWord(word), cached.isValidWord(word), word);
+			}
+		}
+		assertTrue(cached.getHits() > 0);
+		assertTrue(cached.getMisses() > 0);
+
+		// test List<String> getSuggestions(String word, int limit): kept until a word is added
+		CachedSpellCheck suggesting = ModuleFactory.getCachedSpellCheck(
+				ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.BLOOM_SUGGEST));
+		suggesting.addWord("hello");
+		assertEquals(List.of("hello"), suggesting.getSuggestions("helo", 5));
+		assertEquals(List.of("hello"), suggesting.getSuggestions("helo", 5));
+		suggesting.addWord("help");
+		assertEquals(List.of("hello", "help"), suggesting.getSuggestions("helo", 5));
+	}
+
+	@org.junit.jupiter.api.Test
+	void testAutoCompleteSession()
+	{
+		// test String getWordForPrefix(String prefix), typed a character at a time
+		AutoComplete autoComplete = new AutoComplete();
+		autoComplete.addWord("hello");
+		autoComplete.addWord("help");
+		autoComplete.addWord("helping");
+		TrieAutoCompleteSession session = autoComplete.newSession();
+		assertEquals("help", session.getWordForPrefix("help"));
+		long steps = session.getSteps();
+		assertEquals("helping", session.getWordForPrefix("helpi"));
+		assertEquals(steps + 1, session.getSteps());
+		assertEquals("help", session.getWordForPrefix("help"));
+		assertNull(session.getWordForPrefix("helpx"));
+		assertEquals("hello", session.getWordForPrefix("hell"));
+		assertEquals(steps + 3, session.getSteps());
+		assertNull(session.getWordForPrefix(null));
+
+		// words added during the session are found
+		autoComplete.addWord("helpx");
+		assertEquals("helpx", session.getWordForPrefix("helpx"));
+
+		// agrees with a full lookup through random edits, jumps and additions
+		Random random = new Random(SEED);
+		for (int i = 0; i < 300; i++)
+		{
+			autoComplete.addWord(randomString(random, 1 + random.nextInt(6), 3));
+		}
+		StringBuilder prefix = new StringBuilder();
+		for (int trial = 0; trial < 5000; trial++)
+		{
+			int edit = random.nextInt(20);
+			if (edit < 10)
+			{
+				prefix.append((char) ('a' + random.nextInt(3)));
+			}
+			else if (edit < 17 && prefix.length() > 0)
+			{
+				prefix.setLength(prefix.length() - 1);
+			}
+			else if (edit < 19)
+			{
+				prefix.setLength(Math.min(prefix.length(), random.nextInt(3)));
+				prefix.append(randomString(random, random.nextInt(4), 3));
+			}
+			else
+			{
+				autoComplete.addWord(randomString(random, 1 + random.nextInt(7), 3));
+			}
+			assertEquals(autoComplete.getWordForPrefix(prefix.toString()),
+					session.getWordForPrefix(prefix.toString()), prefix.toString());
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testAutoCompleteCache()
+	{
+		// test long getHits(), long getMisses(), long getEvictions(), double getHitRatio()
+		AutoComplete autoComplete = new AutoComplete(2, 1000);
+		autoComplete.addWord("hello");
+		autoComplete.addWord("world");
+		assertEquals("hello", autoComplete.getWordForPrefix("hel"));
+		assertEquals("hello", autoComplete.getWordForPrefix("hel"));
+		assertNull(autoComplete.getWordForPrefix("x"));
+		assertNull(autoComplete.getWordForPrefix("x"));
+		assertEquals(2, autoComplete.getHits());
+		assertEquals(2, autoComplete.getMisses());
+		assertEquals(0.5, autoComplete.getHitRatio());
+
+		// adding a word drops only the completions of its prefixes
+		autoComplete.addWord("help");
+		assertNull(autoComplete.getWordForPrefix("x"));
+		assertEquals(3, autoComplete.getHits());
+		assertEquals("help", autoComplete.getWordForPrefix("hel"));
+		assertEquals(3, autoComplete.getMisses());
+
+		// the least recently used prefix is evicted, and so are prefixes past the character bound
+		assertEquals("world", autoComplete.getWordForPrefix("w"));
+		assertEquals(1, autoComplete.getEvictions());
+		assertEquals("help", autoComplete.getWordForPrefix("hel"));
+		assertEquals(4, autoComplete.getHits());
+		AutoComplete small = new AutoComplete(100, 12);
+		small.addWord("hello");
+		small.getWordForPrefix("he");
+		small.getWordForPrefix("hel");
+		assertEquals(1, small.getEvictions());
+
+		// agrees with an AutoComplete that keeps nothing, through random lookups and additions
+		AutoComplete uncached = new AutoComplete(0, 0);
+		uncached.addWord("hello");
+		uncached.addWord("world");
+		uncached.addWord("help");
+		Random random = new Random(SEED);
+		for (int trial = 0; trial < 20000; trial++)
+		{
+			String word = randomString(random, random.nextInt(5), 3);
+			if (random.nextInt(10) == 0)
+			{
+				autoComplete.addWord(word);
+				uncached.addWord(word);
+			}
+			assertEquals(uncached.getWordForPrefix(word), autoComplete.getWordForPrefix(word), word);
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testAsyncAutoComplete() throws Exception
+	{
+		Path dict = Files.createTempFile("dict", ".txt");
+		try
+		{
+			Files.write(dict, List.of("hello", "help", "world"));
+			EditorModel model = new EditorModel();
+			assertTrue(model.loadDictionary(dict.toFile()));
+			assertEquals("help", model.autocomplete("<html><body>hel</body></html>"));
+
+			// the UI thread is a queue of tasks run by hand, so that no display is needed, and the worker's clock
+			// is advanced by hand, so that nothing depends on how long the test takes
+			Queue<Runnable> ui = new ArrayDeque<>();
+			ManualScheduler worker = new ManualScheduler();
+			AsyncAutoComplete async = new AsyncAutoComplete(model, ui::add, 50, worker);
+			List<String> results = new ArrayList<>();
+
+			// test void request(String markupText, Consumer<String> onResult): only the last of a burst is
+			// looked up, once the debounce window after it has passed
+			async.request("<html><body>hel</body></html>", results::add);
+			worker.advance(30);
+			async.request("<html><body>wor</body></html>", results::add);
+			worker.advance(49);
+			assertTrue(ui.isEmpty());
+			worker.advance(1);
+			ui.remove().run();
+			assertEquals(List.of("world"), results);
+			worker.advance(1000);
+			assertTrue(ui.isEmpty());
+
+			// a result overtaken while waiting for the UI thread is dropped
+			async.request("<html><body>hel</body></html>", results::add);
+			worker.advance(50);
+			Runnable stale = ui.remove();
+			async.request("<html><body>he</body></html>", results::add);
+			stale.run();
+			assertEquals(List.of("world"), results);
+			worker.advance(50);
+			ui.remove().run();
+			assertEquals(List.of("world", "help"), results);
+
+			// test void shutdown(): a request still waiting is dropped
+			async.request("<html><body>wor</body></html>", results::add);
+			async.shutdown();
+			worker.advance(1000);
+			assertTrue(ui.isEmpty());
+			assertFalse(worker.isShutdown());
+		}
+		finally
+		{
+			Files.delete(dict);
+		}
+	}
+
+	/**
+	 * A single-threaded scheduler whose clock only moves when {@link #advance(long)} is called, which runs the
+	 * tasks that have come due on the calling thread
+	 */
+	private static class ManualScheduler extends AbstractExecutorService implements ScheduledExecutorService
+	{
+		private final PriorityQueue<Task<?>> queue = new PriorityQueue<>();
+		private long now;
+		private long sequence;
+		private boolean shutdown;
+
+		/** Moves the clock forward by {@code millis}, running every task due by then in order. */
+		void advance(long millis)
+		{
+			long end = now + millis;
+			while (!queue.isEmpty() && queue.peek().time <= end)
+			{
+				Task<?> task = queue.remove();
+				now = task.time;
+				task.run();
+			}
+			now = end;
+		}
+
+		@Override
+		public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit)
+		{
+			return schedule(Executors.callable(command), delay, unit);
+		}
+
+		@Override
+		public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit)
+		{
+			Task<V> task = new Task<>(callable, now + unit.toMillis(delay), sequence++);
+			queue.add(task);
+			return task;
+		}
+
+		@Override
+		public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+				TimeUnit unit)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+				TimeUnit unit)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void execute(Runnable command)
+		{
+			schedule(command, 0, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void shutdown()
+		{
+			shutdown = true;
+		}
+
+		@Override
+		public List<Runnable> shutdownNow()
+		{
+			shutdown = true;
+			List<Runnable> waiting = new ArrayList<>(queue);
+			queue.clear();
+			return waiting;
+		}
+
+		@Override
+		public boolean isShutdown()
+		{
+			return shutdown;
+		}
+
+		@Override
+		public boolean isTerminated()
+		{
+			return shutdown && queue.isEmpty();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit)
+		{
+			return isTerminated();
+		}
+
+		/** A task due at {@code time} on the manual clock, ordered by time and then by when it was scheduled. */
+		private class Task<V> extends FutureTask<V> implements ScheduledFuture<V>
+		{
+			private final long time;
+			private final long order;
+
+			Task(Callable<V> callable, long time, long order)
+			{
+				super(callable);
+				this.time = time;
+				this.order = order;
+			}
+
+			@Override
+			public long getDelay(TimeUnit unit)
+			{
+				return unit.convert(time - now, TimeUnit.MILLISECONDS);
+			}
+
+			@Override
+			public int compareTo(Delayed other)
+			{
+				Task<?> task = (Task<?>) other;
+				return time != task.time ? Long.compare(time, task.time) : Long.compare(order, task.order);
+			}
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testDictionaryLoader() throws Exception
+	{
+		Path dict = Files.createTempFile("dict", ".txt");
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			// test List<String> read(Path file, DoubleConsumer progress), in chunks small enough to split every
+			// kind of line ending, against BufferedReader
+			Random random = new Random(SEED);
+			String[] endings = {"\n", "\r\n", "\r", "\n\n"};
+			StringBuilder text = new StringBuilder();
+			for (int i = 0; i < 2000; i++)
+			{
+				text.append(randomString(random, random.nextInt(8), 26)).append(endings[random.nextInt(4)]);
+			}
+			text.append("na\u00efve");
+			Files.write(dict, text.toString().getBytes(Charset.defaultCharset()));
+			List<String> expected = new ArrayList<>();
+			try (BufferedReader reader = Files.newBufferedReader(dict, Charset.defaultCharset()))
+			{
+				for (String line; (line = reader.readLine()) != null; )
+				{
+					expected.add(line);
+				}
+			}
+			List<Double> fractions = new ArrayList<>();
+			assertEquals(expected, new DictionaryLoader(pool, 7).read(dict, fractions::add));
+			assertEquals(1.0, fractions.get(fractions.size() - 1));
+
+			// test List<String> read(Path file, DoubleConsumer progress, Consumer<List<String>> eachChunk): the
+			// chunks, passed on from the pool's threads, hold every line once
+			List<String> chunked = new CopyOnWriteArrayList<>();
+			assertEquals(expected, new DictionaryLoader(pool, 7).read(dict, fraction -> {}, chunked::addAll));
+			List<String> sorted = new ArrayList<>(expected);
+			sorted.sort(null);
+			List<String> sortedChunked = new ArrayList<>(chunked);
+			sortedChunked.sort(null);
+			assertEquals(sorted, sortedChunked);
+
+			// test Future<?> loadDictionaryInBackground(File dict, DoubleConsumer progress, Consumer<Boolean> onDone)
+			List<String> words = new ArrayList<>();
+			for (int i = 0; i < 20000; i++)
+			{
+				words.add(randomString(random, 3 + random.nextInt(5), 26));
+			}
+			words.add("zzzzzzzzzzzz");
+			Files.write(dict, words);
+			EditorModel model = new EditorModel();
+			CompletableFuture<Boolean> done = new CompletableFuture<>();
+			List<Double> progress = new CopyOnWriteArrayList<>();
+			model.loadDictionaryInBackground(dict.toFile(), progress::add, done::complete);
+			assertTrue(done.get(30, TimeUnit.SECONDS));
+			assertEquals(1.0, progress.get(progress.size() - 1));
+			for (int i = 1; i < progress.size(); i++)
+			{
+				assertTrue(progress.get(i - 1) <= progress.get(i));
+			}
+			assertEquals("zzzzzzzzzzzz", model.autocomplete("<html><body>zzzzzzz</body></html>"));
+			// the words were added to the spell check from the tasks that read them
+			String known = "<html><body>" + words.get(0) + "</body></html>";
+			assertTrue(new EditorModel().spellCheck(known).contains("color=\"red\""));
+			assertFalse(model.spellCheck(known).contains("color=\"red\""));
+
+			// cancelled as soon as the words start to be added, the last of them is never added
+			EditorModel cancelled = new EditorModel();
+			AtomicReference<Future<?>> loading = new AtomicReference<>();
+			CountDownLatch started = new CountDownLatch(1);
+			CompletableFuture<Boolean> cancelledDone = new CompletableFuture<>();
+			List<Double> reportedAfterCancel = new CopyOnWriteArrayList<>();
+			loading.set(cancelled.loadDictionaryInBackground(dict.toFile(), fraction ->
+			{
+				try
+				{
+					started.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				if (loading.get().isCancelled())
+				{
+					reportedAfterCancel.add(fraction);
+				}
+				if (fraction >= 0.5)
+				{
+					loading.get().cancel(true);
+				}
+			}, loaded ->
+			{
+				// the loading has released the model, so another thread can use it
+				CompletableFuture<String> completion =
+						CompletableFuture.supplyAsync(() -> cancelled.autocomplete("<html><body>z</body></html>"));
+				try
+				{
+					completion.get(30, TimeUnit.SECONDS);
+					cancelledDone.complete(loaded);
+				}
+				catch (Exception e)
+				{
+					cancelledDone.completeExceptionally(e);
+				}
+			}));
+			started.countDown();
+			assertFalse(cancelledDone.get(30, TimeUnit.SECONDS));
+			assertNull(cancelled.autocomplete("<html><body>zzzzzzz</body></html>"));
+			// nothing is reported after the report that cancelled the load
+			assertEquals(List.of(), reportedAfterCancel);
+
+			// cancelled at once, the loading still reports that it is done
+			CompletableFuture<Boolean> neverDone = new CompletableFuture<>();
+			new EditorModel().loadDictionaryInBackground(dict.toFile(), fraction -> {}, neverDone::complete)
+					.cancel(true);
+			assertFalse(neverDone.get(30, TimeUnit.SECONDS));
+		}
+		finally
+		{
+			pool.shutdown();
+			Files.delete(dict);
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testPieceTable()
+	{
+		// test void replace(int start, int end, PieceTable text), void append(String text), int length() against
+		// a StringBuilder
+		PieceTable table = new PieceTable("[", "]");
+		table.append("hello world");
+		StringBuilder expected = new StringBuilder("hello world");
+		PieceTable pieces = new PieceTable("[", "]");
+		Random random = new Random(SEED);
+		for (int trial = 0; trial < 2000; trial++)
+		{
+			int start = random.nextInt(expected.length() + 1);
+			int end = start + random.nextInt(Math.min(8, expected.length() - start) + 1);
+			pieces.clear();
+			String text = "";
+			for (int i = random.nextInt(3); i > 0; i--)
+			{
+				String piece = randomString(random, random.nextInt(5), 4);
+				pieces.append(piece);
+				text += piece;
+			}
+			table.replace(start, end, pieces);
+			expected.replace(start, end, text);
+			assertEquals(expected.length(), table.length());
+			if (trial % 100 == 0)
+			{
+				assertEquals(expected.toString(), markup(table));
+			}
+		}
+		assertEquals(expected.toString(), markup(table));
+
+		// test void highlight(int start, int end): each call is wrapped on its own, even when it touches another
+		table = new PieceTable("[", "]");
+		table.append("aaaaa bc");
+		table.highlight(0, 1);
+		table.highlight(1, 2);
+		table.highlight(6, 8);
+		assertEquals("[a][a]aaa [bc]", markup(table));
+		table.highlight(1, 7);
+		assertEquals("[a][aaaa b][c]", markup(table));
+
+		// the highlights of inserted pieces stay apart from the table's own, and those replaced go with the text
+		pieces.clear();
+		pieces.append("xy");
+		pieces.append("z");
+		pieces.highlight(0, 3);
+		table.replace(2, 4, pieces);
+		assertEquals("[a][a][xyz][a b][c]", markup(table));
+		table.replace(1, 7, new PieceTable("[", "]"));
+		assertEquals("[a][b][c]", markup(table));
+
+		// test void clear()
+		table.clear();
+		assertEquals(0, table.length());
+		table.append("ab");
+		assertEquals("ab", markup(table));
+	}
+
+	/**
+	 * Returns the text of {@code table} with its highlights wrapped in their tags
+	 */
+	private static String markup(PieceTable table)
+	{
+		StringBuilder sb = new StringBuilder();
+		table.appendMarkup(sb);
+		return sb.toString();
+	}
+
+	@org.junit.jupiter.api.Test
+	void testBatchSpellCheck()
+	{
+		// tiny chunks so that documents are split, checked against modules that build their tables lazily
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			Random random = new Random(SEED);
+			for (ModuleFactory.SpellCheckBackend backend : ModuleFactory.SpellCheckBackend.values())
+			{
+				// a cuckoo filter only holds a few copies of a word, so each word is added once
+				Set<String> words = new HashSet<>(List.of("abc"));
+				for (int i = 0; i < 30; i++)
+				{
+					words.add(randomString(random, 1 + random.nextInt(3), 3));
+				}
+				SpellCheckModule spellCheck = ModuleFactory.getSpellCheck(backend);
+				for (String word : words)
+				{
+					spellCheck.addWord(word);
+				}
+				BatchSpellCheck batch = new BatchSpellCheck(spellCheck, pool, 7);
+				// test int[] check(CharSequence document)
+				assertArrayEquals(new int[] {0, 13},
+						ModuleFactory.getBatchSpellCheck(spellCheck).check("dddd Abc,\t\n  ddd"));
+
+				// test int[][] checkAll(List<? extends CharSequence> documents)
+				List<String> documents = new ArrayList<>();
+				for (int d = 0; d < 50; d++)
+				{
+					documents.add(randomString(random, random.nextInt(200), 5).replace('e', ' ').replace('d', '\n'));
+				}
+				int[][] offsets = batch.checkAll(documents);
+				for (int d = 0; d < documents.size(); d++)
+				{
+					List<Integer> expected = new ArrayList<>();
+					Matcher token = Pattern.compile("\\S+").matcher(documents.get(d));
+					while (token.find())
+					{
+						if (!spellCheck.isValidWord(token.group().toLowerCase().replaceAll("[^\\w]", "")))
+						{
+							expected.add(token.start());
+						}
+					}
+					assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), offsets[d],
+							backend + " " + documents.get(d));
+				}
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testExactSpellCheck()
+	{
+		// a Bloom filter this small reports almost everything present once the dictionary is loaded
+		SpellCheckModule bloom = ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.BLOOM);
+		SpellCheckModule exact = ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.BLOOM_EXACT);
+		for (int i = 0; i < 50000; i++)
+		{
+			bloom.addWord("word" + i);
+			exact.addWord("word" + i);
+		}
+		int bloomFalsePositives = 0;
+		for (int i = 0; i < 1000; i++)
+		{
+			if (bloom.isValidWord("absent" + i))
+			{
+				bloomFalsePositives++;
+			}
+			assertEquals(false, exact.isValidWord("absent" + i));
+		}
+		assertTrue(bloomFalsePositives > 0);
+		for (int i = 0; i < 50000; i++)
+		{
+			assertEquals(true, exact.isValidWord("word" + i));
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testSpellCheckBackends()
+	{
+		for (ModuleFactory.SpellCheckBackend backend : ModuleFactory.SpellCheckBackend.values())
+		{
+			SpellCheckModule spellCheck = ModuleFactory.getSpellCheck(backend);
+			spellCheck.addWord("hello");
+			spellCheck.addWord("world");
+			assertEquals(true, spellCheck.isValidWord("hello"));
+			assertEquals(true, spellCheck.isValidWord("world"));
+			assertEquals(false, spellCheck.isValidWord("oogabooga"));
+			// words added after the first check are still known
+			spellCheck.addWord("oogabooga");
+			assertEquals(true, spellCheck.isValidWord("oogabooga"));
+		}
+		CuckooSpellCheck cuckoo =
+				(CuckooSpellCheck) ModuleFactory.getSpellCheck(ModuleFactory.SpellCheckBackend.CUCKOO);
+		cuckoo.addWord("hello");
+		cuckoo.removeWord("hello");
+		assertEquals(false, cuckoo.isValidWord("hello"));
+
+		// test SpellCheckModule getSpellCheck(SpellCheckBackend backend, int capacity): reloading the same words,
+		// or adding far more than the capacity after the first check, neither fails nor forgets words
+		for (ModuleFactory.SpellCheckBackend backend : ModuleFactory.SpellCheckBackend.values())
+		{
+			SpellCheckModule spellCheck = ModuleFactory.getSpellCheck(backend, 100);
+			for (int load = 0; load < 3; load++)
+			{
+				for (int i = 0; i < 5000; i++)
+				{
+					spellCheck.addWord("word" + i);
+				}
+				assertEquals(true, spellCheck.isValidWord("word0"));
+			}
+			for (int i = 0; i < 5000; i++)
+			{
+				spellCheck.addWord("more" + i);
+			}
+			int falsePositives = 0;
+			for (int i = 0; i < 5000; i++)
+			{
+				assertEquals(true, spellCheck.isValidWord("word" + i), backend + " word" + i);
+				assertEquals(true, spellCheck.isValidWord("more" + i), backend + " more" + i);
+				falsePositives += spellCheck.isValidWord("other" + i) ? 1 : 0;
+			}
+			if (backend == ModuleFactory.SpellCheckBackend.CUCKOO || backend == ModuleFactory.SpellCheckBackend.XOR)
+			{
+				// the plain Bloom filter has a fixed size, but these grow to keep their accuracy
+				assertTrue(falsePositives < 100, backend + " " + falsePositives);
+			}
+		}
 	}
 
 	@org.junit.jupiter.api.Test
@@ -198,4 +1432,369 @@ class Test
 		assertEquals(6, search.find("world", "hello world"));
 		assertEquals(-1, search.find("heehee", "hello world"));
 	}
+
+	@org.junit.jupiter.api.Test
+	void testSearchAlgorithms()
+	{
+		for (ModuleFactory.SearchAlgorithm algorithm : ModuleFactory.SearchAlgorithm.values())
+		{
+			SearchModule search = ModuleFactory.getSearchModule(algorithm);
+			assertEquals(6, search.find("world", "hello world"));
+			assertEquals(-1, search.find("heehee", "hello world"));
+			assertEquals(0, search.find("", "hello world"));
+			assertEquals(-1, search.find("hello world!", "hello world"));
+			assertEquals(4, search.find("aab", "aaaaaab"));
+			assertEquals(2, search.find("abab", "aaababab"));
+
+			assertFindsLikeIndexOf(search, 3000, 60, 3);
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testFindAll()
+	{
+		// test int find(String query, String text, int fromIndex), IntStream findAll(String query, String text)
+		for (ModuleFactory.SearchAlgorithm algorithm : ModuleFactory.SearchAlgorithm.values())
+		{
+			SearchModule search = ModuleFactory.getSearchModule(algorithm);
+			assertEquals(7, search.find("o", "hello world", 5));
+			assertEquals(-1, search.find("o", "hello world", 8));
+			assertArrayEquals(new int[] {0, 1, 2}, search.findAll("aa", "aaaa").toArray());
+			assertArrayEquals(new int[] {}, search.findAll("b", "aaaa").toArray());
+			assertArrayEquals(new int[] {0, 1, 2}, search.findAll("", "ab").toArray());
+			// the stream is lazy, so only the matches asked for are searched for
+			assertArrayEquals(new int[] {0, 1}, search.findAll("a", "a".repeat(100000)).limit(2).toArray());
+		}
+
+		// test String search(String query, String markupText) highlights every match outside of tags
+		EditorModel model = new EditorModel();
+		String open = "<u><font color=\"blue\">";
+		String close = "</font></u>";
+		assertEquals("<html><body><p> " + open + "ab" + close + " c" + open + "ab" + close + "</p><b>"
+						+ open + "ab" + close + "</b></body></html>",
+				model.search("ab", "<html><body><p>ab cab</p><b>ab</b></body></html>"));
+		assertEquals("<html><body> " + open + "aa" + close + open + "aa" + close + "a</body></html>",
+				model.search("aa", "<html><body>aaaaa</body></html>"));
+		assertEquals("<html><body> " + open + "b" + close + "</body></html>",
+				model.search("b", "<html><body>b</body></html>"));
+		// previous highlights are cleared first
+		assertEquals("<html><body>hello " + open + "world" + close + "</body></html>",
+				model.search("world", "<html><body>" + open + "hello" + close + " world</body></html>"));
+		assertEquals("<html><body>x</body></html>", model.search("<b", "<html><body>x</body></html>"));
+	}
+
+	@org.junit.jupiter.api.Test
+	void testSearchOptions()
+	{
+		// test int find(String query, String text, int fromIndex, boolean ignoreCase, boolean wholeWord)
+		List<SearchModule> searches = new ArrayList<>();
+		for (ModuleFactory.SearchAlgorithm algorithm : ModuleFactory.SearchAlgorithm.values())
+		{
+			searches.add(ModuleFactory.getSearchModule(algorithm));
+		}
+		// chunks small enough that the random texts below are split
+		searches.add(new ParallelSearch(ForkJoinPool.commonPool(), 4));
+		for (SearchModule search : searches)
+		{
+			assertEquals(6, search.find("WORLD", "hello World", 0, true, false));
+			assertEquals(-1, search.find("WORLD", "hello World", 0, false, false));
+			assertEquals(8, search.find("cat", "concat, cat", 0, false, true));
+			assertEquals(-1, search.find("cat", "cats_cat9", 0, false, true));
+			assertEquals(0, search.find("\u00DCber", "\u00FCber alles", 0, true, true));
+			assertArrayEquals(new int[] {0, 4, 11}, search.findAll("ab", "AB, ab;xab Ab", true, true).toArray());
+
+			// agrees with comparing at every position, for random texts in mixed case
+			Random random = new Random(SEED);
+			for (int trial = 0; trial < 3000; trial++)
+			{
+				String text = randomCase(random, randomString(random, random.nextInt(60), 3)).replace('c', ' ');
+				String query = randomCase(random, randomString(random, 1 + random.nextInt(4), 2));
+				boolean ignoreCase = random.nextBoolean();
+				boolean wholeWord = random.nextBoolean();
+				int from = random.nextInt(5);
+				assertEquals(findNaively(query, text, from, ignoreCase, wholeWord),
+						search.find(query, text, from, ignoreCase, wholeWord), query + " in " + text);
+				List<Integer> expected = new ArrayList<>();
+				for (int i = findNaively(query, text, 0, ignoreCase, wholeWord); i >= 0;
+						i = findNaively(query, text, i + 1, ignoreCase, wholeWord))
+				{
+					expected.add(i);
+				}
+				assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(),
+						search.findAll(query, text, ignoreCase, wholeWord).toArray());
+			}
+		}
+
+		// test String search(String query, String markupText, boolean ignoreCase, boolean wholeWord)
+		EditorModel model = new EditorModel();
+		String open = "<u><font color=\"blue\">";
+		String close = "</font></u>";
+		assertEquals("<html><body><p> " + open + "An" + close + " ant " + open + "an" + close + "</p></body></html>",
+				model.search("an", "<html><body><p>An ant an</p></body></html>", true, true));
+	}
+
+	@org.junit.jupiter.api.Test
+	void testSuffixArray()
+	{
+		// test constructor, int suffix(int i)
+		SuffixArray one = new SuffixArray("banana");
+		int[] sorted = new int[one.size()];
+		for (int i = 0; i < sorted.length; i++)
+		{
+			sorted[i] = one.suffix(i);
+		}
+		assertArrayEquals(new int[] {5, 3, 1, 0, 4, 2}, sorted);
+
+		// test int[] range(CharSequence query), int first(CharSequence query, int fromIndex),
+		// int[] findAll(CharSequence query)
+		assertArrayEquals(new int[] {1, 3}, one.range("ana"));
+		assertEquals(1, one.first("ana", 0));
+		assertEquals(3, one.first("ana", 2));
+		assertEquals(-1, one.first("ana", 4));
+		assertArrayEquals(new int[] {1, 3, 5}, one.findAll("a"));
+		assertArrayEquals(new int[] {}, one.findAll("nab"));
+		assertArrayEquals(new int[] {}, one.findAll("bananas"));
+		assertEquals(0, new SuffixArray("").size());
+
+		// every suffix is sorted, for random texts over small alphabets
+		Random random = new Random(SEED);
+		for (int trial = 0; trial < 300; trial++)
+		{
+			String text = randomString(random, random.nextInt(200), 1 + random.nextInt(4));
+			SuffixArray two = new SuffixArray(text);
+			assertEquals(text.length(), two.size());
+			for (int i = 1; i < two.size(); i++)
+			{
+				assertTrue(text.substring(two.suffix(i - 1)).compareTo(text.substring(two.suffix(i))) < 0);
+			}
+			String query = randomString(random, 1 + random.nextInt(3), 4);
+			assertArrayEquals(occurrences(text, query), two.findAll(query));
+			for (int from = 0; from <= text.length() + 1; from += 1 + random.nextInt(20))
+			{
+				assertEquals(text.indexOf(query, from), two.first(query, from), query + " from " + from);
+			}
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testTrigramIndex()
+	{
+		// test int find(CharSequence query, int fromIndex), int[] findAll(CharSequence query)
+		TrigramIndex one = new TrigramIndex("banana bandana");
+		assertEquals(1, one.find("ana", 0));
+		assertEquals(3, one.find("ana", 2));
+		assertEquals(11, one.find("ana", 4));
+		assertEquals(-1, one.find("nab", 0));
+		assertArrayEquals(new int[] {0, 7}, one.findAll("ban"));
+		assertArrayEquals(new int[] {0, 7}, one.findAll("ba"));
+
+		// test void replace(int start, int end, CharSequence replacement)
+		one.replace(7, 10, "can");
+		assertEquals("banana candana", one.text().toString());
+		assertArrayEquals(new int[] {0}, one.findAll("ban"));
+		assertArrayEquals(new int[] {7}, one.findAll("can"));
+		one.replace(0, one.length(), "");
+		assertEquals(-1, one.find("ana", 0));
+		one.replace(0, 0, "ananas");
+		assertArrayEquals(new int[] {0, 2}, one.findAll("ana"));
+		assertThrows(IndexOutOfBoundsException.class, () -> one.replace(3, 7, "x"));
+
+		// agrees with indexOf through random edits, with blocks small enough that edits cross them
+		Random random = new Random(SEED);
+		StringBuilder expected = new StringBuilder(randomString(random, 300, 3));
+		TrigramIndex two = new TrigramIndex(expected, 8);
+		for (int trial = 0; trial < 3000; trial++)
+		{
+			int start = random.nextInt(expected.length() + 1);
+			int end = Math.min(expected.length(), start + random.nextInt(random.nextInt(10) == 0 ? 100 : 5));
+			String replacement = randomString(random, random.nextInt(random.nextInt(10) == 0 ? 60 : 6), 3);
+			expected.replace(start, end, replacement);
+			two.replace(start, end, replacement);
+			String query = randomString(random, 1 + random.nextInt(5), 3);
+			int from = random.nextInt(expected.length() + 1);
+			assertEquals(expected.indexOf(query, from), two.find(query, from), query + " in " + expected);
+			assertArrayEquals(occurrences(expected, query), two.findAll(query));
+		}
+		assertEquals(expected.toString(), two.text().toString());
+	}
+
+	@org.junit.jupiter.api.Test
+	void testParallelSearch()
+	{
+		// tiny chunks so that even short texts are split, with matches straddling chunk boundaries
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			SearchModule search = new ParallelSearch(pool, 3);
+			assertEquals(6, search.find("world", "hello world"));
+			assertEquals(-1, search.find("heehee", "hello world"));
+			assertEquals(7, search.find("o", "hello world", 5));
+			assertFindsLikeIndexOf(search, 2000, 100, 2);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testMappedFileSearch() throws IOException
+	{
+		Path file = Files.createTempFile("search", ".txt");
+		try
+		{
+			Files.write(file, "na\u00efve banana band".getBytes(StandardCharsets.UTF_8));
+			// test long find(String query, Path file), offsets are in bytes
+			MappedFileSearch search = ModuleFactory.getFileSearch();
+			assertEquals(0, search.find("na", file));
+			assertEquals(8, search.find("ana", file));
+			assertEquals(2, search.find("\u00efve", file));
+			assertEquals(-1, search.find("bandana", file));
+
+			// test void findAll(String query, Path file, LongConsumer handler), with windows small enough
+			// that matches straddle the boundaries between mappings
+			for (int windowSize : new int[] {1, 2, 3, 1 << 20})
+			{
+				List<Long> matches = new ArrayList<>();
+				new MappedFileSearch(windowSize).findAll("an", file, matches::add);
+				assertEquals(Arrays.asList(8L, 10L, 15L), matches);
+				assertEquals(16L, new MappedFileSearch(windowSize).find("nd", file));
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@org.junit.jupiter.api.Test
+	void testAhoCorasick()
+	{
+		// test void findAll(CharSequence text, MatchHandler handler)
+		String[] patterns = {"he", "she", "his", "hers", "", "he"};
+		AhoCorasick one = new AhoCorasick(patterns);
+		List<String> matches = new ArrayList<>();
+		one.findAll("ushers and his", (pattern, offset) -> matches.add(pattern + "@" + offset));
+		assertEquals(Arrays.asList("1@1", "5@2", "0@2", "3@2", "2@11"), matches);
+
+		// agrees with repeated indexOf on random texts, through SearchModule
+		SearchModule search = ModuleFactory.getSearchModule();
+		Random random = new Random(SEED);
+		for (int trial = 0; trial < 500; trial++)
+		{
+			String text = randomString(random, random.nextInt(80), 3);
+			String[] queries = new String[1 + random.nextInt(5)];
+			for (int q = 0; q < queries.length; q++)
+			{
+				queries[q] = randomString(random, 1 + random.nextInt(4), 3);
+			}
+			Set<String> expected = new HashSet<>();
+			for (int q = 0; q < queries.length; q++)
+			{
+				for (int i : occurrences(text, queries[q]))
+				{
+					expected.add(q + "@" + i);
+				}
+			}
+			Set<String> actual = new HashSet<>();
+			search.findAll(queries, text, (pattern, offset) -> actual.add(pattern + "@" + offset));
+			assertEquals(expected, actual);
+		}
+	}
+
+	/**
+	 * Creates a random string of the given length using the first {@code alphabet} lowercase letters
+	 */
+	private static String randomString(Random random, int length, int alphabet)
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++)
+		{
+			sb.append((char) ('a' + random.nextInt(alphabet)));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the index of every occurrence of {@code query} in {@code text}, found with indexOf
+	 */
+	private static int[] occurrences(CharSequence text, String query)
+	{
+		String s = text.toString();
+		List<Integer> found = new ArrayList<>();
+		for (int i = s.indexOf(query); i >= 0; i = s.indexOf(query, i + 1))
+		{
+			found.add(i);
+		}
+		return found.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Checks that {@code search} finds random queries from random indexes of random texts of up to
+	 * {@code maxLength} characters where indexOf does, over alphabets of 1 to {@code alphabet} letters, which
+	 * give many near matches
+	 */
+	private static void assertFindsLikeIndexOf(SearchModule search, int trials, int maxLength, int alphabet)
+	{
+		Random random = new Random(SEED);
+		for (int trial = 0; trial < trials; trial++)
+		{
+			int letters = 1 + random.nextInt(alphabet);
+			String text = randomString(random, random.nextInt(maxLength), letters);
+			String query = randomString(random, 1 + random.nextInt(8), letters);
+			int from = random.nextInt(10);
+			assertEquals(text.indexOf(query, from), search.find(query, text, from), query + " in " + text);
+		}
+	}
+
+	/** Returns the edit distance between a and b, counting transpositions of adjacent characters. */
+	private static int editDistance(String a, String b)
+	{
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++)
+		{
+			for (int j = 0; j <= b.length(); j++)
+			{
+				if (i == 0 || j == 0)
+				{
+					d[i][j] = i + j;
+					continue;
+				}
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1))
+				{
+					d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+				}
+			}
+		}
+		return d[a.length()][b.length()];
+	}
+
+	/** Finds {@code query} in {@code text} with the given options by comparing it at every position. */
+	private static int findNaively(String query, String text, int fromIndex, boolean ignoreCase, boolean wholeWord)
+	{
+		for (int i = fromIndex; i <= text.length() - query.length(); i++)
+		{
+			if (text.regionMatches(ignoreCase, i, query, 0, query.length())
+					&& (!wholeWord || SearchModule.isWholeWord(text, i, query.length())))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static String randomCase(Random random, String s)
+	{
+		StringBuilder sb = new StringBuilder(s);
+		for (int i = 0; i < sb.length(); i++)
+		{
+			if (random.nextBoolean())
+			{
+				sb.setCharAt(i, Character.toUpperCase(sb.charAt(i)));
+			}
+		}
+		return sb.toString();
+	}
 }